@@ -0,0 +1,81 @@
+package edu.nctu.lalala.benchmark;
+
+import java.io.File;
+import java.util.BitSet;
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import edu.nctu.lalala.enums.DiscretizationType;
+import edu.nctu.lalala.fvs.FVStatistics;
+import edu.nctu.lalala.fvs.FVTable;
+import edu.nctu.lalala.main.Main;
+import edu.nctu.lalala.util.FVSHelper;
+import edu.nctu.lalala.util.Instrumentation;
+import weka.core.Instances;
+
+/**
+ * Shipped dataset prepared for the benchmarks: loaded and discretized by Main
+ * (thus with the same dataset specific adjustment and bins), shuffled and cut
+ * into the first <b>rows</b> rows before the discretization. The FV table, its
+ * statistics and a selection (FVs
+ * with entropy below the mean) are computed once per trial. <br/>
+ * The dataset folder is <b>dataset</b> (relative to the working directory),
+ * or the system property <b>fvs.dataset</b>.
+ *
+ * @author Gunarto Sindoro Njoo
+ * @version 1.0
+ * @category Benchmark
+ */
+@State(Scope.Benchmark)
+public class BenchmarkData {
+	private static final int SEED = 1;
+
+	@Param({ "NCTU/353567051354901_2014_agg.arff", "Opportunity/S1-ADL1.arff" })
+	public String dataset;
+
+	@Param({ "Binning", "Frequency", "MDL", "None" })
+	public String discretization;
+
+	/**
+	 * Number of rows (the whole dataset if it is smaller)
+	 */
+	@Param({ "1000", "10000" })
+	public int rows;
+
+	public Instances data;
+	public FVTable table;
+	public FVStatistics statistics;
+	public BitSet selected;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		FVSHelper.getInstance().setDebugStatus(false);
+		String folder = System.getProperty("fvs.dataset", "dataset");
+		Instances raw = Main.getInstance().loadDataset(folder + File.separator + dataset, dataset,
+				Instrumentation.DISABLED);
+		if (raw == null)
+			throw new IllegalStateException("Couldn't load the dataset " + dataset);
+		raw.randomize(new Random(SEED));
+		Instances subset = new Instances(raw, 0, Math.min(rows, raw.numInstances()));
+		data = Main.getInstance().discretize(subset, DiscretizationType.valueOf(discretization));
+		if (data == null)
+			throw new IllegalStateException("Couldn't discretize the dataset " + dataset + ": " + discretization);
+
+		table = FVTable.extract(data);
+		statistics = FVStatistics.compute(table);
+		double[] entropies = statistics.getEntropy();
+		double mean = 0;
+		for (double entropy : entropies)
+			mean += entropy;
+		mean /= Math.max(1, entropies.length);
+		selected = new BitSet(table.size());
+		for (int id = 0; id < entropies.length; id++)
+			if (entropies[id] <= mean)
+				selected.set(id);
+	}
+}
@@ -0,0 +1,30 @@
+package edu.nctu.lalala.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Run the benchmarks with the GC profiler, thus the allocation rate is
+ * reported together with the throughput. <br/>
+ * The arguments are the JMH command line options, e.g.
+ * <b>java -jar benchmarks/target/benchmarks.jar FVSBenchmark -p
+ * discretization=Binning -p rows=1000</b> (run from the repository folder)
+ *
+ * @author Gunarto Sindoro Njoo
+ * @version 1.0
+ * @category Benchmark
+ */
+public class BenchmarkRunner {
+	public static void main(String[] args) throws Exception {
+		CommandLineOptions cmd = new CommandLineOptions(args);
+		if (cmd.shouldHelp()) {
+			cmd.showHelp();
+			return;
+		}
+		Options options = new OptionsBuilder().parent(cmd).addProfiler(GCProfiler.class).build();
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,101 @@
+package edu.nctu.lalala.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import edu.nctu.lalala.fvs.CorrelationMatrix;
+import edu.nctu.lalala.fvs.FVTable;
+import edu.nctu.lalala.fvs.Value;
+import edu.nctu.lalala.util.FVSHelper;
+import edu.nctu.lalala.util.MathHelper;
+import weka.core.Attribute;
+import weka.core.Instance;
+import weka.core.Instances;
+
+/**
+ * Inner loops of the FVS statistics and transformation
+ *
+ * @author Gunarto Sindoro Njoo
+ * @version 1.0
+ * @category Benchmark
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FVSBenchmark {
+	@Benchmark
+	public FVTable extractValuesFromData(BenchmarkData d) {
+		return FVSHelper.getInstance().extractValuesFromData(d.data);
+	}
+
+	@Benchmark
+	public double[] generateEntropy(BenchmarkData d) {
+		return FVSHelper.getInstance().generateEntropy(d.table);
+	}
+
+	@Benchmark
+	public double[] calculateIG(BenchmarkData d) {
+		return MathHelper.getInstance().calculateIG(d.table, d.table.getClassDistribution(),
+				d.statistics.getClassEntropy(), d.table.numClasses());
+	}
+
+	@Benchmark
+	public double[] calculateChi(BenchmarkData d) {
+		return MathHelper.getInstance().calculateChi(d.table, d.table.numClasses());
+	}
+
+	@Benchmark
+	public CorrelationMatrix generateCorrelationMatrix(BenchmarkData d) {
+		return FVSHelper.getInstance().generateCorrelationMatrix(d.data);
+	}
+
+	@Benchmark
+	public Instances transformInstances(BenchmarkData d) {
+		Instances output = new Instances(d.data, d.data.numInstances());
+		return FVSHelper.getInstance().transformInstances(d.data, output, d.table, d.selected);
+	}
+
+	/**
+	 * Interval of every FV in the table
+	 */
+	@Benchmark
+	public void constructValue(BenchmarkData d, Blackhole bh) {
+		for (int id = 0; id < d.table.size(); id++)
+			bh.consume(d.table.getInterval(id));
+	}
+
+	/**
+	 * Parse every nominal label (bin labels of the discretization)
+	 */
+	@Benchmark
+	public void parseValue(BenchmarkData d, Blackhole bh) {
+		for (int x = 0; x < d.data.numAttributes() - 1; x++) {
+			Attribute att = d.data.attribute(x);
+			for (int v = 0; v < att.numValues(); v++)
+				bh.consume(new Value(att.value(v)));
+		}
+	}
+
+	/**
+	 * FV id of every cell of the data
+	 */
+	@Benchmark
+	public void lookupValue(BenchmarkData d, Blackhole bh) {
+		int numFeatures = d.table.numFeatures();
+		for (int i = 0; i < d.data.numInstances(); i++) {
+			Instance ins = d.data.instance(i);
+			for (int x = 0; x < numFeatures; x++)
+				bh.consume(d.table.indexOf(x, ins));
+		}
+	}
+}
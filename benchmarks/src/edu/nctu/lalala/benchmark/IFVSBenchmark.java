@@ -0,0 +1,56 @@
+package edu.nctu.lalala.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.nctu.lalala.enums.Preprocessing_Algorithm;
+import edu.nctu.lalala.enums.ThresholdType;
+import edu.nctu.lalala.fvs.FVS_Filter;
+import edu.nctu.lalala.util.FVSHelper;
+import weka.core.Instances;
+import weka.filters.Filter;
+
+/**
+ * Every IFVS implementation end to end through {@link FVS_Filter}: FV table,
+ * statistics, selection and transformation (nothing is shared between
+ * invocations). The parameters are the defaults of the grid in Main.
+ *
+ * @author Gunarto Sindoro Njoo
+ * @version 1.0
+ * @category Benchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IFVSBenchmark {
+	@Param({ "FVS_Entropy", "FVS_Correlation", "FVS_Random", "FVS_Random_Entropy", "FVS_Probabilistic" })
+	public String algorithm;
+
+	@Benchmark
+	public Instances filter(BenchmarkData d) throws Exception {
+		FVSHelper.getInstance().setDebugStatus(false);
+		Preprocessing_Algorithm p_alg = Preprocessing_Algorithm.valueOf(algorithm);
+		FVS_Filter filter;
+		if (p_alg == Preprocessing_Algorithm.FVS_Entropy)
+			filter = new FVS_Filter(p_alg, ThresholdType.Mean, d.data.numInstances(), 0.0);
+		else if (p_alg == Preprocessing_Algorithm.FVS_Correlation)
+			filter = new FVS_Filter(p_alg, ThresholdType.Mean, d.data.numInstances(), 0.5);
+		else
+			filter = new FVS_Filter(p_alg, ThresholdType.Iteration, d.data.numInstances(), 0.5);
+		filter.setInputFormat(d.data);
+		return Filter.useFilter(d.data, filter);
+	}
+}
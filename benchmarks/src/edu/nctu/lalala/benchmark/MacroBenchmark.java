@@ -0,0 +1,374 @@
+package edu.nctu.lalala.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.json.JSONObject;
+
+import edu.nctu.lalala.enums.ClassifierType;
+import edu.nctu.lalala.enums.DiscretizationType;
+import edu.nctu.lalala.enums.Preprocessing_Algorithm;
+import edu.nctu.lalala.enums.ThresholdType;
+import edu.nctu.lalala.main.Main;
+import edu.nctu.lalala.main.Main.Experiment;
+import edu.nctu.lalala.util.FVSHelper;
+import edu.nctu.lalala.util.Instrumentation;
+import edu.nctu.lalala.util.ReportSink;
+import weka.core.Instances;
+
+/**
+ * End-to-end run of a fixed mini grid (config/config.benchmark.json) on the
+ * shipped datasets, driven through the steps of Main: load
+ * ({@link Main#loadDataset}), discretize or load the intermediate data
+ * ({@link Main#prepareDiscretized}), and every experiment of the grid
+ * ({@link Main#expandGrid}) with its classifiers ({@link Main#runExperiment}).
+ * The results are written by a report sink in a temporary folder. <br/>
+ * Every phase records wall time, CPU time (all threads of the process), peak
+ * heap and rows/s (median of the repeats), the accuracy of every cell is read
+ * from the reports. The result is written as JSON and compared with a
+ * baseline result: a phase (of at least 100 ms) is flagged if it is slower
+ * (or uses more heap) by more than the threshold, a cell is flagged if its
+ * accuracy changed or it is missing (the random selections are seeded per
+ * fold, thus every cell is compared). <br/>
+ * Arguments (run from the repository folder):
+ * <ul>
+ * <li>--output file: result (default benchmarks/macro-result.json)</li>
+ * <li>--baseline file: the result is stored as the baseline if the file
+ * doesn't exist (default benchmarks/macro-baseline.json)</li>
+ * <li>--threshold ratio: allowed slowdown (default 0.1)</li>
+ * <li>--repeat n: measured runs after one warm-up run (default 3)</li>
+ * <li>--folds n: cross-validation folds (default 5)</li>
+ * <li>--config file: grid in the config folder (default
+ * config.benchmark.json)</li>
+ * <li>the remaining arguments are datasets relative to the dataset
+ * folder</li>
+ * </ul>
+ * The exit code is 1 if anything is flagged.
+ *
+ * @author Gunarto Sindoro Njoo
+ * @version 1.0
+ * @category Benchmark
+ */
+public class MacroBenchmark {
+	private static final String[] DEFAULT_DATASETS = { "NCTU/353567051354901_2014_agg.arff",
+			"Opportunity/S1-ADL1.arff" };
+	private static final String[] PHASES = { "load", "discretize", "experiment" };
+	private static final double ACCURACY_TOLERANCE = 1e-9;
+	/**
+	 * Phases shorter than this are reported, but not flagged (timer noise)
+	 */
+	private static final double MIN_WALL_MS = 100;
+
+	private final List<String> datasets;
+	private final int folds;
+	private final List<ClassifierType> classifiers;
+	private final List<DiscretizationType> discretizations;
+	private final List<ThresholdType> thresholds;
+	private final List<Preprocessing_Algorithm> algorithms;
+
+	/**
+	 * Measurement of the phases of a single run
+	 */
+	private final Map<String, Phase> phases = new LinkedHashMap<>();
+	private final Map<String, Double> accuracies = new LinkedHashMap<>();
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private MacroBenchmark(List<String> datasets, int folds, String configFile) {
+		this.datasets = datasets;
+		this.folds = folds;
+		Map<String, List> config = FVSHelper.getInstance().initConfig(configFile);
+		Main.getInstance().setCrossValidation(folds);
+		this.classifiers = FVSHelper.getInstance().getClassifierType(config);
+		this.discretizations = FVSHelper.getInstance().getDiscretizationType(config);
+		this.thresholds = FVSHelper.getInstance().getThresholdType(config);
+		this.algorithms = FVSHelper.getInstance().getPreprocessing_Algorithm(config);
+	}
+
+	public static void main(String[] args) throws Exception {
+		String output = "benchmarks/macro-result.json";
+		String baseline = "benchmarks/macro-baseline.json";
+		String configFile = "config.benchmark.json";
+		double threshold = 0.1;
+		int repeat = 3;
+		int folds = 5;
+		List<String> datasets = new ArrayList<>();
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("--output"))
+				output = args[++i];
+			else if (args[i].equals("--baseline"))
+				baseline = args[++i];
+			else if (args[i].equals("--threshold"))
+				threshold = Double.parseDouble(args[++i]);
+			else if (args[i].equals("--repeat"))
+				repeat = Integer.parseInt(args[++i]);
+			else if (args[i].equals("--folds"))
+				folds = Integer.parseInt(args[++i]);
+			else if (args[i].equals("--config"))
+				configFile = args[++i];
+			else
+				datasets.add(args[i]);
+		}
+		if (datasets.isEmpty())
+			datasets.addAll(Arrays.asList(DEFAULT_DATASETS));
+
+		MacroBenchmark benchmark = new MacroBenchmark(datasets, folds, configFile);
+		System.out.println("Warm-up run");
+		benchmark.run();
+		List<Map<String, Phase>> runs = new ArrayList<>();
+		for (int r = 0; r < repeat; r++) {
+			System.out.println("Run " + (r + 1) + "/" + repeat);
+			runs.add(benchmark.run());
+		}
+		JSONObject result = benchmark.toJson(runs);
+		write(Paths.get(output), result);
+		System.out.println("Result: " + output);
+
+		Path baselinePath = Paths.get(baseline);
+		if (!Files.exists(baselinePath)) {
+			write(baselinePath, result);
+			System.out.println("Baseline stored: " + baseline);
+			return;
+		}
+		JSONObject base = new JSONObject(new String(Files.readAllBytes(baselinePath), StandardCharsets.UTF_8));
+		if (compare(base, result, threshold) > 0)
+			System.exit(1);
+	}
+
+	/**
+	 * Run the whole grid once
+	 *
+	 * @return measurement of every phase
+	 */
+	private Map<String, Phase> run() throws Exception {
+		phases.clear();
+		accuracies.clear();
+		for (String phase : PHASES)
+			phases.put(phase, new Phase());
+		Main main = Main.getInstance();
+		File reportFolder = Files.createTempDirectory("macro-report").toFile();
+		ReportSink reportSink = new ReportSink(reportFolder.getPath(), Main.REPORT_HEADER);
+		main.setReportSink(reportSink);
+		List<Experiment> experiments = main.expandGrid(algorithms, thresholds);
+		String folder = System.getProperty("fvs.dataset", "dataset");
+		for (String dataset : datasets) {
+			/* The same name as a file of the lookup folder of Main */
+			String datasetName = new File(dataset).getName();
+			long[] start = begin();
+			Instances data = main.loadDataset(folder + File.separator + dataset, datasetName,
+					Instrumentation.DISABLED);
+			if (data == null)
+				throw new IllegalStateException("Couldn't load the dataset " + dataset);
+			end("load", start, data.numInstances());
+			for (DiscretizationType dis_alg : discretizations) {
+				start = begin();
+				Instances discretized = main.prepareDiscretized(data, datasetName, dis_alg, Instrumentation.DISABLED);
+				if (discretized == null)
+					throw new IllegalStateException("Couldn't discretize the dataset " + dataset + ": " + dis_alg);
+				end("discretize", start, data.numInstances());
+				for (Experiment experiment : experiments) {
+					List<ClassifierType> types = main.getClassifiers(classifiers, experiment);
+					if (types.isEmpty())
+						continue;
+					start = begin();
+					main.runExperiment(types, datasetName, dis_alg, discretized, experiment, false,
+							Instrumentation.DISABLED);
+					/* Every row is trained on (folds - 1) times and tested once per classifier */
+					end("experiment", start, (long) data.numInstances() * folds * types.size());
+				}
+			}
+		}
+		reportSink.close();
+		readAccuracies(reportFolder);
+		return new LinkedHashMap<>(phases);
+	}
+
+	/**
+	 * Read the accuracy of every cell from the JSON lines of the reports, the
+	 * report folder is deleted
+	 */
+	private void readAccuracies(File reportFolder) throws IOException {
+		File[] files = reportFolder.listFiles();
+		if (files == null)
+			return;
+		for (File file : files) {
+			if (file.getName().endsWith(ReportSink.JSON_EXTENSION))
+				for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+					JSONObject json = new JSONObject(line);
+					if (!json.has("accuracy"))
+						continue;
+					String cell = String.join("|", json.getString("user"), json.getString("discretization"),
+							json.getString("method"), json.getString("threshold"),
+							String.valueOf(json.get("double_param")), json.getString("classifier"));
+					accuracies.put(cell, json.getDouble("accuracy"));
+				}
+			file.delete();
+		}
+		reportFolder.delete();
+	}
+
+	/**
+	 * Reset the peak heap usage
+	 *
+	 * @return start wall time and CPU time
+	 */
+	private static long[] begin() {
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+			if (pool.getType() == MemoryType.HEAP)
+				pool.resetPeakUsage();
+		return new long[] { System.nanoTime(), processCpuTime() };
+	}
+
+	private void end(String phase, long[] start, long rows) {
+		long wall = System.nanoTime() - start[0];
+		long cpu = processCpuTime() - start[1];
+		long peak = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+			if (pool.getType() == MemoryType.HEAP)
+				peak += pool.getPeakUsage().getUsed();
+		phases.get(phase).add(wall, cpu, rows, peak);
+	}
+
+	/**
+	 * CPU time of every thread of the process (nanoseconds), -1 if it is not
+	 * supported
+	 */
+	private static long processCpuTime() {
+		OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+		if (os instanceof com.sun.management.OperatingSystemMXBean)
+			return ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime();
+		return -1;
+	}
+
+	private JSONObject toJson(List<Map<String, Phase>> runs) {
+		JSONObject result = new JSONObject();
+		result.put("date", new Date().toString());
+		result.put("java", System.getProperty("java.version"));
+		result.put("processors", Runtime.getRuntime().availableProcessors());
+		result.put("max_heap_mb", Runtime.getRuntime().maxMemory() / 1048576);
+		result.put("datasets", datasets);
+		result.put("folds", folds);
+		result.put("repeat", runs.size());
+		JSONObject phaseResults = new JSONObject();
+		for (String phase : PHASES) {
+			double[] wall = new double[runs.size()];
+			double[] cpu = new double[runs.size()];
+			double[] heap = new double[runs.size()];
+			double[] throughput = new double[runs.size()];
+			for (int r = 0; r < runs.size(); r++) {
+				Phase p = runs.get(r).get(phase);
+				wall[r] = p.wall / 1e6;
+				cpu[r] = p.cpu / 1e6;
+				heap[r] = p.peakHeap / 1048576.0;
+				throughput[r] = p.wall == 0 ? 0 : p.rows / (p.wall / 1e9);
+			}
+			JSONObject metrics = new JSONObject();
+			metrics.put("wall_ms", median(wall));
+			metrics.put("cpu_ms", median(cpu));
+			metrics.put("peak_heap_mb", median(heap));
+			metrics.put("rows_per_s", median(throughput));
+			metrics.put("rows", runs.get(0).get(phase).rows);
+			phaseResults.put(phase, metrics);
+		}
+		result.put("phases", phaseResults);
+		result.put("accuracy", new JSONObject(accuracies));
+		return result;
+	}
+
+	/**
+	 * Print the comparison of every phase and cell
+	 *
+	 * @param threshold
+	 *            allowed relative slowdown
+	 * @return number of flagged phase metrics and cells
+	 */
+	private static int compare(JSONObject baseline, JSONObject result, double threshold) {
+		int flagged = 0;
+		System.out.println(String.format("%-12s%-14s%14s%14s%10s", "Phase", "Metric", "Baseline", "Current",
+				"Change"));
+		JSONObject basePhases = baseline.getJSONObject("phases");
+		JSONObject phases = result.getJSONObject("phases");
+		for (String phase : PHASES) {
+			if (!basePhases.has(phase))
+				continue;
+			boolean measurable = basePhases.getJSONObject(phase).getDouble("wall_ms") >= MIN_WALL_MS;
+			for (String metric : new String[] { "wall_ms", "cpu_ms", "peak_heap_mb", "rows_per_s" }) {
+				double base = basePhases.getJSONObject(phase).getDouble(metric);
+				double current = phases.getJSONObject(phase).getDouble(metric);
+				if (base <= 0 || current < 0)
+					continue;
+				double change = (current - base) / base;
+				/* Lower throughput is a regression */
+				double slowdown = metric.equals("rows_per_s") ? -change : change;
+				boolean regression = measurable && slowdown > threshold;
+				if (regression)
+					flagged++;
+				System.out.println(String.format("%-12s%-14s%14.2f%14.2f%+9.1f%%%s", phase, metric, base, current,
+						change * 100, regression ? "  REGRESSION" : ""));
+			}
+		}
+		JSONObject baseAccuracy = baseline.getJSONObject("accuracy");
+		JSONObject accuracy = result.getJSONObject("accuracy");
+		for (String cell : baseAccuracy.keySet()) {
+			if (!accuracy.has(cell)) {
+				flagged++;
+				System.out.println("Cell missing (failed): " + cell);
+			}
+		}
+		for (String cell : accuracy.keySet()) {
+			if (!baseAccuracy.has(cell))
+				continue;
+			double base = baseAccuracy.getDouble(cell);
+			double current = accuracy.getDouble(cell);
+			if (Math.abs(base - current) > ACCURACY_TOLERANCE) {
+				flagged++;
+				System.out.println(String.format("Accuracy changed: %s %.6f -> %.6f", cell, base, current));
+			}
+		}
+		System.out.println(flagged == 0 ? "No regression" : flagged + " regression(s) above " + threshold * 100 + "%");
+		return flagged;
+	}
+
+	private static double median(double[] values) {
+		double[] sorted = values.clone();
+		Arrays.sort(sorted);
+		int mid = sorted.length / 2;
+		return sorted.length % 2 == 1 ? sorted[mid] : (sorted[mid - 1] + sorted[mid]) / 2;
+	}
+
+	private static void write(Path path, JSONObject json) throws IOException {
+		if (path.toAbsolutePath().getParent() != null)
+			Files.createDirectories(path.toAbsolutePath().getParent());
+		Files.write(path, json.toString(2).getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Sum of a phase in a single run
+	 */
+	private static class Phase {
+		long wall;
+		long cpu;
+		long rows;
+		long peakHeap;
+
+		void add(long wall, long cpu, long rows, long peak) {
+			this.wall += wall;
+			this.cpu += cpu;
+			this.rows += rows;
+			this.peakHeap = Math.max(this.peakHeap, peak);
+		}
+	}
+}
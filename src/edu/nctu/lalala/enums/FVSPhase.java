@@ -0,0 +1,5 @@
+package edu.nctu.lalala.enums;
+
+public enum FVSPhase {
+	Fit, Selection, Transform
+}
@@ -1,26 +1,369 @@
 package edu.nctu.lalala.fvs;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
+import edu.nctu.lalala.util.QuantileSketch;
+import weka.core.Instance;
+import weka.core.Instances;
+
+/**
+ * Absolute Pearson correlation between every pair of features (class attribute
+ * excluded). <br/>
+ * The matrix is symmetric and its diagonal is 0, thus only the upper triangle
+ * is stored in a packed <b>double[]</b>. <br/>
+ * The data is copied once into centered column-major arrays, then the
+ * co-moments are computed tile by tile (a block of column pairs over a block
+ * of rows) in the fork-join pool. Missing values are handled pairwise: a row
+ * only contributes to a pair when both values are available.
+ *
+ * @author Gunarto Sindoro Njoo
+ * @version 1.0
+ * @category Data Structure
+ */
 public class CorrelationMatrix {
-	private List<Double> corrValues;
-	private Double[][] CM;
-	
-	public CorrelationMatrix()
-	{
-		corrValues = new ArrayList<Double>();
+	/**
+	 * Number of columns in a tile
+	 */
+	private static final int TILE_COLUMNS = 32;
+	/**
+	 * Number of rows in a tile (32 columns x 1024 rows x 8 bytes = 256KB)
+	 */
+	private static final int TILE_ROWS = 1024;
+
+	private final int size;
+	/**
+	 * Packed upper triangle (i &lt; j), row by row
+	 */
+	private final double[] values;
+	/**
+	 * Sorted non-zero correlation values
+	 */
+	private double[] corrValues;
+
+	public CorrelationMatrix(int size) {
+		this.size = size;
+		this.values = new double[size * (size - 1) / 2];
+	}
+
+	/**
+	 * Compute the correlation matrix of every feature in the data
+	 *
+	 * @param inst
+	 * @return
+	 */
+	public static CorrelationMatrix compute(Instances inst) {
+		return compute(inst, ForkJoinPool.commonPool());
+	}
+
+	public static CorrelationMatrix compute(Instances inst, ForkJoinPool pool) {
+		int numFeatures = Math.max(inst.numAttributes() - 1, 0);
+		CorrelationMatrix result = new CorrelationMatrix(numFeatures);
+		if (numFeatures > 1) {
+			Columns columns = new Columns(inst, numFeatures);
+			int numTiles = (numFeatures + TILE_COLUMNS - 1) / TILE_COLUMNS;
+			pool.invoke(new TileTask(result, columns, numTiles, 0, numTiles * (numTiles + 1) / 2));
+		}
+		return result;
+	}
+
+	/**
+	 * Write the matrix in binary (see {@link #read(DataInput)})
+	 */
+	public void write(DataOutput out) throws IOException {
+		out.writeInt(size);
+		for (double v : values)
+			out.writeDouble(v);
+	}
+
+	/**
+	 * Read the matrix written by {@link #write(DataOutput)}
+	 */
+	public static CorrelationMatrix read(DataInput in) throws IOException {
+		CorrelationMatrix result = new CorrelationMatrix(in.readInt());
+		for (int k = 0; k < result.values.length; k++)
+			result.values[k] = in.readDouble();
+		return result;
+	}
+
+	/**
+	 * Index of (i, j) in the packed upper triangle, i &lt; j
+	 */
+	private int offset(int i, int j) {
+		return i * (2 * size - i - 1) / 2 + (j - i - 1);
+	}
+
+	/**
+	 * Absolute correlation between feature i and j
+	 */
+	public double get(int i, int j) {
+		if (i == j)
+			return 0;
+		if (i > j)
+			return values[offset(j, i)];
+		return values[offset(i, j)];
 	}
 
-	public List<Double> getCorrValues() {
+	public void set(int i, int j, double value) {
+		if (i == j)
+			return;
+		if (i > j)
+			values[offset(j, i)] = value;
+		else
+			values[offset(i, j)] = value;
+	}
+
+	/**
+	 * Number of features
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Sorted (ascending) non-zero correlation values of the upper triangle
+	 */
+	public synchronized double[] getCorrValues() {
+		if (corrValues == null)
+			collectValues();
 		return corrValues;
 	}
 
-	public Double[][] getCM() {
-		return CM;
+	/**
+	 * Stream the non-zero correlation values into a quantile sketch, without
+	 * collecting them
+	 *
+	 * @param k
+	 *            accuracy of the sketch
+	 * @return
+	 */
+	public QuantileSketch sketchValues(int k) {
+		QuantileSketch sketch = new QuantileSketch(k);
+		for (double v : values)
+			if (v != 0)
+				sketch.update(v);
+		return sketch;
+	}
+
+	private void collectValues() {
+		double[] result = new double[values.length];
+		int n = 0;
+		for (double v : values)
+			if (v != 0)
+				result[n++] = v;
+		result = Arrays.copyOf(result, n);
+		Arrays.sort(result);
+		corrValues = result;
+	}
+
+	/**
+	 * Group the features into connected components of the correlation graph
+	 * (an edge between two features if their correlation is at least the
+	 * threshold). Uncorrelated features are a group by themselves.
+	 *
+	 * @param threshold
+	 * @return groups of feature indices, ordered by their smallest feature
+	 */
+	public int[][] getCorrelatedGroups(double threshold) {
+		/* Union-find */
+		int[] parent = new int[size];
+		for (int i = 0; i < size; i++)
+			parent[i] = i;
+		int k = 0;
+		for (int i = 0; i < size; i++) {
+			for (int j = i + 1; j < size; j++, k++) {
+				if (values[k] >= threshold) {
+					int a = find(parent, i);
+					int b = find(parent, j);
+					if (a != b)
+						parent[Math.max(a, b)] = Math.min(a, b);
+				}
+			}
+		}
+		/* The root is the smallest feature of the group */
+		int[] groupSize = new int[size];
+		for (int i = 0; i < size; i++)
+			groupSize[find(parent, i)]++;
+		int[][] groups = new int[size][];
+		int numGroups = 0;
+		int[] groupIndex = new int[size];
+		int[] fill = new int[size];
+		for (int i = 0; i < size; i++) {
+			int root = find(parent, i);
+			if (root == i) {
+				groupIndex[i] = numGroups;
+				groups[numGroups++] = new int[groupSize[i]];
+			}
+			int g = groupIndex[root];
+			groups[g][fill[g]++] = i;
+		}
+		return Arrays.copyOf(groups, numGroups);
 	}
 
-	public void setCM(Double[][] cM) {
-		CM = cM;
+	private static int find(int[] parent, int i) {
+		while (parent[i] != i) {
+			parent[i] = parent[parent[i]];
+			i = parent[i];
+		}
+		return i;
+	}
+
+	/**
+	 * Centered column-major copy of the data. Missing values are stored as 0
+	 * together with a 0/1 mask, thus the pairwise sums need no branch.
+	 */
+	private static class Columns {
+		final int numRows;
+		final double[][] centered;
+		/**
+		 * 1 if the value is available, null if the column has no missing
+		 * value
+		 */
+		final double[][] mask;
+		/**
+		 * Sum of squares of the whole column
+		 */
+		final double[] sumSquares;
+
+		Columns(Instances inst, int numFeatures) {
+			numRows = inst.numInstances();
+			centered = new double[numFeatures][numRows];
+			mask = new double[numFeatures][];
+			sumSquares = new double[numFeatures];
+			double[] average = new double[numFeatures];
+			for (int i = 0; i < numRows; i++) {
+				Instance ins = inst.instance(i);
+				for (int x = 0; x < numFeatures; x++) {
+					double v = ins.value(x);
+					centered[x][i] = v;
+					if (Double.isNaN(v)) {
+						if (mask[x] == null) {
+							mask[x] = new double[numRows];
+							Arrays.fill(mask[x], 0, i, 1);
+						}
+					} else {
+						average[x] += v;
+						if (mask[x] != null)
+							mask[x][i] = 1;
+					}
+				}
+			}
+			for (int x = 0; x < numFeatures; x++) {
+				/* Average over all rows (missing included), same as FVSHelper.calculateAverage */
+				average[x] /= numRows;
+				double[] c = centered[x];
+				double sum = 0;
+				for (int i = 0; i < numRows; i++) {
+					if (Double.isNaN(c[i])) {
+						c[i] = 0;
+					} else {
+						c[i] -= average[x];
+						sum += c[i] * c[i];
+					}
+				}
+				sumSquares[x] = sum;
+			}
+		}
+	}
+
+	/**
+	 * Compute a range of tiles (a pair of column blocks, upper triangle only)
+	 */
+	@SuppressWarnings("serial")
+	private static class TileTask extends RecursiveAction {
+		private final CorrelationMatrix result;
+		private final Columns columns;
+		private final int numTiles;
+		private final int from;
+		private final int to;
+
+		TileTask(CorrelationMatrix result, Columns columns, int numTiles, int from, int to) {
+			this.result = result;
+			this.columns = columns;
+			this.numTiles = numTiles;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > 1) {
+				int mid = (from + to) >>> 1;
+				invokeAll(new TileTask(result, columns, numTiles, from, mid),
+						new TileTask(result, columns, numTiles, mid, to));
+				return;
+			}
+			/* Map the task index into tile (ti, tj), ti <= tj */
+			int ti = 0;
+			int k = from;
+			while (k >= numTiles - ti) {
+				k -= numTiles - ti;
+				ti++;
+			}
+			computeTile(ti, ti + k);
+		}
+
+		private void computeTile(int ti, int tj) {
+			int numFeatures = result.size;
+			int iStart = ti * TILE_COLUMNS;
+			int iEnd = Math.min(iStart + TILE_COLUMNS, numFeatures);
+			int jStart = tj * TILE_COLUMNS;
+			int jEnd = Math.min(jStart + TILE_COLUMNS, numFeatures);
+			int width = jEnd - jStart;
+			int pairs = (iEnd - iStart) * width;
+			/* Co-moment and pairwise sum of squares of each pair */
+			double[] sxy = new double[pairs];
+			double[] sxx = new double[pairs];
+			double[] syy = new double[pairs];
+			double[][] c = columns.centered;
+			double[][] m = columns.mask;
+			for (int rStart = 0; rStart < columns.numRows; rStart += TILE_ROWS) {
+				int rEnd = Math.min(rStart + TILE_ROWS, columns.numRows);
+				for (int i = iStart; i < iEnd; i++) {
+					double[] x = c[i];
+					double[] mx = m[i];
+					int p = (i - iStart) * width;
+					for (int j = Math.max(jStart, i + 1); j < jEnd; j++) {
+						double[] y = c[j];
+						double[] my = m[j];
+						int q = p + j - jStart;
+						double s = 0;
+						for (int r = rStart; r < rEnd; r++)
+							s += x[r] * y[r];
+						sxy[q] += s;
+						if (my != null) {
+							s = 0;
+							for (int r = rStart; r < rEnd; r++)
+								s += x[r] * x[r] * my[r];
+							sxx[q] += s;
+						}
+						if (mx != null) {
+							s = 0;
+							for (int r = rStart; r < rEnd; r++)
+								s += y[r] * y[r] * mx[r];
+							syy[q] += s;
+						}
+					}
+				}
+			}
+			for (int i = iStart; i < iEnd; i++) {
+				int p = (i - iStart) * width;
+				for (int j = Math.max(jStart, i + 1); j < jEnd; j++) {
+					int q = p + j - jStart;
+					double xx = m[j] != null ? sxx[q] : columns.sumSquares[i];
+					double yy = m[i] != null ? syy[q] : columns.sumSquares[j];
+					double bot = Math.sqrt(xx) * Math.sqrt(yy);
+					double corr = 0;
+					if (bot != 0)
+						corr = sxy[q] / bot;
+					/* Normalize the value if correlation is a negative value */
+					result.values[result.offset(i, j)] = Math.abs(corr);
+				}
+			}
+		}
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,205 @@
+package edu.nctu.lalala.fvs;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import weka.core.Attribute;
+import weka.core.Instances;
+
+/**
+ * Interval bounds of every nominal value, parsed once from the bin labels
+ * produced by Weka Discretize (e.g. <b>'(2.48-6.31]'</b>). <br/>
+ * The bounds are cached per attribute, thus every fold and every parameter
+ * sharing the same header never parses the labels again. A single bin label
+ * (<b>'All'</b>) covers every value, other labels which are not an interval
+ * have NaN bounds.
+ *
+ * @author Gunarto Sindoro Njoo
+ * @version 1.0
+ * @category Data Structure
+ */
+public class CutPointTable {
+	private static final Map<Attribute, double[][]> CACHE = Collections
+			.synchronizedMap(new WeakHashMap<Attribute, double[][]>());
+
+	/**
+	 * lower[attribute][nominal index], null for non-nominal attribute
+	 */
+	private final double[][] lower;
+	private final double[][] upper;
+
+	private CutPointTable(int numAttributes) {
+		this.lower = new double[numAttributes][];
+		this.upper = new double[numAttributes][];
+	}
+
+	/**
+	 * Cut point table of the header, labels of each attribute are parsed only
+	 * once
+	 *
+	 * @param header
+	 * @return
+	 */
+	public static CutPointTable forHeader(Instances header) {
+		CutPointTable table = new CutPointTable(header.numAttributes());
+		for (int x = 0; x < header.numAttributes(); x++) {
+			Attribute att = header.attribute(x);
+			if (!att.isNominal())
+				continue;
+			double[][] bounds = CACHE.get(att);
+			if (bounds == null) {
+				bounds = parseAttribute(att);
+				CACHE.put(att, bounds);
+			}
+			table.lower[x] = bounds[0];
+			table.upper[x] = bounds[1];
+		}
+		return table;
+	}
+
+	private static double[][] parseAttribute(Attribute att) {
+		double[][] bounds = new double[2][att.numValues()];
+		double[] interval = new double[2];
+		for (int i = 0; i < att.numValues(); i++) {
+			if (!parseInterval(att.value(i), interval) && att.numValues() == 1) {
+				/* Single bin ('All') covers every value */
+				interval[0] = Double.NEGATIVE_INFINITY;
+				interval[1] = Double.POSITIVE_INFINITY;
+			}
+			bounds[0][i] = interval[0];
+			bounds[1][i] = interval[1];
+		}
+		return bounds;
+	}
+
+	/**
+	 * Parse bin label (e.g. <b>'(-inf--2.5]'</b>, <b>(2.48-6.31]</b>,
+	 * <b>(6.31-inf)</b>) or a single number into [min, max] without regular
+	 * expression. <br/>
+	 * Unparseable label results in [NaN, NaN].
+	 *
+	 * @param label
+	 * @param result
+	 *            array of size 2 to hold the min and max
+	 * @return true if the label could be parsed
+	 */
+	public static boolean parseInterval(String label, double[] result) {
+		result[0] = Double.NaN;
+		result[1] = Double.NaN;
+		if (label == null)
+			return false;
+		int start = 0;
+		int end = label.length();
+		/* Strip whitespace and quotes */
+		while (start < end && isTrimmed(label.charAt(start)))
+			start++;
+		while (end > start && isTrimmed(label.charAt(end - 1)))
+			end--;
+		if (start >= end)
+			return false;
+		boolean bracket = label.charAt(start) == '(' || label.charAt(start) == '[';
+		if (bracket) {
+			char last = label.charAt(end - 1);
+			if (last != ')' && last != ']')
+				return false;
+			start++;
+			end--;
+		}
+		int sep = scanNumber(label, start, end);
+		if (sep < 0)
+			return false;
+		double min = parseNumber(label, start, sep);
+		if (sep == end) {
+			/* Single number */
+			if (bracket)
+				return false;
+			result[0] = min;
+			result[1] = min;
+			return true;
+		}
+		if (label.charAt(sep) != '-')
+			return false;
+		int stop = scanNumber(label, sep + 1, end);
+		if (stop != end)
+			return false;
+		result[0] = min;
+		result[1] = parseNumber(label, sep + 1, end);
+		return true;
+	}
+
+	private static boolean isTrimmed(char c) {
+		return c == '\'' || c == '"' || Character.isWhitespace(c);
+	}
+
+	/**
+	 * Scan a number token ([-]inf or [-]digits[.digits][e[+-]digits])
+	 *
+	 * @return end index of the token, or -1 if there is no number
+	 */
+	private static int scanNumber(String s, int pos, int end) {
+		if (pos < end && s.charAt(pos) == '-')
+			pos++;
+		if (s.startsWith("inf", pos) && pos + 3 <= end)
+			return pos + 3;
+		int digits = 0;
+		while (pos < end && (Character.isDigit(s.charAt(pos)) || s.charAt(pos) == '.')) {
+			pos++;
+			digits++;
+		}
+		if (digits == 0)
+			return -1;
+		if (pos < end && (s.charAt(pos) == 'e' || s.charAt(pos) == 'E')) {
+			int exp = pos + 1;
+			if (exp < end && (s.charAt(exp) == '-' || s.charAt(exp) == '+'))
+				exp++;
+			int expStart = exp;
+			while (exp < end && Character.isDigit(s.charAt(exp)))
+				exp++;
+			if (exp > expStart)
+				pos = exp;
+		}
+		return pos;
+	}
+
+	private static double parseNumber(String s, int start, int end) {
+		String token = s.substring(start, end);
+		if (token.equals("-inf"))
+			return Double.NEGATIVE_INFINITY;
+		if (token.equals("inf"))
+			return Double.POSITIVE_INFINITY;
+		return Double.parseDouble(token);
+	}
+
+	public boolean hasCutPoints(int attribute) {
+		return lower[attribute] != null;
+	}
+
+	public double getLower(int attribute, int index) {
+		return lower[attribute][index];
+	}
+
+	public double getUpper(int attribute, int index) {
+		return upper[attribute][index];
+	}
+
+	/**
+	 * Interval id (nominal index) of a raw value, bins are (lower, upper]
+	 *
+	 * @param attribute
+	 * @param value
+	 * @return nominal index, or -1 if the value is not covered
+	 */
+	public int intervalOf(int attribute, double value) {
+		double[] u = upper[attribute];
+		if (u == null || Double.isNaN(value))
+			return -1;
+		int idx = Arrays.binarySearch(u, value);
+		if (idx < 0)
+			idx = -idx - 1;
+		if (idx >= u.length || !(lower[attribute][idx] <= value))
+			return -1;
+		return idx;
+	}
+}
@@ -0,0 +1,108 @@
+package edu.nctu.lalala.fvs;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import edu.nctu.lalala.util.MathHelper;
+
+/**
+ * FV ids grouped by feature (compressed sparse row). <br/>
+ * Selecting the lowest scored FVs (ties broken by id) of a group of features
+ * is a linear-time partial selection over the buckets of the group, thus every
+ * FV is visited a bounded number of times per group and no bucket is fully
+ * sorted.
+ *
+ * @author Gunarto Sindoro Njoo
+ * @version 1.0
+ * @category Data Structure
+ */
+public class FVBuckets {
+	private final double[] scores;
+	/**
+	 * Bucket of feature x is ids[start[x]] .. ids[start[x + 1] - 1]
+	 */
+	private final int[] start;
+	private final int[] ids;
+
+	private FVBuckets(double[] scores, int[] start, int[] ids) {
+		this.scores = scores;
+		this.start = start;
+		this.ids = ids;
+	}
+
+	/**
+	 * Group the FVs of the table by feature
+	 *
+	 * @param table
+	 * @param scores
+	 *            score of every FV id (e.g. entropy)
+	 * @return
+	 */
+	public static FVBuckets build(FVTable table, double[] scores) {
+		int numFeatures = table.numFeatures();
+		int[] start = new int[numFeatures + 1];
+		for (int id = 0; id < table.size(); id++)
+			start[table.getFeature(id) + 1]++;
+		for (int x = 0; x < numFeatures; x++)
+			start[x + 1] += start[x];
+		int[] fill = Arrays.copyOf(start, numFeatures);
+		int[] ids = new int[table.size()];
+		for (int id = 0; id < table.size(); id++)
+			ids[fill[table.getFeature(id)]++] = id;
+		return new FVBuckets(scores, start, ids);
+	}
+
+	public int numFeatures() {
+		return start.length - 1;
+	}
+
+	/**
+	 * Number of FVs of the feature
+	 */
+	public int size(int feature) {
+		return start[feature + 1] - start[feature];
+	}
+
+	/**
+	 * The <b>i</b>-th FV id of the feature (ordered by id)
+	 */
+	public int get(int feature, int i) {
+		return ids[start[feature] + i];
+	}
+
+	/**
+	 * Select the lowest scored FVs of a group of features
+	 *
+	 * @param features
+	 *            group of features
+	 * @param limit
+	 *            number of FVs to select
+	 * @param result
+	 *            selected FV ids are set here
+	 */
+	public void selectLowest(int[] features, int limit, BitSet result) {
+		int size = size(features);
+		if (limit <= 0 || size == 0)
+			return;
+		int[] group = new int[size];
+		int n = 0;
+		for (int f : features) {
+			System.arraycopy(ids, start[f], group, n, size(f));
+			n += size(f);
+		}
+		limit = Math.min(limit, size);
+		MathHelper.getInstance().selectLowest(group, size, scores, limit);
+		for (int i = 0; i < limit; i++)
+			result.set(group[i]);
+	}
+
+	/**
+	 * Number of FVs of a group of features
+	 */
+	public int size(int[] features) {
+		int size = 0;
+		for (int f : features)
+			size += size(f);
+		return size;
+	}
+}
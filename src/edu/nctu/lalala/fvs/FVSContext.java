@@ -0,0 +1,347 @@
+package edu.nctu.lalala.fvs;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import edu.nctu.lalala.util.FVSHelper;
+import edu.nctu.lalala.util.ResourceUsage;
+import weka.core.Instances;
+
+/**
+ * Fitted statistics of a training data: the FV table, the FV statistics and
+ * the correlation matrix. Each of them is computed once (on the first request)
+ * and then shared by every FVS algorithm running on the same data, thus a
+ * parameter sweep only repeats the selection and the transformation. <br/>
+ * The contexts of cross-validation folds are cached per source data (see
+ * {@link #forFold(Instances, int, int, int)}), the cache is released together
+ * with the source data. If the statistics cache is enabled, the fitted
+ * statistics of the folds are also kept on the disk (see
+ * {@link FVStatisticsCache}). <br/>
+ * The build cost of every statistic is recorded, a filter uses the context
+ * through {@link #track()} to be charged with the build cost of the
+ * statistics it used instead of the time it spent in the context (which is
+ * either the build or the wait for another filter).
+ *
+ * @author Gunarto Sindoro Njoo
+ * @version 1.0
+ * @category Data Object
+ */
+public class FVSContext {
+	/**
+	 * Source data --> (folds:fold:seed) --> context, the source data is
+	 * weakly referenced
+	 */
+	private static final Map<Instances, Map<String, FVSContext>> FOLD_CACHE = new WeakHashMap<>();
+	/**
+	 * Content hash of the source data (for the persistent cache)
+	 */
+	private static final Map<Instances, String> SOURCE_HASH = new WeakHashMap<>();
+
+	private int numInstances = -1;
+	private int numAttributes = -1;
+	private FVTable table;
+	private FVStatistics statistics;
+	private CorrelationMatrix correlationMatrix;
+	/**
+	 * Build cost of the table, the statistics and the correlation matrix
+	 */
+	private ResourceUsage tableUsage;
+	private ResourceUsage statisticsUsage;
+	private ResourceUsage correlationUsage;
+	/**
+	 * Components loaded from the persistent cache
+	 */
+	private boolean tableCached;
+	private boolean statisticsCached;
+	private boolean correlationCached;
+	/**
+	 * Persistent cache, null if it is not used
+	 */
+	private final FVStatisticsCache cache;
+
+	public FVSContext() {
+		this(null);
+	}
+
+	public FVSContext(FVStatisticsCache cache) {
+		this.cache = cache;
+	}
+
+	/**
+	 * Context of the training data of a cross-validation fold
+	 *
+	 * @param source
+	 *            data before the split
+	 * @param folds
+	 *            number of folds
+	 * @param fold
+	 *            index of the fold
+	 * @param seed
+	 *            seed of the split
+	 * @return
+	 */
+	public static FVSContext forFold(Instances source, int folds, int fold, int seed) {
+		synchronized (FOLD_CACHE) {
+			Map<String, FVSContext> contexts = FOLD_CACHE.get(source);
+			if (contexts == null) {
+				contexts = new HashMap<>();
+				FOLD_CACHE.put(source, contexts);
+			}
+			String key = folds + ":" + fold + ":" + seed;
+			FVSContext context = contexts.get(key);
+			if (context == null) {
+				FVStatisticsCache cache = null;
+				if (FVSHelper.getInstance().getStatisticsCache()) {
+					String hash = SOURCE_HASH.get(source);
+					if (hash == null) {
+						hash = FVStatisticsCache.createKey(source);
+						SOURCE_HASH.put(source, hash);
+					}
+					/* The training data also depends on the noise */
+					String noise = FVSHelper.getInstance().getAddNoise()
+							? "noise" + FVSHelper.getInstance().getNoiseLevel() : "clean";
+					cache = new FVStatisticsCache(FVSHelper.getInstance().getIntermediateFolder(),
+							String.format("fold_%s_%d_%d_%d_%s", hash, folds, fold, seed, noise));
+				}
+				context = new FVSContext(cache);
+				contexts.put(key, context);
+			}
+			return context;
+		}
+	}
+
+	/**
+	 * Check whether the context could be used for the data (the same size as
+	 * the data of the first request). The content is not hashed here: a fold
+	 * context is picked by its source data and fold in
+	 * {@link #forFold(Instances, int, int, int)}, thus the data is a copy of
+	 * that fold, and hashing it would cost more than the extraction.
+	 */
+	public synchronized boolean matches(Instances inst) {
+		if (numInstances < 0)
+			return true;
+		return numInstances == inst.numInstances() && numAttributes == inst.numAttributes();
+	}
+
+	private void bind(Instances inst) {
+		if (numInstances < 0) {
+			numInstances = inst.numInstances();
+			numAttributes = inst.numAttributes();
+		}
+	}
+
+	/**
+	 * View of the context for a single filter (see {@link Tracked})
+	 */
+	public Tracked track() {
+		return new Tracked(this);
+	}
+
+	/**
+	 * FV table of the data
+	 */
+	public synchronized FVTable getTable(Instances inst) {
+		if (table == null && !hasTable(inst)) {
+			bind(inst);
+			ResourceUsage usage = ResourceUsage.start();
+			table = FVSHelper.getInstance().extractValuesFromData(inst);
+			if (cache != null)
+				cache.saveTable(table);
+			tableUsage = usage.stop();
+		}
+		return table;
+	}
+
+	/**
+	 * Check whether the table is available without extracting the data, the
+	 * table is loaded here if it is in the persistent cache
+	 */
+	public synchronized boolean hasTable(Instances inst) {
+		if (table == null && cache != null && matches(inst)) {
+			ResourceUsage usage = ResourceUsage.start();
+			table = cache.loadTable(inst);
+			if (table != null) {
+				bind(inst);
+				tableUsage = usage.stop();
+				tableCached = true;
+			}
+		}
+		return table != null;
+	}
+
+	/**
+	 * Use a table which is already built for the data (e.g. derived by
+	 * {@link FVSubsets}), ignored if the table is already available
+	 *
+	 * @param usage
+	 *            build cost of the table
+	 */
+	public synchronized void setTable(Instances inst, FVTable table, ResourceUsage usage) {
+		if (this.table == null && matches(inst)) {
+			bind(inst);
+			this.table = table;
+			this.tableUsage = usage;
+			if (cache != null)
+				cache.saveTable(table);
+		}
+	}
+
+	/**
+	 * Frequency, entropy, information gain, etc. of every FV in the table
+	 */
+	public synchronized FVStatistics getStatistics(Instances inst) {
+		if (statistics == null) {
+			FVTable table = getTable(inst);
+			ResourceUsage usage = ResourceUsage.start();
+			if (cache != null) {
+				statistics = cache.loadStatistics();
+				if (statistics != null && statistics.size() != table.size())
+					statistics = null;
+				statisticsCached = statistics != null;
+			}
+			if (statistics == null) {
+				statistics = FVSHelper.getInstance().generateStatistics(table);
+				if (cache != null)
+					cache.saveStatistics(statistics);
+			}
+			statisticsUsage = usage.stop();
+		}
+		return statistics;
+	}
+
+	/**
+	 * Correlation between every pair of features
+	 */
+	public synchronized CorrelationMatrix getCorrelationMatrix(Instances inst) {
+		if (correlationMatrix == null) {
+			bind(inst);
+			ResourceUsage usage = ResourceUsage.start();
+			if (cache != null) {
+				correlationMatrix = cache.loadCorrelationMatrix();
+				if (correlationMatrix != null && correlationMatrix.size() != inst.numAttributes() - 1)
+					correlationMatrix = null;
+				correlationCached = correlationMatrix != null;
+			}
+			if (correlationMatrix == null) {
+				correlationMatrix = FVSHelper.getInstance().generateCorrelationMatrix(inst);
+				if (cache != null)
+					cache.saveCorrelationMatrix(correlationMatrix);
+			}
+			correlationUsage = usage.stop();
+		}
+		return correlationMatrix;
+	}
+
+	/**
+	 * Build cost of the components
+	 */
+	private synchronized ResourceUsage getBuildUsage(boolean table, boolean statistics, boolean correlation) {
+		ResourceUsage usage = new ResourceUsage();
+		if (table)
+			usage.add(tableUsage);
+		if (statistics)
+			usage.add(statisticsUsage);
+		if (correlation)
+			usage.add(correlationUsage);
+		return usage;
+	}
+
+	/**
+	 * Check whether any of the components was loaded from the persistent cache
+	 */
+	private synchronized boolean isCached(boolean table, boolean statistics, boolean correlation) {
+		return (table && tableCached) || (statistics && statisticsCached) || (correlation && correlationCached);
+	}
+
+	/**
+	 * Context of a single filter, the components are shared with the
+	 * underlying context. The resources spent in the calls (the build or the
+	 * wait for another filter) and the build cost of the components used are
+	 * recorded, must be used by a single thread.
+	 */
+	public static class Tracked extends FVSContext {
+		private final FVSContext shared;
+		private final ResourceUsage callUsage = new ResourceUsage();
+		private boolean usesTable;
+		private boolean usesStatistics;
+		private boolean usesCorrelation;
+
+		private Tracked(FVSContext shared) {
+			this.shared = shared;
+		}
+
+		@Override
+		public boolean matches(Instances inst) {
+			return shared.matches(inst);
+		}
+
+		@Override
+		public Tracked track() {
+			return shared.track();
+		}
+
+		@Override
+		public FVTable getTable(Instances inst) {
+			ResourceUsage usage = ResourceUsage.start();
+			FVTable table = shared.getTable(inst);
+			callUsage.add(usage.stop());
+			usesTable = true;
+			return table;
+		}
+
+		@Override
+		public boolean hasTable(Instances inst) {
+			ResourceUsage usage = ResourceUsage.start();
+			boolean hasTable = shared.hasTable(inst);
+			callUsage.add(usage.stop());
+			return hasTable;
+		}
+
+		@Override
+		public void setTable(Instances inst, FVTable table, ResourceUsage usage) {
+			shared.setTable(inst, table, usage);
+		}
+
+		@Override
+		public FVStatistics getStatistics(Instances inst) {
+			ResourceUsage usage = ResourceUsage.start();
+			FVStatistics statistics = shared.getStatistics(inst);
+			callUsage.add(usage.stop());
+			usesTable = true;
+			usesStatistics = true;
+			return statistics;
+		}
+
+		@Override
+		public CorrelationMatrix getCorrelationMatrix(Instances inst) {
+			ResourceUsage usage = ResourceUsage.start();
+			CorrelationMatrix correlationMatrix = shared.getCorrelationMatrix(inst);
+			callUsage.add(usage.stop());
+			usesCorrelation = true;
+			return correlationMatrix;
+		}
+
+		/**
+		 * Resources spent in the calls of the context
+		 */
+		public ResourceUsage getCallUsage() {
+			return callUsage;
+		}
+
+		/**
+		 * Build cost of the components used, whichever filter built them
+		 */
+		public ResourceUsage getBuildUsage() {
+			return shared.getBuildUsage(usesTable, usesStatistics, usesCorrelation);
+		}
+
+		/**
+		 * Check whether any of the components used was loaded from the
+		 * persistent cache (its build cost is the loading only)
+		 */
+		public boolean isCacheHit() {
+			return shared.isCached(usesTable, usesStatistics, usesCorrelation);
+		}
+	}
+}
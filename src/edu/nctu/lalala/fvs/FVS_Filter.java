@@ -1,18 +1,11 @@
 package edu.nctu.lalala.fvs;
 
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.Iterator;
+import java.util.BitSet;
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Random;
-import java.util.Set;
-
-import com.google.common.collect.Multimap;
 
+import edu.nctu.lalala.enums.FVSPhase;
 import edu.nctu.lalala.enums.Preprocessing_Algorithm;
 import edu.nctu.lalala.enums.ThresholdType;
 import edu.nctu.lalala.fvs.algorithm.CorrelationFVS;
@@ -21,7 +14,10 @@ import edu.nctu.lalala.fvs.algorithm.ProbabilisticFVS;
 import edu.nctu.lalala.fvs.algorithm.RandomEntropyFVS;
 import edu.nctu.lalala.fvs.algorithm.RandomFVS;
 import edu.nctu.lalala.fvs.interfaces.IFVS;
+import edu.nctu.lalala.util.FVSHelper;
+import edu.nctu.lalala.util.Instrumentation;
 import edu.nctu.lalala.util.MathHelper;
+import edu.nctu.lalala.util.ResourceUsage;
 import weka.core.Capabilities;
 import weka.core.Capabilities.Capability;
 import weka.core.DenseInstance;
@@ -42,7 +38,21 @@ public class FVS_Filter extends Filter {
 	Double[] params;
 	private int numInstances;
 	ThresholdType thr_alg = ThresholdType.Iteration;
-	private IFVS fvs = null;
+	private transient IFVS fvs = null;
+	private transient FVSContext context = null;
+	private transient ResourceUsage[] phaseUsage = null;
+	private transient ResourceUsage contextCallUsage = null;
+	private transient ResourceUsage contextBuildUsage = null;
+	private transient boolean contextCacheHit = false;
+	private transient Instrumentation instrumentation = null;
+	/**
+	 * Random generator of the FVS algorithms (unseeded if it is not set)
+	 */
+	private transient Random random = null;
+	/**
+	 * Selected FVs of the fitted batch, built on the first streamed instance
+	 */
+	private transient IntervalIndex[] streamIndex = null;
 	// Map<FV, Integer> fv_list = new HashMap<>();
 
 	public FVS_Filter(int numInstances, Double... params) {
@@ -82,14 +92,129 @@ public class FVS_Filter extends Filter {
 		return result;
 	}
 
+	/**
+	 * After the first batch the FV selection is fitted, then every instance is
+	 * transformed immediately (see {@link #batchFinished()}), thus test data or
+	 * live data could be filtered one instance at a time
+	 */
+	public boolean input(Instance instance) throws Exception {
+		if (!isFirstBatchDone() || getFvs() == null)
+			return super.input(instance);
+		if (m_NewBatch) {
+			resetQueue();
+			m_NewBatch = false;
+		}
+		push(transform(instance));
+		return true;
+	}
+
+	/**
+	 * Apply the fitted FV selection to an instance: values of the unselected
+	 * FVs (or values which are not in the training data) are changed into
+	 * missing. The removal of instances (RandomEntropyFVS and
+	 * ProbabilisticFVS) only applies to the training batch.
+	 */
+	public Instance transform(Instance instance) {
+		if (streamIndex == null)
+			streamIndex = IntervalIndex.build(getFvs().getTable(), getFvs().getSelected());
+		return FVSHelper.getInstance().getFVSFilteredInstance(getOutputFormat(), instance, streamIndex, null, false,
+				false, null);
+	}
+
+	/**
+	 * Compact copy of the fitted FV selection which could be written into a
+	 * file and applied without this filter (the keep probability is exported
+	 * for ProbabilisticFVS)
+	 *
+	 * @return null if the selection has not been fitted
+	 */
+	public FVSelection getSelection() {
+		if (getFvs() == null || getFvs().getTable() == null)
+			return null;
+		FVTable table = getFvs().getTable();
+		BitSet selected = getFvs().getSelected();
+		Instances header = table.getHeader();
+		CutPointTable cutPoints = table.getCutPoints();
+		int numFeatures = table.numFeatures();
+		FVSelection selection = new FVSelection(numFeatures);
+		/* Value ids of the numeric features are the ranks of their values */
+		double[][] values = new double[numFeatures][];
+		int[] counts = new int[numFeatures];
+		for (int id = 0; id < table.size(); id++)
+			if (!table.isNominal(table.getFeature(id)) && !Double.isNaN(table.getValue(id)))
+				counts[table.getFeature(id)]++;
+		for (int x = 0; x < numFeatures; x++) {
+			if (table.isNominal(x)) {
+				int numValues = header.attribute(x).numValues();
+				double[] lower = null, upper = null;
+				if (cutPoints.hasCutPoints(x)) {
+					lower = new double[numValues];
+					upper = new double[numValues];
+					for (int v = 0; v < numValues; v++) {
+						lower[v] = cutPoints.getLower(x, v);
+						upper[v] = cutPoints.getUpper(x, v);
+						/* Labels which are not intervals */
+						if (Double.isNaN(upper[v])) {
+							lower = upper = null;
+							break;
+						}
+					}
+				}
+				selection.setNominal(x, numValues, lower, upper);
+			} else
+				values[x] = new double[counts[x]];
+			counts[x] = 0;
+		}
+		for (int id = 0; id < table.size(); id++) {
+			int x = table.getFeature(id);
+			if (values[x] != null && !Double.isNaN(table.getValue(id)))
+				values[x][counts[x]++] = table.getValue(id);
+		}
+		for (int x = 0; x < numFeatures; x++)
+			if (values[x] != null)
+				selection.setNumeric(x, values[x]);
+		FVStatistics stats = null;
+		boolean useEntropy = FVSHelper.getInstance().getInformationMetric().equals("entropy");
+		if (getFvs() instanceof ProbabilisticFVS) {
+			ProbabilisticFVS probabilistic = (ProbabilisticFVS) getFvs();
+			stats = probabilistic.getStatistics();
+			selection.setKeepProbability(useEntropy, probabilistic.getEpsilon());
+		}
+		double[] entropies = stats == null ? null : stats.getEntropy();
+		for (int id = 0; id < table.size(); id++) {
+			int x = table.getFeature(id);
+			int valueId = selection.valueIdOf(x, table.getValue(id));
+			/* The missing value is never kept */
+			if (valueId < 0)
+				continue;
+			if (selected.get(id))
+				selection.select(x, valueId);
+			if (stats != null)
+				selection.setScore(x, valueId, useEntropy ? entropies[id] : stats.normalizedIg(id));
+		}
+		return selection;
+	}
+
 	/**
 	 * Feature selection process is handled here ... <br/>
 	 * Doing feature value selection by using specified algorithm (Threshold or
-	 * Correlation)
+	 * Correlation) <br/>
+	 * The selection is fitted on the first batch only, the later batches are
+	 * transformed instance by instance in {@link #input(Instance)}
 	 */
 	public boolean batchFinished() throws Exception {
 		if (getInputFormat() == null)
 			throw new NullPointerException("No input instance format defined");
+		if (isFirstBatchDone() && getFvs() != null) {
+			/* Nothing is fitted, the phases belong to the first batch */
+			phaseUsage = null;
+			contextCallUsage = null;
+			contextBuildUsage = null;
+			contextCacheHit = false;
+			flushInput();
+			m_NewBatch = true;
+			return (numPendingOutput() != 0);
+		}
 
 		// output format still needs to be set (depends on first batch of data)
 		if (!isFirstBatchDone()) {
@@ -101,58 +226,84 @@ public class FVS_Filter extends Filter {
 		Instances inst = getInputFormat();
 		Instances output = getOutputFormat();
 		Double epsilon;
+		/* Statistics of the data are shared with other filters, if available */
+		FVSContext shared = getContext();
+		if (shared == null || !shared.matches(inst))
+			shared = new FVSContext();
+		FVSContext.Tracked context = shared.track();
+		ResourceUsage[] usage = new ResourceUsage[FVSPhase.values().length];
 
 		// Apply removal based on Algorithm
+		streamIndex = null;
+		usage[FVSPhase.Fit.ordinal()] = ResourceUsage.start();
 		switch (this.algo) {
 		case FVS_Entropy:
 			setFvs(new EntropyFVS(thr_alg));
 			Double threshold = 0.5;
 			if (params.length > 0)
 				threshold = params[0];
-			getFvs().input(inst, output, threshold);
+			getFvs().input(inst, output, context, threshold);
 			break;
 		case FVS_Correlation:
 			setFvs(new CorrelationFVS(thr_alg));
 			Double topk = 0.1;
 			if (params.length > 0)
 				topk = params[0];
-			getFvs().input(inst, output, topk);
+			getFvs().input(inst, output, context, topk);
 			break;
 		case FVS_Random:
 			setFvs(new RandomFVS());
 			epsilon = 0.5;
 			if (params.length > 0)
 				epsilon = params[0];
-			getFvs().input(inst, output, epsilon);
+			getFvs().input(inst, output, context, epsilon);
 			break;
 		case FVS_Random_Entropy:
 			setFvs(new RandomEntropyFVS());
 			epsilon = 1.0;
 			if (params.length > 0)
 				epsilon = params[0];
-			getFvs().input(inst, output, epsilon);
+			getFvs().input(inst, output, context, epsilon);
 			break;
 		case FVS_Probabilistic:
 			setFvs(new ProbabilisticFVS());
 			epsilon = 0.5;
 			if (params.length > 0)
 				epsilon = params[0];
-			getFvs().input(inst, output, epsilon);
+			getFvs().input(inst, output, context, epsilon);
 			break;
 		case Original:
 		default:
 			setFvs(new RandomFVS());
-			getFvs().input(inst, output, 0.0);
+			getFvs().input(inst, output, context, 0.0);
 			break;
 		}
+		usage[FVSPhase.Fit.ordinal()].stop();
+		/*
+		 * The time spent in the shared context (possibly waiting for another
+		 * filter) is replaced by the build cost of the statistics used
+		 */
+		contextCallUsage = context.getCallUsage();
+		contextBuildUsage = context.getBuildUsage();
+		contextCacheHit = context.isCacheHit();
+		usage[FVSPhase.Fit.ordinal()].subtract(contextCallUsage);
+		usage[FVSPhase.Fit.ordinal()].add(contextBuildUsage);
 
+		usage[FVSPhase.Selection.ordinal()] = ResourceUsage.start();
 		getFvs().applyFVS();
+		usage[FVSPhase.Selection.ordinal()].stop();
+
+		usage[FVSPhase.Transform.ordinal()] = ResourceUsage.start();
 		output = getFvs().output();
 
 		for (int i = 0; i < output.numInstances(); i++) {
 			// System.out.println(output.instance(i));
 			push(output.instance(i));
 		}
+		usage[FVSPhase.Transform.ordinal()].stop();
+		phaseUsage = usage;
+		getInstrumentation().count("filter_input", inst.numInstances());
+		getInstrumentation().count("filter_output", output.numInstances());
 
 		flushInput();
 		m_NewBatch = true;
@@ -161,19 +312,19 @@ public class FVS_Filter extends Filter {
 		return (numPendingOutput() != 0);
 	}
 
-	public List<Double> getListEntropy(final Map<FV, Collection<FV>> map) {
+	public List<Double> getListEntropy(final double[] entropies) {
 		List<Double> result = new ArrayList<Double>();
-		for (FV fv : map.keySet()) {
-			result.add(fv.getEntropy());
+		for (double entropy : entropies) {
+			result.add(entropy);
 		}
 		return result;
 	}
 
-	public double calculateAverageEntropy(final Map<FV, Collection<FV>> map) {
+	public double calculateAverageEntropy(final double[] entropies) {
 		double result = 0.0;
 		int count = 0;
-		for (FV fv : map.keySet()) {
-			result += fv.getEntropy();
+		for (double entropy : entropies) {
+			result += entropy;
 			count++;
 		}
 		if (count == 0)
@@ -181,46 +332,31 @@ public class FVS_Filter extends Filter {
 		return result / count;
 	}
 
-	public void printFVs(Multimap<FV, FV> reduced_fv_list, Map<FV, Collection<FV>> map) {
-		for (FV key : map.keySet()) {
-			System.out.println(key + "--" + "\t" + reduced_fv_list.get(key).size());
+	public void printFVs(FVTable table, BitSet selected) {
+		for (int id = selected.nextSetBit(0); id >= 0; id = selected.nextSetBit(id + 1)) {
+			System.out.println(table.toFV(id) + "--" + "\t" + table.getCount(id));
 		}
 	}
 
-	public Instances applyFVS(Instances inst, Map<FV, Collection<FV>> map, Double[] substitution) {
+	public Instances applyFVS(Instances inst, FVTable table, BitSet selected, Double[] substitution) {
 		Instances output = getOutputFormat();
-		Set<FV> set = map.keySet();
-		// Prepare the list
+		// Prepare the index
 		// First level indicate which attribute the FVS resides in
-		List<List<Value>> list = new ArrayList<>();
-		for (int i = 0; i < inst.numAttributes(); i++) {
-			list.add(new ArrayList<Value>());
-		}
-		// Build the data structure
-		for (FV fv : set) {
-			list.get(fv.getFeature()).add(new Value(fv.getValue().toString()));
-		}
+		IntervalIndex[] index = IntervalIndex.build(table, selected);
 		for (int i = 0; i < inst.numInstances(); i++) {
-			Instance instance = getFVSFilteredInstance(output, inst.instance(i), list, substitution);
+			Instance instance = getFVSFilteredInstance(output, inst.instance(i), index, substitution);
 			output.add(instance);
 		}
 		return output;
 	}
 
-	private Instance getFVSFilteredInstance(Instances output, Instance old_inst, List<List<Value>> list,
+	private Instance getFVSFilteredInstance(Instances output, Instance old_inst, IntervalIndex[] index,
 			Double[] substitution) {
-		double[] oldValues = old_inst.toDoubleArray();
 		Instance instance = new DenseInstance(old_inst);
 		// Change with value that is available
-		for (int i = 0; i < oldValues.length - 1; i++) {
-			// System.out.println(oldValues[i]);
-			// System.out.println(list.get(i));
-			// System.out.println("############################");
-			// If list doesn't contain, then delete
-			Value v = new Value(oldValues[i]);
-			int idx = list.get(i).indexOf(v);
-			// If not found in the index
-			if (idx == -1) {
+		for (int i = 0; i < old_inst.numAttributes() - 1; i++) {
+			// If index doesn't contain, then delete
+			if (!index[i].contains(old_inst.value(i))) {
 				// Change with substitution
 				instance.setValue(i, substitution[i]);
 				// Change into missing
@@ -244,26 +380,26 @@ public class FVS_Filter extends Filter {
 	/**
 	 * Remove FV randomly, and let some remains
 	 * 
-	 * @param fv_list
+	 * @param table
 	 * @param total
 	 * @return Remaining FVs
 	 */
-	public Map<FV, Collection<FV>> applyRandomRemoval(Map<FV, Collection<FV>> fv_list, int total) {
+	public BitSet applyRandomRemoval(FVTable table, int total) {
+		BitSet result = new BitSet();
+		result.set(0, table.size());
 		if (total == 0)
-			return fv_list;
-		Map<FV, Collection<FV>> result = new HashMap<FV, Collection<FV>>();
-		result.putAll(fv_list);
-		Random r = new Random();
-		// Transfer from map to list first
-		List<FV> keys = new ArrayList<>();
-		for (FV k : fv_list.keySet())
-			keys.add(k);
+			return result;
+		Random r = random != null ? random : new Random();
+		// Transfer from table to list first
+		List<Integer> keys = new ArrayList<>();
+		for (int id = 0; id < table.size(); id++)
+			keys.add(id);
 		// int total = r.nextInt(keys.size()); // Randomly remove number of
 		// items
 		while (total > 0 && keys.size() > 0) {
 			// System.out.println(keys.size());
 			int index = r.nextInt(keys.size());
-			result.remove(keys.get(index));
+			result.clear(keys.get(index));
 			keys.remove(index);
 			total--;
 		}
@@ -275,200 +411,43 @@ public class FVS_Filter extends Filter {
 	 * it would be removed. Let the FVs that has entropy below threshold
 	 * remains.
 	 * 
-	 * @param fv_list
+	 * @param table
 	 * @param threshold
 	 * @return Remaining FVs
 	 */
-	public Map<FV, Collection<FV>> applyThresholdRemoval(Map<FV, Collection<FV>> fv_list, double threshold) {
-		Map<FV, Collection<FV>> result = new HashMap<FV, Collection<FV>>();
-		List<Double> entropies = generateEntropy(fv_list);
-		result.putAll(fv_list);
+	public BitSet applyThresholdRemoval(FVTable table, double threshold) {
+		BitSet result = new BitSet();
+		double[] entropies = generateEntropy(table);
+		result.set(0, table.size());
 		// See mean, Q1~Q3 values for entropy threshold
-		Double[] temp = new Double[entropies.size()];
-		temp = entropies.toArray(temp);
-		Double mean = 0.0;
-		Double stdev = 0.0;
-		Double[] q = null;
-		if (thr_alg == ThresholdType.Mean || thr_alg == ThresholdType.MeanMin || thr_alg == ThresholdType.MeanPlus)
-			mean = MathHelper.getInstance().calculateAverage(temp);
-		if (thr_alg == ThresholdType.MeanMin || thr_alg == ThresholdType.MeanPlus)
-			stdev = MathHelper.getInstance().calculateStdev(mean, temp);
-		if (thr_alg == ThresholdType.Q1 || thr_alg == ThresholdType.Q2 || thr_alg == ThresholdType.Q3)
-			q = MathHelper.getInstance().calculateQuartile(temp);
-		// System.out.println("Mean: " + mean);
-		// System.out.println("Stdev: " + stdev);
-		// System.out.println("Mean + Stdev: " + (mean + stdev));
-		// System.out.println("Mean - Stdev: " + (mean - stdev));
-		// System.out.println("Q1: " + q[0]);
-		// System.out.println("Q2: " + q[1]);
-		// System.out.println("Q3: " + q[2]);
-		// threshold = mean + stdev; // Force using specified threshold
-		switch (thr_alg) {
-		case Mean:
-			threshold = mean;
-			break;
-		case MeanMin:
-			threshold = mean - stdev;
-			break;
-		case MeanPlus:
-			threshold = mean + stdev;
-			break;
-		case Q1:
-			threshold = q[0];
-			break;
-		case Q2:
-			threshold = q[1];
-			break;
-		case Q3:
-			threshold = q[2];
-			break;
-		default:
-			break;
-		}
+		threshold = MathHelper.getInstance().calculateThreshold(threshold, entropies, thr_alg);
 		// Apply removal
-		for (FV k : fv_list.keySet()) {
-			if (k.getEntropy() > threshold)
-				result.remove(k);
+		for (int id = 0; id < table.size(); id++) {
+			if (entropies[id] > threshold)
+				result.clear(id);
 		}
 		return result;
 	}
 
 	// Instead of top-k, we select top-k percents data
-	public Map<FV, Collection<FV>> applyCorrelationRemoval(Map<FV, Collection<FV>> fv_list, double topk, Double[][] CM,
-			List<Double> corrValues) {
-		Map<FV, Collection<FV>> result = new HashMap<FV, Collection<FV>>();
-		generateEntropy(fv_list);
-		Double mean = 0.0;
-		Double stdev = 0.0;
-		Double[] q = null;
-		Double[] temp = new Double[corrValues.size()];
-		temp = corrValues.toArray(temp);
-		// Calculate mean, Q1~Q3
-		if (thr_alg == ThresholdType.Mean || thr_alg == ThresholdType.MeanMin || thr_alg == ThresholdType.MeanPlus)
-			mean = MathHelper.getInstance().calculateAverage(temp);
-		if (thr_alg == ThresholdType.MeanMin || thr_alg == ThresholdType.MeanPlus)
-			stdev = MathHelper.getInstance().calculateStdev(mean, temp);
-		if (thr_alg == ThresholdType.Q1 || thr_alg == ThresholdType.Q2 || thr_alg == ThresholdType.Q3)
-			q = MathHelper.getInstance().calculateQuartile(temp);
-		// System.out.println("Mean: " + mean);
-		// System.out.println("Stdev: " + stdev);
-		// System.out.println("Mean + Stdev: " + (mean + stdev));
-		// System.out.println("Mean - Stdev: " + (mean - stdev));
-		// System.out.println("Q1: " + q[0]);
-		// System.out.println("Q2: " + q[1]);
-		// System.out.println("Q3: " + q[2]);
-		// Selecting correlation threshold
-		double corrThreshold = q[1];
-		switch (thr_alg) {
-		case Mean:
-			corrThreshold = mean;
-			break;
-		case MeanMin:
-			corrThreshold = mean - stdev;
-			break;
-		case MeanPlus:
-			corrThreshold = mean + stdev;
-			break;
-		case Q1:
-			corrThreshold = q[0];
-			break;
-		case Q2:
-			corrThreshold = q[1];
-			break;
-		case Q3:
-			corrThreshold = q[2];
-			break;
-		default:
-			break;
-		}
-		/**
-		 * Create several list for each correlated features
-		 */
-		List<List<FV>> correlatedFV = new ArrayList<>();
-		Set<FV> fvs = fv_list.keySet();
-		int[] selectedColumns = new int[CM.length];
-		for (int i = 0; i < CM.length; i++) {
-			for (int j = i + 1; j < CM.length; j++) {
-				/**
-				 * For each correlated feature, put all FV into list and do
-				 * selection based on top-k percent
-				 */
-				if (CM[i][j] >= corrThreshold) {
-					// Mark selectedColumns
-					selectedColumns[i] = 1;
-					selectedColumns[j] = 0;
-					// Add into list
-					List<FV> list = new ArrayList<>();
-					for (FV fv : fvs) {
-						if (fv.getFeature() == i || fv.getFeature() == j) {
-							list.add(fv);
-						}
-					}
-					selectSubsetTopKPercent(topk, correlatedFV, list);
-				}
-			}
-		}
-		/**
-		 * Add remaining columns which are not selected (not correlated)
-		 */
-		for (int i = 0; i < selectedColumns.length; i++) {
-			if (selectedColumns[i] == 0) {
-				List<FV> list = new ArrayList<>();
-				for (FV fv : fvs) {
-					if (fv.getFeature() == i) {
-						list.add(fv);
-					}
-				}
-				selectSubsetTopKPercent(topk, correlatedFV, list);
-			}
-		}
-		/**
-		 * Merge all correlated FV set and non-correlated FV set
-		 */
-		for (List<FV> list : correlatedFV) {
-			for (FV fv : list) {
-				result.put(fv, null);
-			}
-		}
-		/*
-		 * TODO Correlation FVS 1. Create several list for each correlated
-		 * features 2. For each correlated feature, put all FV into list and do
-		 * selection based on top-k percent 3. When doing selection, check on
-		 * every list (because every correlated feature would have different
-		 * list and non-correlated feature, would have a separate list). For
-		 * example: there is 5 features A, B, C, D, and E. Then, correlated
-		 * pairs are: A with B, A with C, A with D, B with D, and C with D. Then
-		 * we would have several list for them: AB list, AC list, AD list, BD
-		 * list, CD list, and E list. (E is a non-correlated feature, thus have
-		 * a separate list by itself). 4. Evaluate the parameters: top-k
-		 * percents and threshold selection (for correlation).
-		 */
-		return result;
+	public BitSet applyCorrelationRemoval(FVTable table, double topk, CorrelationMatrix CM) {
+		double[] entropies = generateEntropy(table);
+		double[] corrValues = CM.getCorrValues();
+		// Selecting correlation threshold (Q2 by default)
+		double corrThreshold = MathHelper.getInstance().calculateThreshold(Double.NaN, corrValues, thr_alg);
+		if (Double.isNaN(corrThreshold))
+			corrThreshold = MathHelper.getInstance().calculateQuartile(corrValues, 2);
+		return FVSHelper.getInstance().correlatedSelection(table, entropies, CM, corrThreshold, topk);
 	}
 
-	private void selectSubsetTopKPercent(double topk, List<List<FV>> correlatedFV, List<FV> list) {
-		Collections.sort(list);
-		int limit = (int) Math.min((int) (list.size() * topk) + 1, list.size() - 1); // Prevent
-																						// out-of-size
-		limit = (int) Math.max(limit, 0); // Prevent negative
-		list = list.subList(0, limit);
-		correlatedFV.add(list);
-	}
-
-	private List<Double> generateEntropy(Map<FV, Collection<FV>> fv_list) {
-		List<Double> entropies = new ArrayList();
-		Iterator<Entry<FV, Collection<FV>>> iterator = fv_list.entrySet().iterator();
-		while (iterator.hasNext()) {
-			Entry<FV, Collection<FV>> next = iterator.next();
-			FV key = next.getKey();
-			key.setFrequency((double) next.getValue().size() / this.numInstances);
-			double[] counter = new double[key.getNumLabels()];
-			for (FV fv : next.getValue()) {
-				int idx = (int) fv.getLabel();
-				counter[idx]++;
+	private double[] generateEntropy(FVTable table) {
+		double[] entropies = new double[table.size()];
+		double[] counter = new double[table.numClasses()];
+		for (int id = 0; id < table.size(); id++) {
+			for (int c = 0; c < counter.length; c++) {
+				counter[c] = table.getLabelCount(id, c);
 			}
-			key.setEntropy(calculateEntropy(counter, next.getValue().size()));
-			entropies.add(key.getEntropy());
+			entropies[id] = calculateEntropy(counter, table.getCount(id));
 		}
 		return entropies;
 	}
@@ -507,7 +486,79 @@ public class FVS_Filter extends Filter {
 		return fvs;
 	}
 
+	/**
+	 * The IFVS records its phases into the instrumentation of the filter
+	 */
 	public void setFvs(IFVS fvs) {
 		this.fvs = fvs;
+		if (fvs != null) {
+			fvs.setInstrumentation(getInstrumentation());
+			if (random != null)
+				fvs.setRandom(random);
+		}
+	}
+
+	public Instrumentation getInstrumentation() {
+		if (instrumentation == null)
+			return Instrumentation.DISABLED;
+		return instrumentation;
+	}
+
+	public void setInstrumentation(Instrumentation instrumentation) {
+		this.instrumentation = instrumentation;
+	}
+
+	/**
+	 * Use a seeded random generator (e.g. one per cross-validation fold), thus
+	 * the random FVS algorithms are reproducible
+	 */
+	public void setRandom(Random random) {
+		this.random = random;
+	}
+
+	/**
+	 * Resources used by the phase of the IFVS in the last batch (null if no
+	 * batch has been filtered)
+	 */
+	public ResourceUsage getPhaseUsage(FVSPhase phase) {
+		if (phaseUsage == null)
+			return null;
+		return phaseUsage[phase.ordinal()];
+	}
+
+	/**
+	 * Resources spent in the calls of the shared context in the last batch
+	 * (null if nothing is fitted)
+	 */
+	public ResourceUsage getContextCallUsage() {
+		return contextCallUsage;
+	}
+
+	/**
+	 * Build cost of the statistics of the shared context used in the last
+	 * batch, whichever filter built them (null if nothing is fitted)
+	 */
+	public ResourceUsage getContextBuildUsage() {
+		return contextBuildUsage;
+	}
+
+	/**
+	 * Check whether the statistics used in the last batch were loaded from
+	 * the persistent cache
+	 */
+	public boolean isContextCacheHit() {
+		return contextCacheHit;
+	}
+
+	public FVSContext getContext() {
+		return context;
+	}
+
+	/**
+	 * Use the fitted statistics of the context instead of computing them from
+	 * the input data (the context must be built from the same data)
+	 */
+	public void setContext(FVSContext context) {
+		this.context = context;
 	}
 }
@@ -0,0 +1,311 @@
+package edu.nctu.lalala.fvs;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Fitted FV selection which could be applied without the training data, the
+ * FV table or a Weka filter (e.g. on a phone). <br/>
+ * Every feature has a list of value ids and a bitset of the selected ids:
+ * nominal features use the nominal index (and keep the cut points of the
+ * discretization, thus raw values could be discretized by
+ * {@link #discretize(double[])}), numeric features use the sorted distinct
+ * values of the training data. The scores of ProbabilisticFVS (entropy or
+ * normalized IG of every value) are optional. <br/>
+ * The values of an instance are masked in place by {@link #apply(double[])},
+ * unselected or unseen values are changed into missing (NaN) without any
+ * allocation. <br/>
+ * File layout: magic, version, number of features, flags (scores, metric and
+ * epsilon), then per feature: kind, number of values, cut points or values,
+ * bitset words and scores.
+ *
+ * @author Gunarto Sindoro Njoo
+ * @version 1.0
+ * @category Data Structure
+ */
+public class FVSelection {
+	public static final String EXTENSION = ".fvs";
+	private static final int MAGIC = 0x46565353;
+	private static final int VERSION = 1;
+	private static final byte NOMINAL = 1;
+	private static final byte NUMERIC = 2;
+	private static final byte FLAG_SCORES = 1;
+	private static final byte FLAG_ENTROPY = 2;
+
+	private final int numFeatures;
+	private final byte[] kinds;
+	private final int[] numValues;
+	/**
+	 * Cut points of nominal features (null if the labels are not intervals)
+	 */
+	private final double[][] lower;
+	private final double[][] upper;
+	/**
+	 * Sorted values of numeric features
+	 */
+	private final double[][] points;
+	private final long[][] selected;
+	/**
+	 * Scores of every value (null without keep probability)
+	 */
+	private double[][] scores;
+	private boolean entropy;
+	private double epsilon;
+
+	public FVSelection(int numFeatures) {
+		this.numFeatures = numFeatures;
+		this.kinds = new byte[numFeatures];
+		this.numValues = new int[numFeatures];
+		this.lower = new double[numFeatures][];
+		this.upper = new double[numFeatures][];
+		this.points = new double[numFeatures][];
+		this.selected = new long[numFeatures][];
+	}
+
+	/**
+	 * Nominal feature, the value ids are the nominal indices
+	 *
+	 * @param lower
+	 *            lower bound of every value (null if there is no cut point)
+	 * @param upper
+	 *            upper bound of every value
+	 */
+	public void setNominal(int feature, int numValues, double[] lower, double[] upper) {
+		this.kinds[feature] = NOMINAL;
+		this.numValues[feature] = numValues;
+		this.lower[feature] = lower == null ? null : Arrays.copyOf(lower, numValues);
+		this.upper[feature] = upper == null ? null : Arrays.copyOf(upper, numValues);
+		this.selected[feature] = new long[words(numValues)];
+	}
+
+	/**
+	 * Numeric feature, the value ids are the positions in the sorted values
+	 *
+	 * @param values
+	 *            distinct values (sorted here)
+	 */
+	public void setNumeric(int feature, double[] values) {
+		this.kinds[feature] = NUMERIC;
+		this.numValues[feature] = values.length;
+		this.points[feature] = values.clone();
+		Arrays.sort(this.points[feature]);
+		this.selected[feature] = new long[words(values.length)];
+	}
+
+	public void select(int feature, int valueId) {
+		selected[feature][valueId >>> 6] |= 1L << valueId;
+	}
+
+	/**
+	 * Remove a selected value with the probability of ProbabilisticFVS: a
+	 * value is removed if <b>score &gt; random * epsilon</b> (entropy) or
+	 * <b>score &lt; random * epsilon</b> (IG)
+	 */
+	public void setKeepProbability(boolean entropy, double epsilon) {
+		this.entropy = entropy;
+		this.epsilon = epsilon;
+		if (scores == null) {
+			scores = new double[numFeatures][];
+			for (int x = 0; x < numFeatures; x++)
+				scores[x] = new double[numValues[x]];
+		}
+	}
+
+	/**
+	 * Score of a value ({@link #setKeepProbability(boolean, double)} must be
+	 * called first)
+	 */
+	public void setScore(int feature, int valueId, double score) {
+		scores[feature][valueId] = score;
+	}
+
+	public int numFeatures() {
+		return numFeatures;
+	}
+
+	public int numValues(int feature) {
+		return numValues[feature];
+	}
+
+	public boolean hasKeepProbability() {
+		return scores != null;
+	}
+
+	public boolean isSelected(int feature, int valueId) {
+		return valueId >= 0 && valueId < numValues[feature]
+				&& (selected[feature][valueId >>> 6] & (1L << valueId)) != 0;
+	}
+
+	/**
+	 * @param value
+	 *            cell value (nominal index for nominal feature)
+	 * @return value id, or -1 if the value is unknown
+	 */
+	public int valueIdOf(int feature, double value) {
+		if (Double.isNaN(value))
+			return -1;
+		if (kinds[feature] == NOMINAL) {
+			int idx = (int) value;
+			return idx >= 0 && idx < numValues[feature] ? idx : -1;
+		}
+		int idx = Arrays.binarySearch(points[feature], value);
+		return idx >= 0 ? idx : -1;
+	}
+
+	/**
+	 * Change raw values of the discretized features into their nominal
+	 * indices (in place), bins are (lower, upper] and uncovered values become
+	 * missing
+	 */
+	public void discretize(double[] values) {
+		for (int x = 0; x < numFeatures; x++) {
+			double[] u = upper[x];
+			if (kinds[x] != NOMINAL || u == null || Double.isNaN(values[x]))
+				continue;
+			int idx = Arrays.binarySearch(u, values[x]);
+			if (idx < 0)
+				idx = -idx - 1;
+			values[x] = idx < u.length && lower[x][idx] <= values[x] ? idx : Double.NaN;
+		}
+	}
+
+	/**
+	 * Mask the values of an instance in place (class value is not touched)
+	 *
+	 * @param values
+	 *            values of the instance in the encoding of the training data
+	 * @return number of values changed into missing
+	 */
+	public int apply(double[] values) {
+		return apply(values, null);
+	}
+
+	/**
+	 * Mask the values of an instance in place, the selected values are also
+	 * removed with the keep probability (if any)
+	 *
+	 * @param random
+	 *            null to apply the bitsets only
+	 * @return number of values changed into missing
+	 */
+	public int apply(double[] values, Random random) {
+		int removed = 0;
+		for (int x = 0; x < numFeatures; x++) {
+			if (Double.isNaN(values[x]))
+				continue;
+			int id = valueIdOf(x, values[x]);
+			boolean remove = !isSelected(x, id);
+			if (!remove && scores != null && random != null) {
+				double rr = random.nextFloat() * epsilon;
+				remove = entropy ? scores[x][id] > rr : scores[x][id] < rr;
+			}
+			if (remove) {
+				values[x] = Double.NaN;
+				removed++;
+			}
+		}
+		return removed;
+	}
+
+	public void write(String filename) throws IOException {
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename)))) {
+			write(out);
+		}
+	}
+
+	public void write(DataOutput out) throws IOException {
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(numFeatures);
+		byte flags = 0;
+		if (scores != null)
+			flags |= FLAG_SCORES;
+		if (entropy)
+			flags |= FLAG_ENTROPY;
+		out.writeByte(flags);
+		if (scores != null)
+			out.writeDouble(epsilon);
+		for (int x = 0; x < numFeatures; x++) {
+			out.writeByte(kinds[x]);
+			out.writeInt(numValues[x]);
+			if (kinds[x] == NOMINAL) {
+				out.writeBoolean(lower[x] != null);
+				if (lower[x] != null) {
+					writeDoubles(out, lower[x]);
+					writeDoubles(out, upper[x]);
+				}
+			} else
+				writeDoubles(out, points[x]);
+			for (long word : selected[x])
+				out.writeLong(word);
+			if (scores != null)
+				writeDoubles(out, scores[x]);
+		}
+	}
+
+	public static FVSelection read(String filename) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(filename)))) {
+			return read(in);
+		}
+	}
+
+	/**
+	 * Read a selection written by {@link #write(DataOutput)}
+	 *
+	 * @throws IOException
+	 *             if it is not a selection file of this version
+	 */
+	public static FVSelection read(DataInput in) throws IOException {
+		if (in.readInt() != MAGIC || in.readInt() != VERSION)
+			throw new IOException("Unknown format");
+		FVSelection selection = new FVSelection(in.readInt());
+		byte flags = in.readByte();
+		double epsilon = (flags & FLAG_SCORES) != 0 ? in.readDouble() : 0;
+		for (int x = 0; x < selection.numFeatures; x++) {
+			byte kind = in.readByte();
+			int n = in.readInt();
+			if (kind == NOMINAL) {
+				if (in.readBoolean())
+					selection.setNominal(x, n, readDoubles(in, n), readDoubles(in, n));
+				else
+					selection.setNominal(x, n, null, null);
+			} else if (kind == NUMERIC)
+				selection.setNumeric(x, readDoubles(in, n));
+			else
+				throw new IOException("Unknown kind of feature " + x + ": " + kind);
+			for (int w = 0; w < selection.selected[x].length; w++)
+				selection.selected[x][w] = in.readLong();
+			if ((flags & FLAG_SCORES) != 0) {
+				if (selection.scores == null)
+					selection.setKeepProbability((flags & FLAG_ENTROPY) != 0, epsilon);
+				selection.scores[x] = readDoubles(in, n);
+			}
+		}
+		return selection;
+	}
+
+	private static int words(int bits) {
+		return (bits + 63) >>> 6;
+	}
+
+	private static void writeDoubles(DataOutput out, double[] values) throws IOException {
+		for (double value : values)
+			out.writeDouble(value);
+	}
+
+	private static double[] readDoubles(DataInput in, int n) throws IOException {
+		double[] values = new double[n];
+		for (int i = 0; i < n; i++)
+			values[i] = in.readDouble();
+		return values;
+	}
+}
@@ -0,0 +1,215 @@
+package edu.nctu.lalala.fvs;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import edu.nctu.lalala.util.MathHelper;
+
+/**
+ * Sufficient statistics of every FV in a {@link FVTable}: frequency, entropy,
+ * information gain, symmetric uncertainty, chi-square and phi. <br/>
+ * Everything is computed in a single pass over the label histograms, using a
+ * precomputed n*log(n) table so the entropy kernel needs no allocation and no
+ * logarithm per cell. The formulas are the same as
+ * {@link MathHelper#calculateEntropy(int[], long, int)},
+ * {@link MathHelper#calculateIG(FVTable, int[], double, int)} and
+ * {@link MathHelper#calculateChi(FVTable, int)}.
+ *
+ * @author Gunarto Sindoro Njoo
+ * @version 1.0
+ * @category Data Object
+ */
+public class FVStatistics {
+	private static final double VERY_SMALL_NUMBER = 0.0000000001;
+	/**
+	 * Same tolerance with commons-math ChiSquareTest
+	 */
+	private static final double CHI_RESCALE_TOLERANCE = 10E-6;
+
+	private final int size;
+	private final double[] frequency;
+	private final double[] entropy;
+	private final double[] ig;
+	private final double[] su;
+	private final double[] chi;
+	private final double[] phi;
+	/**
+	 * Entropy of the class distribution
+	 */
+	private double classEntropy;
+	private double maxIg;
+	private double maxSu;
+	private double maxPhi;
+
+	private FVStatistics(int size) {
+		this.size = size;
+		this.frequency = new double[size];
+		this.entropy = new double[size];
+		this.ig = new double[size];
+		this.su = new double[size];
+		this.chi = new double[size];
+		this.phi = new double[size];
+	}
+
+	/**
+	 * Compute the statistics of every FV in the table
+	 *
+	 * @param table
+	 * @return
+	 */
+	public static FVStatistics compute(FVTable table) {
+		FVStatistics stats = new FVStatistics(table.size());
+		int numInstances = table.numInstances();
+		int numClasses = table.numClasses();
+		int numAttributes = table.numFeatures() + 1;
+		int[] counts = table.getCounts();
+		int[] classDist = table.getClassDistribution();
+		double[] nlogn = MathHelper.getInstance().getNLogNTable(numInstances);
+
+		/* Class distribution */
+		double sumClassNLogN = 0;
+		int sumClass = 0;
+		for (int c = 0; c < numClasses; c++) {
+			sumClassNLogN += nlogn[classDist[c]];
+			sumClass += classDist[c];
+		}
+		/* Entropy (in nats) of the class distribution */
+		double hY = sumClass == 0 ? 0 : (nlogn[sumClass] - sumClassNLogN) / sumClass;
+		double act_ent = hY / numClasses;
+		stats.classEntropy = act_ent;
+		double phiDenominator = (double) numInstances * Math.min(numInstances - 1, numAttributes - 1);
+		double[] expected = new double[numClasses];
+
+		for (int id = 0; id < stats.size; id++) {
+			int f = table.getCount(id);
+			int offset = id * numClasses;
+			double sumNLogN = 0;
+			double sumExpected = 0;
+			for (int c = 0; c < numClasses; c++) {
+				sumNLogN += nlogn[counts[offset + c]];
+				expected[c] = sumClass == 0 ? 0 : (double) classDist[c] * f / sumClass;
+				if (expected[c] <= 0)
+					expected[c] = VERY_SMALL_NUMBER;
+				sumExpected += expected[c];
+			}
+			/* Chi-square, rescaled as in commons-math ChiSquareTest */
+			double ratio = 1.0;
+			if (Math.abs(sumExpected - f) > CHI_RESCALE_TOLERANCE)
+				ratio = f / sumExpected;
+			double chi = 0;
+			for (int c = 0; c < numClasses; c++) {
+				double dev = counts[offset + c] - ratio * expected[c];
+				chi += dev * dev / (ratio * expected[c]);
+			}
+			double px = numInstances == 0 ? 0 : (double) f / numInstances;
+			double entropy = f == 0 ? 0 : (nlogn[f] - sumNLogN) / f / numClasses;
+			/* Conditional entropy, the same as calculateIG */
+			double hy_x = -px * hY;
+			double ig = hy_x == 0 ? 0 : act_ent - hy_x;
+			double su = 2 * ig / (entropy + act_ent);
+			double phi = phiDenominator > 0 ? Math.sqrt(chi / phiDenominator) : 0;
+
+			stats.frequency[id] = px;
+			stats.entropy[id] = entropy;
+			stats.ig[id] = ig;
+			stats.su[id] = su;
+			stats.chi[id] = chi;
+			stats.phi[id] = phi;
+			stats.maxIg = Math.max(stats.maxIg, ig);
+			stats.maxSu = Math.max(stats.maxSu, su);
+			stats.maxPhi = Math.max(stats.maxPhi, phi);
+		}
+		return stats;
+	}
+
+	/**
+	 * Write the statistics in binary (see {@link #read(DataInput)})
+	 */
+	public void write(DataOutput out) throws IOException {
+		out.writeInt(size);
+		out.writeDouble(classEntropy);
+		out.writeDouble(maxIg);
+		out.writeDouble(maxSu);
+		out.writeDouble(maxPhi);
+		for (double[] values : new double[][] { frequency, entropy, ig, su, chi, phi })
+			for (int id = 0; id < size; id++)
+				out.writeDouble(values[id]);
+	}
+
+	/**
+	 * Read the statistics written by {@link #write(DataOutput)}
+	 */
+	public static FVStatistics read(DataInput in) throws IOException {
+		FVStatistics stats = new FVStatistics(in.readInt());
+		stats.classEntropy = in.readDouble();
+		stats.maxIg = in.readDouble();
+		stats.maxSu = in.readDouble();
+		stats.maxPhi = in.readDouble();
+		for (double[] values : new double[][] { stats.frequency, stats.entropy, stats.ig, stats.su, stats.chi,
+				stats.phi })
+			for (int id = 0; id < stats.size; id++)
+				values[id] = in.readDouble();
+		return stats;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public double getClassEntropy() {
+		return classEntropy;
+	}
+
+	public double[] getFrequency() {
+		return frequency;
+	}
+
+	public double[] getEntropy() {
+		return entropy;
+	}
+
+	public double[] getIg() {
+		return ig;
+	}
+
+	public double[] getSymmetricUncertainty() {
+		return su;
+	}
+
+	public double[] getChi() {
+		return chi;
+	}
+
+	public double[] getPhi() {
+		return phi;
+	}
+
+	/**
+	 * Information gain normalized into range 0-1
+	 */
+	public double normalizedIg(int id) {
+		if (maxIg > 0.0)
+			return ig[id] / maxIg;
+		return ig[id];
+	}
+
+	/**
+	 * Symmetric uncertainty normalized into range 0-1 (only normalized when
+	 * the information gain is normalized)
+	 */
+	public double normalizedSymmetricUncertainty(int id) {
+		if (maxIg > 0.0 && maxSu > 0.0)
+			return su[id] / maxSu;
+		return su[id];
+	}
+
+	/**
+	 * Phi coefficient normalized into range 0-1
+	 */
+	public double normalizedPhi(int id) {
+		if (maxPhi > 0.0)
+			return phi[id] / maxPhi;
+		return phi[id];
+	}
+}
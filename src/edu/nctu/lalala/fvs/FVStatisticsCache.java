@@ -0,0 +1,170 @@
+package edu.nctu.lalala.fvs;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import edu.nctu.lalala.util.FVSHelper;
+import weka.core.Instance;
+import weka.core.Instances;
+
+/**
+ * Persistent cache of the fitted statistics (FV table, FV statistics and
+ * correlation matrix) in the intermediate folder. <br/>
+ * Every entry is a binary file named by its key, a content hash of the data
+ * together with the settings which produce the training data (e.g. number of
+ * folds, fold, and seed). A file which couldn't be read is ignored, thus the
+ * statistics are computed again.
+ *
+ * @author Gunarto Sindoro Njoo
+ * @version 1.0
+ * @category Data Structure
+ */
+public class FVStatisticsCache {
+	private static final int MAGIC = 0x46565343;
+	private static final int VERSION = 1;
+	private static final String TABLE = ".fvt";
+	private static final String STATISTICS = ".fvs";
+	private static final String CORRELATION = ".cor";
+
+	private final String folder;
+	private final String key;
+
+	/**
+	 * @param folder
+	 *            intermediate folder
+	 * @param key
+	 *            see {@link #createKey(Instances, Object...)}
+	 */
+	public FVStatisticsCache(String folder, String key) {
+		this.folder = folder;
+		this.key = key;
+	}
+
+	/**
+	 * Content hash (SHA-1) of the data: the header (relation name contains
+	 * the filters applied, e.g. discretization settings), every value and the
+	 * settings
+	 *
+	 * @param data
+	 * @param settings
+	 * @return hexadecimal hash
+	 */
+	public static String createKey(Instances data, Object... settings) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+		digest.update(new Instances(data, 0).toString().getBytes(StandardCharsets.UTF_8));
+		ByteBuffer buffer = ByteBuffer.allocate(data.numAttributes() * Double.BYTES);
+		for (int i = 0; i < data.numInstances(); i++) {
+			Instance ins = data.instance(i);
+			buffer.clear();
+			for (int x = 0; x < data.numAttributes(); x++)
+				buffer.putLong(Double.doubleToLongBits(ins.value(x)));
+			digest.update(buffer.array(), 0, buffer.position());
+		}
+		for (Object setting : settings)
+			digest.update(("|" + setting).getBytes(StandardCharsets.UTF_8));
+		StringBuilder sb = new StringBuilder();
+		for (byte b : digest.digest())
+			sb.append(String.format("%02x", b));
+		return sb.toString();
+	}
+
+	public String getKey() {
+		return key;
+	}
+
+	public FVTable loadTable(Instances header) {
+		return load(TABLE, in -> FVTable.read(in, header));
+	}
+
+	public void saveTable(FVTable table) {
+		save(TABLE, table::write);
+	}
+
+	public FVStatistics loadStatistics() {
+		return load(STATISTICS, FVStatistics::read);
+	}
+
+	public void saveStatistics(FVStatistics statistics) {
+		save(STATISTICS, statistics::write);
+	}
+
+	public CorrelationMatrix loadCorrelationMatrix() {
+		return load(CORRELATION, CorrelationMatrix::read);
+	}
+
+	public void saveCorrelationMatrix(CorrelationMatrix matrix) {
+		save(CORRELATION, matrix::write);
+	}
+
+	private File getFile(String extension) {
+		return new File(folder + key + extension);
+	}
+
+	/**
+	 * @return null if the entry doesn't exist or couldn't be read
+	 */
+	private <T> T load(String extension, Reader<T> reader) {
+		File f = getFile(extension);
+		if (!f.exists())
+			return null;
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f)))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION)
+				throw new IOException("Unknown format");
+			return reader.read(in);
+		} catch (IOException | RuntimeException e) {
+			if (FVSHelper.getInstance().getDebugStatus())
+				System.err.println("FVStatisticsCache.load exception: " + f + " " + e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Write into a temporary file, then rename it, thus a concurrent reader
+	 * never sees a partial entry
+	 */
+	private void save(String extension, Writer writer) {
+		File f = getFile(extension);
+		if (f.exists())
+			return;
+		File temp = null;
+		try {
+			temp = File.createTempFile(key, extension, f.getAbsoluteFile().getParentFile());
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				writer.write(out);
+			}
+			Files.move(temp.toPath(), f.toPath(), StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			if (FVSHelper.getInstance().getDebugStatus())
+				System.err.println("FVStatisticsCache.save exception: " + f + " " + e.getMessage());
+			if (temp != null)
+				temp.delete();
+		}
+	}
+
+	private interface Reader<T> {
+		T read(DataInputStream in) throws IOException;
+	}
+
+	private interface Writer {
+		void write(DataOutputStream out) throws IOException;
+	}
+}
@@ -0,0 +1,144 @@
+package edu.nctu.lalala.fvs;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import weka.core.Instances;
+
+/**
+ * FV table of the whole data together with the FV id of every cell. The table
+ * of a subset of the rows (a training fold, or every subject but one) is
+ * derived by subtracting the label histograms of the excluded rows, thus the
+ * data is only extracted once for all the subsets. <br/>
+ * The derived table has the same FVs, counts and FV id order as
+ * {@link FVTable#extract(Instances)} over the subset, only the value ids of
+ * numeric attributes are taken from the whole data (the value dictionaries are
+ * shared). The subset rows are only read until every remaining FV is seen.
+ *
+ * @author Gunarto Sindoro Njoo
+ * @version 1.0
+ * @category Data Structure
+ */
+public class FVSubsets {
+	private final FVTable table;
+	private final int numFeatures;
+	/**
+	 * FV id of every cell, row-major
+	 */
+	private final int[] cellIds;
+	private final int[] labels;
+
+	private FVSubsets(FVTable table, int[] cellIds, int[] labels) {
+		this.table = table;
+		this.numFeatures = table.numFeatures();
+		this.cellIds = cellIds;
+		this.labels = labels;
+	}
+
+	public static FVSubsets extract(Instances inst) {
+		int numFeatures = inst.numAttributes() - 1;
+		int[] cellIds = new int[inst.numInstances() * numFeatures];
+		int[] labels = new int[inst.numInstances()];
+		for (int i = 0; i < labels.length; i++)
+			labels[i] = (int) inst.instance(i).classValue();
+		return new FVSubsets(FVTable.extract(inst, cellIds), cellIds, labels);
+	}
+
+	/**
+	 * Table of the whole data
+	 */
+	public FVTable getTable() {
+		return table;
+	}
+
+	/**
+	 * Table of a subset of the rows
+	 *
+	 * @param rows
+	 *            rows of the subset, in their order in the subset data
+	 * @param excluded
+	 *            every other row
+	 * @return
+	 */
+	public FVTable derive(int[] rows, int[] excluded) {
+		int numClasses = table.numClasses();
+		int[] excludedCounts = new int[table.size() * numClasses];
+		int[] excludedFrequencies = new int[table.size()];
+		int[] excludedClasses = new int[numClasses];
+		for (int row : excluded) {
+			int label = labels[row];
+			int offset = row * numFeatures;
+			for (int x = 0; x < numFeatures; x++) {
+				int id = cellIds[offset + x];
+				excludedFrequencies[id]++;
+				excludedCounts[id * numClasses + label]++;
+			}
+			excludedClasses[label]++;
+		}
+		int remaining = 0;
+		for (int id = 0; id < table.size(); id++)
+			if (table.getCount(id) > excludedFrequencies[id])
+				remaining++;
+		/* Order of the first appearance in the subset */
+		int[] order = new int[remaining];
+		int length = 0;
+		BitSet seen = new BitSet(table.size());
+		for (int i = 0; i < rows.length && length < remaining; i++) {
+			int offset = rows[i] * numFeatures;
+			for (int x = 0; x < numFeatures; x++) {
+				int id = cellIds[offset + x];
+				if (!seen.get(id)) {
+					seen.set(id);
+					order[length++] = id;
+				}
+			}
+		}
+		return table.subtract(order, length, excludedCounts, excludedFrequencies, excludedClasses,
+				excluded.length);
+	}
+
+	/**
+	 * Rows of the test fold, the same split as
+	 * {@link Instances#testCV(int, int)}
+	 */
+	public static int[] testRows(int numInstances, int folds, int fold) {
+		int first = firstRow(numInstances, folds, fold);
+		int[] rows = new int[foldSize(numInstances, folds, fold)];
+		for (int i = 0; i < rows.length; i++)
+			rows[i] = first + i;
+		return rows;
+	}
+
+	/**
+	 * Rows of the training fold, the same split and the same shuffle as
+	 * {@link Instances#trainCV(int, int, Random)}
+	 */
+	public static int[] trainRows(int numInstances, int folds, int fold, Random random) {
+		int first = firstRow(numInstances, folds, fold);
+		int size = foldSize(numInstances, folds, fold);
+		int[] rows = new int[numInstances - size];
+		for (int i = 0; i < first; i++)
+			rows[i] = i;
+		for (int i = first + size; i < numInstances; i++)
+			rows[i - size] = i;
+		for (int j = rows.length - 1; j > 0; j--) {
+			int k = random.nextInt(j + 1);
+			int temp = rows[j];
+			rows[j] = rows[k];
+			rows[k] = temp;
+		}
+		return rows;
+	}
+
+	private static int foldSize(int numInstances, int folds, int fold) {
+		int size = numInstances / folds;
+		if (fold < numInstances % folds)
+			size++;
+		return size;
+	}
+
+	private static int firstRow(int numInstances, int folds, int fold) {
+		int offset = fold < numInstances % folds ? fold : numInstances % folds;
+		return fold * (numInstances / folds) + offset;
+	}
+}
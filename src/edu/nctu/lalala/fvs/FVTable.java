@@ -0,0 +1,475 @@
+package edu.nctu.lalala.fvs;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+import edu.nctu.lalala.util.ColumnarFile;
+import edu.nctu.lalala.util.LongIntMap;
+import weka.core.Attribute;
+import weka.core.Instance;
+import weka.core.Instances;
+
+/**
+ * Count table of feature-value pairs. <br/>
+ * Every distinct (feature, value) pair gets a dense id, and only its label
+ * histogram is kept, so the memory scales with the number of distinct FVs
+ * instead of rows x attributes. <br/>
+ * Value ids of nominal attributes are the nominal indices (missing value is
+ * mapped into numValues), value ids of numeric attributes are assigned by
+ * first appearance.
+ *
+ * @author Gunarto Sindoro Njoo
+ * @version 1.0
+ * @category Data Object
+ */
+public class FVTable {
+	private static final int INITIAL_CAPACITY = 256;
+	private static final long MISSING_BITS = Double.doubleToLongBits(Double.NaN);
+
+	private final Instances header;
+	private final int numFeatures;
+	private final int numClasses;
+	/**
+	 * Value dictionary for non-nominal attributes (null for nominal)
+	 */
+	private final LongIntMap[] dictionaries;
+	private final double[][] dictionaryValues;
+	private final int[] dictionarySize;
+	/**
+	 * (feature, valueId) packed into long --> FV id
+	 */
+	private final LongIntMap keys;
+	private int size;
+	private int[] features;
+	private int[] valueIds;
+	private int[] frequencies;
+	/**
+	 * Label histogram, size * numClasses
+	 */
+	private int[] counts;
+	private int[] classDistribution;
+	private int numInstances;
+	private CutPointTable cutPoints;
+
+	public FVTable(Instances header) {
+		this.header = new Instances(header, 0);
+		this.numFeatures = header.numAttributes() - 1;
+		this.numClasses = header.numClasses();
+		this.dictionaries = new LongIntMap[numFeatures];
+		this.dictionaryValues = new double[numFeatures][];
+		this.dictionarySize = new int[numFeatures];
+		for (int x = 0; x < numFeatures; x++) {
+			if (!header.attribute(x).isNominal()) {
+				dictionaries[x] = new LongIntMap();
+				dictionaryValues[x] = new double[16];
+			}
+		}
+		this.keys = new LongIntMap(INITIAL_CAPACITY);
+		this.features = new int[INITIAL_CAPACITY];
+		this.valueIds = new int[INITIAL_CAPACITY];
+		this.frequencies = new int[INITIAL_CAPACITY];
+		this.counts = new int[INITIAL_CAPACITY * numClasses];
+		this.classDistribution = new int[numClasses];
+	}
+
+	/**
+	 * Empty table sharing the value dictionaries of the source table (the
+	 * dictionaries are not modified afterwards)
+	 */
+	private FVTable(FVTable source, int capacity) {
+		this.header = source.header;
+		this.numFeatures = source.numFeatures;
+		this.numClasses = source.numClasses;
+		this.dictionaries = source.dictionaries;
+		this.dictionaryValues = source.dictionaryValues;
+		this.dictionarySize = source.dictionarySize;
+		this.keys = new LongIntMap(capacity);
+		this.features = new int[capacity];
+		this.valueIds = new int[capacity];
+		this.frequencies = new int[capacity];
+		this.counts = new int[capacity * numClasses];
+		this.classDistribution = new int[numClasses];
+	}
+
+	/**
+	 * Build the count table of every (feature, value) pair in the data
+	 *
+	 * @param inst
+	 * @return
+	 */
+	public static FVTable extract(Instances inst) {
+		FVTable table = new FVTable(inst);
+		for (int i = 0; i < inst.numInstances(); i++) {
+			table.add(inst.instance(i));
+		}
+		return table;
+	}
+
+	/**
+	 * Build the count table, and keep the FV id of every cell (row-major,
+	 * numFeatures ids per row)
+	 *
+	 * @param inst
+	 * @param cellIds
+	 *            numInstances * numFeatures
+	 * @return
+	 */
+	public static FVTable extract(Instances inst, int[] cellIds) {
+		FVTable table = new FVTable(inst);
+		for (int i = 0; i < inst.numInstances(); i++) {
+			table.add(inst.instance(i), cellIds, i * table.numFeatures);
+		}
+		return table;
+	}
+
+	public void add(Instance ins) {
+		add(ins, null, 0);
+	}
+
+	private void add(Instance ins, int[] cellIds, int offset) {
+		int label = (int) ins.classValue();
+		for (int x = 0; x < numFeatures; x++) {
+			int id = addCell(x, ins.value(x), label);
+			if (cellIds != null)
+				cellIds[offset + x] = id;
+		}
+		classDistribution[label]++;
+		numInstances++;
+	}
+
+	/**
+	 * Build the count table directly from the columns of the file, without
+	 * building the {@link Instances}
+	 *
+	 * @param file
+	 * @return
+	 */
+	public static FVTable extract(ColumnarFile file) {
+		Instances header = file.getHeader();
+		FVTable table = new FVTable(header);
+		int classIndex = header.classIndex();
+		for (int i = 0; i < file.numInstances(); i++) {
+			int label = (int) file.value(i, classIndex);
+			for (int x = 0; x < table.numFeatures; x++)
+				table.addCell(x, file.value(i, x), label);
+			table.classDistribution[label]++;
+			table.numInstances++;
+		}
+		return table;
+	}
+
+	private int addCell(int feature, double value, int label) {
+		int id = putIfAbsent(feature, valueIdOf(feature, value, true));
+		frequencies[id]++;
+		counts[id * numClasses + label]++;
+		return id;
+	}
+
+	/**
+	 * Table of a subset of the rows: the FVs are registered in the given
+	 * order, and the counts of the excluded rows are subtracted from this
+	 * table. The value dictionaries are shared with this table, thus the value
+	 * ids of numeric attributes are the ids in this table.
+	 *
+	 * @param order
+	 *            FV ids of this table, in the order of the new ids
+	 * @param length
+	 *            number of FVs in the order
+	 * @param excludedCounts
+	 *            label histogram of the excluded rows (indexed as
+	 *            {@link #getCounts()})
+	 * @param excludedFrequencies
+	 *            frequency of every FV in the excluded rows
+	 * @param excludedClasses
+	 *            class distribution of the excluded rows
+	 * @param excludedInstances
+	 *            number of excluded rows
+	 * @return
+	 */
+	FVTable subtract(int[] order, int length, int[] excludedCounts, int[] excludedFrequencies,
+			int[] excludedClasses, int excludedInstances) {
+		FVTable table = new FVTable(this, Math.max(length, 1));
+		for (int i = 0; i < length; i++) {
+			int old = order[i];
+			int id = table.putIfAbsent(features[old], valueIds[old]);
+			table.frequencies[id] = frequencies[old] - excludedFrequencies[old];
+			for (int c = 0; c < numClasses; c++)
+				table.counts[id * numClasses + c] = counts[old * numClasses + c]
+						- excludedCounts[old * numClasses + c];
+		}
+		for (int c = 0; c < numClasses; c++)
+			table.classDistribution[c] = classDistribution[c] - excludedClasses[c];
+		table.numInstances = numInstances - excludedInstances;
+		return table;
+	}
+
+	/**
+	 * Write the table in binary, including the value dictionaries (see
+	 * {@link #read(DataInput, Instances)})
+	 */
+	public void write(DataOutput out) throws IOException {
+		out.writeInt(numFeatures);
+		out.writeInt(numClasses);
+		out.writeInt(numInstances);
+		out.writeInt(size);
+		for (int x = 0; x < numFeatures; x++) {
+			if (dictionaries[x] == null) {
+				out.writeInt(-1);
+				continue;
+			}
+			out.writeInt(dictionarySize[x]);
+			for (int v = 0; v < dictionarySize[x]; v++)
+				out.writeDouble(dictionaryValues[x][v]);
+		}
+		for (int id = 0; id < size; id++) {
+			out.writeInt(features[id]);
+			out.writeInt(valueIds[id]);
+			out.writeInt(frequencies[id]);
+			for (int c = 0; c < numClasses; c++)
+				out.writeInt(counts[id * numClasses + c]);
+		}
+		for (int c = 0; c < numClasses; c++)
+			out.writeInt(classDistribution[c]);
+	}
+
+	/**
+	 * Read a table written by {@link #write(DataOutput)}
+	 *
+	 * @param in
+	 * @param header
+	 *            header of the data of the table
+	 * @return
+	 * @throws IOException
+	 *             if the table doesn't match the header
+	 */
+	public static FVTable read(DataInput in, Instances header) throws IOException {
+		FVTable table = new FVTable(header);
+		if (in.readInt() != table.numFeatures || in.readInt() != table.numClasses)
+			throw new IOException("FV table doesn't match the header");
+		table.numInstances = in.readInt();
+		int size = in.readInt();
+		for (int x = 0; x < table.numFeatures; x++) {
+			int dictionarySize = in.readInt();
+			if ((dictionarySize < 0) != (table.dictionaries[x] == null))
+				throw new IOException("FV table doesn't match the type of attribute " + x);
+			if (dictionarySize < 0)
+				continue;
+			table.dictionaryValues[x] = new double[Math.max(dictionarySize, 16)];
+			for (int v = 0; v < dictionarySize; v++) {
+				double value = in.readDouble();
+				table.dictionaryValues[x][v] = value;
+				table.dictionaries[x].put(Double.isNaN(value) ? MISSING_BITS : Double.doubleToLongBits(value), v);
+			}
+			table.dictionarySize[x] = dictionarySize;
+		}
+		table.ensureCapacity(size);
+		for (int i = 0; i < size; i++) {
+			int id = table.putIfAbsent(in.readInt(), in.readInt());
+			table.frequencies[id] = in.readInt();
+			for (int c = 0; c < table.numClasses; c++)
+				table.counts[id * table.numClasses + c] = in.readInt();
+		}
+		for (int c = 0; c < table.numClasses; c++)
+			table.classDistribution[c] = in.readInt();
+		return table;
+	}
+
+	private int putIfAbsent(int feature, int valueId) {
+		int id = keys.putIfAbsent(pack(feature, valueId), size);
+		if (id == size) {
+			ensureCapacity(size + 1);
+			features[id] = feature;
+			valueIds[id] = valueId;
+			size++;
+		}
+		return id;
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity <= features.length)
+			return;
+		int newCapacity = Math.max(capacity, features.length << 1);
+		features = Arrays.copyOf(features, newCapacity);
+		valueIds = Arrays.copyOf(valueIds, newCapacity);
+		frequencies = Arrays.copyOf(frequencies, newCapacity);
+		counts = Arrays.copyOf(counts, newCapacity * numClasses);
+	}
+
+	private static long pack(int feature, int valueId) {
+		return ((long) feature << 32) | (valueId & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Value id of a cell
+	 *
+	 * @param feature
+	 * @param value
+	 * @param register
+	 *            put unknown numeric value into the dictionary
+	 * @return value id, or -1 if the numeric value is unknown
+	 */
+	private int valueIdOf(int feature, double value, boolean register) {
+		if (dictionaries[feature] == null) {
+			if (Double.isNaN(value))
+				return header.attribute(feature).numValues();
+			return (int) value;
+		}
+		long bits = Double.isNaN(value) ? MISSING_BITS : Double.doubleToLongBits(value);
+		if (!register)
+			return dictionaries[feature].get(bits);
+		int valueId = dictionaries[feature].putIfAbsent(bits, dictionarySize[feature]);
+		if (valueId == dictionarySize[feature]) {
+			if (valueId == dictionaryValues[feature].length)
+				dictionaryValues[feature] = Arrays.copyOf(dictionaryValues[feature], valueId << 1);
+			dictionaryValues[feature][valueId] = value;
+			dictionarySize[feature]++;
+		}
+		return valueId;
+	}
+
+	/**
+	 * @param feature
+	 * @param ins
+	 * @return FV id of the cell, or -1 if the FV does not exist in the table
+	 */
+	public int indexOf(int feature, Instance ins) {
+		int valueId = valueIdOf(feature, ins.value(feature), false);
+		if (valueId < 0)
+			return -1;
+		return indexOf(feature, valueId);
+	}
+
+	public int indexOf(int feature, int valueId) {
+		return keys.get(pack(feature, valueId));
+	}
+
+	/**
+	 * Number of distinct FVs
+	 */
+	public int size() {
+		return size;
+	}
+
+	public int numFeatures() {
+		return numFeatures;
+	}
+
+	public int numClasses() {
+		return numClasses;
+	}
+
+	public int numInstances() {
+		return numInstances;
+	}
+
+	public Instances getHeader() {
+		return header;
+	}
+
+	public int getFeature(int id) {
+		return features[id];
+	}
+
+	public int getValueId(int id) {
+		return valueIds[id];
+	}
+
+	public boolean isNominal(int feature) {
+		return dictionaries[feature] == null;
+	}
+
+	/**
+	 * Number of rows containing the FV
+	 */
+	public int getCount(int id) {
+		return frequencies[id];
+	}
+
+	public double getFrequency(int id) {
+		return (double) frequencies[id] / numInstances;
+	}
+
+	public int getLabelCount(int id, int label) {
+		return counts[id * numClasses + label];
+	}
+
+	/**
+	 * Flat label histogram, the histogram of FV <b>id</b> starts from
+	 * <b>id * numClasses()</b>
+	 */
+	public int[] getCounts() {
+		return counts;
+	}
+
+	public int[] getClassDistribution() {
+		return classDistribution;
+	}
+
+	/**
+	 * Numeric value of the FV (nominal index for nominal attribute)
+	 */
+	public double getValue(int id) {
+		int feature = features[id];
+		if (dictionaries[feature] == null) {
+			if (valueIds[id] == header.attribute(feature).numValues())
+				return Double.NaN;
+			return valueIds[id];
+		}
+		return dictionaryValues[feature][valueIds[id]];
+	}
+
+	/**
+	 * Value of the FV as it is written in the data (label for nominal
+	 * attribute)
+	 */
+	public Object getValueObject(int id) {
+		int feature = features[id];
+		if (dictionaries[feature] == null) {
+			Attribute att = header.attribute(feature);
+			if (valueIds[id] == att.numValues())
+				return "?";
+			return att.value(valueIds[id]);
+		}
+		return dictionaryValues[feature][valueIds[id]];
+	}
+
+	/**
+	 * Cut points of the discretized attributes, parsed once per header
+	 */
+	public synchronized CutPointTable getCutPoints() {
+		if (cutPoints == null)
+			cutPoints = CutPointTable.forHeader(header);
+		return cutPoints;
+	}
+
+	/**
+	 * Interval covered by the FV, a single point for numeric attribute
+	 */
+	public Value getInterval(int id) {
+		int feature = features[id];
+		if (dictionaries[feature] == null) {
+			if (valueIds[id] == header.attribute(feature).numValues())
+				return new Value(Double.NaN);
+			return new Value(getCutPoints().getLower(feature, valueIds[id]),
+					getCutPoints().getUpper(feature, valueIds[id]));
+		}
+		return new Value(dictionaryValues[feature][valueIds[id]]);
+	}
+
+	/**
+	 * Materialize the FV object (for printing and debugging)
+	 */
+	public FV toFV(int id) {
+		FV fv = new FV(features[id], getValueObject(id), Double.NaN);
+		fv.setNumLabels(numClasses);
+		fv.setFrequency(getFrequency(id));
+		return fv;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("FVTable{instances=%d, features=%d, fv=%d}", numInstances, numFeatures, size);
+	}
+}
@@ -0,0 +1,189 @@
+package edu.nctu.lalala.fvs;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Lookup index of the selected FVs of one attribute. <br/>
+ * Nominal attributes are looked up directly by their nominal index (O(1)),
+ * other attributes keep sorted non-overlapping intervals and are looked up by
+ * binary search (O(log bins)). A value is contained in an interval if
+ * <b>min &lt;= value &lt;= max</b>, the same semantic as {@link Value#equals}.
+ *
+ * @author Gunarto Sindoro Njoo
+ * @version 1.0
+ * @category Data Structure
+ */
+public class IntervalIndex {
+	public static final int NOT_FOUND = -1;
+
+	/**
+	 * FV id by nominal index (null for interval index)
+	 */
+	private int[] direct;
+	private double[] lower;
+	private double[] upper;
+	private int[] ids;
+	private int size;
+
+	private IntervalIndex() {
+	}
+
+	/**
+	 * Create index for nominal attribute
+	 *
+	 * @param numValues
+	 */
+	public static IntervalIndex nominal(int numValues) {
+		IntervalIndex index = new IntervalIndex();
+		index.direct = new int[numValues];
+		Arrays.fill(index.direct, NOT_FOUND);
+		return index;
+	}
+
+	/**
+	 * Create index for numeric attribute
+	 */
+	public static IntervalIndex interval() {
+		IntervalIndex index = new IntervalIndex();
+		index.lower = new double[8];
+		index.upper = new double[8];
+		index.ids = new int[8];
+		return index;
+	}
+
+	/**
+	 * Build the index of every attribute from the selected FVs
+	 *
+	 * @param table
+	 * @param selected
+	 * @return index for each attribute (class attribute included, and it is
+	 *         always empty)
+	 */
+	public static IntervalIndex[] build(FVTable table, BitSet selected) {
+		int numAttributes = table.getHeader().numAttributes();
+		IntervalIndex[] result = new IntervalIndex[numAttributes];
+		for (int x = 0; x < numAttributes; x++) {
+			if (x < table.numFeatures() && table.isNominal(x))
+				result[x] = nominal(table.getHeader().attribute(x).numValues());
+			else
+				result[x] = interval();
+		}
+		for (int id = selected.nextSetBit(0); id >= 0; id = selected.nextSetBit(id + 1)) {
+			int feature = table.getFeature(id);
+			if (table.isNominal(feature))
+				result[feature].put(table.getValueId(id), id);
+			else
+				result[feature].put(table.getValue(id), table.getValue(id), id);
+		}
+		for (IntervalIndex index : result)
+			index.sort();
+		return result;
+	}
+
+	/**
+	 * Put a nominal index (missing value is never indexed)
+	 */
+	public void put(int nominalIndex, int id) {
+		if (nominalIndex >= 0 && nominalIndex < direct.length)
+			direct[nominalIndex] = id;
+	}
+
+	public void put(Value value, int id) {
+		put(value.min, value.max, id);
+	}
+
+	/**
+	 * Put an interval [min, max], {@link #sort()} needs to be called after
+	 * the last put
+	 */
+	public void put(double min, double max, int id) {
+		if (Double.isNaN(min) || Double.isNaN(max))
+			return;
+		if (size == ids.length) {
+			lower = Arrays.copyOf(lower, size << 1);
+			upper = Arrays.copyOf(upper, size << 1);
+			ids = Arrays.copyOf(ids, size << 1);
+		}
+		lower[size] = min;
+		upper[size] = max;
+		ids[size] = id;
+		size++;
+	}
+
+	/**
+	 * Sort the intervals by their lower bound
+	 */
+	public void sort() {
+		if (direct != null || size < 2)
+			return;
+		Integer[] order = new Integer[size];
+		for (int i = 0; i < size; i++)
+			order[i] = i;
+		final double[] l = lower;
+		final double[] u = upper;
+		Arrays.sort(order, (a, b) -> l[a] != l[b] ? Double.compare(l[a], l[b]) : Double.compare(u[a], u[b]));
+		double[] newLower = new double[size];
+		double[] newUpper = new double[size];
+		int[] newIds = new int[size];
+		for (int i = 0; i < size; i++) {
+			newLower[i] = lower[order[i]];
+			newUpper[i] = upper[order[i]];
+			newIds[i] = ids[order[i]];
+		}
+		lower = newLower;
+		upper = newUpper;
+		ids = newIds;
+	}
+
+	/**
+	 * @param value
+	 *            cell value (nominal index for nominal attribute)
+	 * @return FV id of the interval containing the value, or
+	 *         {@link #NOT_FOUND}
+	 */
+	public int lookup(double value) {
+		if (Double.isNaN(value))
+			return NOT_FOUND;
+		if (direct != null) {
+			int idx = (int) value;
+			if (idx < 0 || idx >= direct.length)
+				return NOT_FOUND;
+			return direct[idx];
+		}
+		/* First interval whose upper bound is not less than the value */
+		int lo = 0;
+		int hi = size - 1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			if (upper[mid] < value)
+				lo = mid + 1;
+			else
+				hi = mid - 1;
+		}
+		if (lo < size && lower[lo] <= value)
+			return ids[lo];
+		return NOT_FOUND;
+	}
+
+	public boolean contains(double value) {
+		return lookup(value) != NOT_FOUND;
+	}
+
+	public boolean isNominal() {
+		return direct != null;
+	}
+
+	/**
+	 * Number of indexed intervals (or nominal values)
+	 */
+	public int size() {
+		if (direct == null)
+			return size;
+		int count = 0;
+		for (int id : direct)
+			if (id != NOT_FOUND)
+				count++;
+		return count;
+	}
+}
@@ -1,36 +1,20 @@
 package edu.nctu.lalala.fvs;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
 public class Value {
 	double min;
 	double max;
-	private static final double MIN_VALUE = -3000000000D;
-	private static final double MAX_VALUE = 3000000000D;
 
+	/**
+	 * Parse the interval from bin label (e.g. <b>(2.48-6.31]</b>) or a single
+	 * number, see {@link CutPointTable#parseInterval(String, double[])}
+	 * 
+	 * @param value
+	 */
 	public Value(String value) {
-		Pattern pattern = Pattern.compile("-?((\\d(\\.)*)+|inf)");
-		Matcher m = pattern.matcher(value);
-		int counter = 0;
-		while (m.find()) {
-			String s = m.group();
-			// Normalize minus sign
-			if (counter == 1)
-				s = s.replace("-", "");
-			if (s.equals("-inf"))
-				s = MIN_VALUE + "";
-			else if (s.equals("inf"))
-				s = MAX_VALUE + "";
-//			System.out.println(s);
-			if (counter == 0)
-				min = Double.parseDouble(s);
-			else if (counter == 1) {
-				max = Double.parseDouble(s);
-				break;
-			}
-			counter++;
-		}
+		double[] interval = new double[2];
+		CutPointTable.parseInterval(value, interval);
+		this.min = interval[0];
+		this.max = interval[1];
 	}
 
 	public Value(double value) {
@@ -38,6 +22,19 @@ public class Value {
 		this.max = value;
 	}
 
+	public Value(double min, double max) {
+		this.min = min;
+		this.max = max;
+	}
+
+	public double getMin() {
+		return min;
+	}
+
+	public double getMax() {
+		return max;
+	}
+
 	@Override
 	public boolean equals(Object obj) {
 		if (obj == null) {
@@ -1,137 +1,89 @@
 package edu.nctu.lalala.fvs.algorithm;
 
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
+import java.util.BitSet;
+import java.util.Random;
 
 import edu.nctu.lalala.enums.ThresholdType;
 import edu.nctu.lalala.fvs.CorrelationMatrix;
-import edu.nctu.lalala.fvs.FV;
+import edu.nctu.lalala.fvs.FVSContext;
+import edu.nctu.lalala.fvs.FVStatistics;
+import edu.nctu.lalala.fvs.FVTable;
 import edu.nctu.lalala.fvs.interfaces.IFVS;
 import edu.nctu.lalala.util.FVSHelper;
+import edu.nctu.lalala.util.Instrumentation;
+import edu.nctu.lalala.util.QuantileSketch;
 import weka.core.Instances;
 
 public class CorrelationFVS implements IFVS {
 	Instances inst;
 	Instances output;
-	Map<FV, Collection<FV>> fv_list;
-	Map<FV, Collection<FV>> filtered_fv;
+	FVTable fv_table;
+	BitSet filtered_fv;
+	FVStatistics fv_stats;
+	double[] entropies;
 	ThresholdType thr_alg;
 	double topk;
 	private double corrThreshold;
-	Double[][] CM;
-	List<Double> corrValues;
+	CorrelationMatrix CM;
+	private Instrumentation instrumentation = Instrumentation.DISABLED;
 
 	public CorrelationFVS(ThresholdType thr_alg) {
 		this.thr_alg = thr_alg;
-		this.filtered_fv = new HashMap<FV, Collection<FV>>();
+		this.filtered_fv = new BitSet();
 	}
 	
 	@Override
-	public void input(Instances inst, Instances output, Object... params) {
+	public void input(Instances inst, Instances output, FVSContext context, Object... params) {
 		this.inst = inst;
 		this.output = output;
-		this.fv_list = FVSHelper.getInstance().extractValuesFromData(inst);
+		long time = instrumentation.start();
+		this.fv_table = context.getTable(inst);
+		instrumentation.stop(Instrumentation.EXTRACT, time);
 		this.topk = (Double) params[0];
-		preprocessing(inst);
+		preprocessing(inst, context);
 	}
-	private void preprocessing(Instances inst) {
-		CorrelationMatrix cm = FVSHelper.getInstance().generateCorrelationMatrix(inst);
-		this.CM = cm.getCM();
-		this.corrValues = cm.getCorrValues();
-		Double[] temp = new Double[corrValues.size()];
-		temp = corrValues.toArray(temp);
-		this.setCorrThreshold(FVSHelper.getInstance().thresholdSelection(0, temp, this.thr_alg));
-		FVSHelper.getInstance().generateEntropy(fv_list, inst.numInstances(), inst.numClasses());
+	private void preprocessing(Instances inst, FVSContext context) {
+		long time = instrumentation.start();
+		this.CM = context.getCorrelationMatrix(inst);
+		instrumentation.stop(Instrumentation.SCORE, time);
+		time = instrumentation.start();
+		if (FVSHelper.getInstance().getUseSketch()) {
+			QuantileSketch sketch = CM.sketchValues(FVSHelper.getInstance().getSketchSize());
+			this.setCorrThreshold(
+					FVSHelper.getInstance().thresholdSelection(0, sketch, this.thr_alg, CM::getCorrValues));
+		} else
+			this.setCorrThreshold(FVSHelper.getInstance().thresholdSelection(0, CM.getCorrValues(), this.thr_alg));
+		instrumentation.stop(Instrumentation.THRESHOLD, time);
+		time = instrumentation.start();
+		this.fv_stats = context.getStatistics(inst);
+		this.entropies = fv_stats.getEntropy();
+		instrumentation.stop(Instrumentation.SCORE, time);
 	}
 
 	@Override
 	public void applyFVS() {
-		this.filtered_fv = new HashMap<FV, Collection<FV>>();
-		/**
-		 * Create several list for each correlated features
-		 */
-		List<List<FV>> correlatedFV = new ArrayList<>();
-		Set<FV> fvs = fv_list.keySet();
-		int[] selectedColumns = new int[CM.length];
-		for (int i = 0; i < CM.length; i++) {
-			for (int j = i + 1; j < CM.length; j++) {
-				/**
-				 * For each correlated feature, put all FV into list and do
-				 * selection based on top-k percent
-				 */
-				if (CM[i][j] >= getCorrThreshold()) {
-					// Mark selectedColumns
-					selectedColumns[i] = 1;
-					selectedColumns[j] = 0;
-					// Add into list
-					List<FV> list = new ArrayList<>();
-					for (FV fv : fvs) {
-						if (fv.getFeature() == i || fv.getFeature() == j) {
-							list.add(fv);
-						}
-					}
-					selectSubsetTopKPercent(topk, correlatedFV, list);
-				}
-			}
-		}
-		/**
-		 * Add remaining columns which are not selected (not correlated)
-		 */
-		for (int i = 0; i < selectedColumns.length; i++) {
-			if (selectedColumns[i] == 0) {
-				List<FV> list = new ArrayList<>();
-				for (FV fv : fvs) {
-					if (fv.getFeature() == i) {
-						list.add(fv);
-					}
-				}
-				selectSubsetTopKPercent(topk, correlatedFV, list);
-			}
-		}
-		/**
-		 * Merge all correlated FV set and non-correlated FV set
-		 */
-		for (List<FV> list : correlatedFV) {
-			for (FV fv : list) {
-				filtered_fv.put(fv, null);
-			}
-		}
 		/*
-		 * TODO Correlation FVS 1. Create several list for each correlated
-		 * features 2. For each correlated feature, put all FV into list and do
-		 * selection based on top-k percent 3. When doing selection, check on
-		 * every list (because every correlated feature would have different
-		 * list and non-correlated feature, would have a separate list). For
-		 * example: there is 5 features A, B, C, D, and E. Then, correlated
-		 * pairs are: A with B, A with C, A with D, B with D, and C with D. Then
-		 * we would have several list for them: AB list, AC list, AD list, BD
-		 * list, CD list, and E list. (E is a non-correlated feature, thus have
-		 * a separate list by itself). 4. Evaluate the parameters: top-k
-		 * percents and threshold selection (for correlation).
+		 * Correlated features are grouped together (connected components of
+		 * the correlation graph), each group and each non-correlated feature
+		 * selects its own top-k percent FVs based on the entropy. For example:
+		 * there is 5 features A, B, C, D, and E, and the correlated pairs are:
+		 * A with B, A with C, and B with D. Then we would have 2 groups: ABCD
+		 * and E.
 		 */
+		long time = instrumentation.start();
+		this.filtered_fv = FVSHelper.getInstance().correlatedSelection(fv_table, entropies, CM, getCorrThreshold(),
+				topk);
+		instrumentation.stop(Instrumentation.SELECT, time);
 	}
 
 	@Override
 	public Instances output() {
-		Instances output = FVSHelper.getInstance().transformInstances(inst, this.output, filtered_fv);
+		long time = instrumentation.start();
+		Instances output = FVSHelper.getInstance().transformInstances(inst, this.output, fv_table, filtered_fv);
+		instrumentation.stop(Instrumentation.TRANSFORM, time);
 		return output;
 	}
 
-	private void selectSubsetTopKPercent(double topk, List<List<FV>> correlatedFV, List<FV> list) {
-		Collections.sort(list);
-		/* Prevent out-of-size */
-		int limit = (int) Math.min((int) (list.size() * topk) + 1, list.size() - 1);
-		/* Prevent negative */
-		limit = (int) Math.max(limit, 0);
-		list = list.subList(0, limit);
-		correlatedFV.add(list);
-	}
-
 	public double getCorrThreshold() {
 		return corrThreshold;
 	}
@@ -139,4 +91,24 @@ public class CorrelationFVS implements IFVS {
 	public void setCorrThreshold(double corrThreshold) {
 		this.corrThreshold = corrThreshold;
 	}
+
+	@Override
+	public FVTable getTable() {
+		return fv_table;
+	}
+
+	@Override
+	public BitSet getSelected() {
+		return filtered_fv;
+	}
+
+	@Override
+	public void setInstrumentation(Instrumentation instrumentation) {
+		this.instrumentation = instrumentation;
+	}
+
+	@Override
+	public void setRandom(Random random) {
+		/* The selection is deterministic */
+	}
 }
@@ -1,59 +1,79 @@
 package edu.nctu.lalala.fvs.algorithm;
 
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.BitSet;
+import java.util.Random;
 
 import edu.nctu.lalala.enums.ThresholdType;
-import edu.nctu.lalala.fvs.FV;
+import edu.nctu.lalala.fvs.FVSContext;
+import edu.nctu.lalala.fvs.FVStatistics;
+import edu.nctu.lalala.fvs.FVTable;
 import edu.nctu.lalala.fvs.interfaces.IFVS;
 import edu.nctu.lalala.util.FVSHelper;
+import edu.nctu.lalala.util.Instrumentation;
+import edu.nctu.lalala.util.QuantileSketch;
 import weka.core.Instances;
 
 public class EntropyFVS implements IFVS {
 	Instances inst;
 	Instances output;
-	Map<FV, Collection<FV>> fv_list;
-	Map<FV, Collection<FV>> filtered_fv;
+	FVTable fv_table;
+	BitSet filtered_fv;
+	FVStatistics fv_stats;
+	double[] entropies;
 	ThresholdType thr_alg;
 	private double threshold;
+	private Instrumentation instrumentation = Instrumentation.DISABLED;
 	
 	public EntropyFVS(ThresholdType thr_alg) {
 		this.thr_alg = thr_alg;
-		this.filtered_fv = new HashMap<FV, Collection<FV>>();
+		this.filtered_fv = new BitSet();
 	}
 
 	@Override
-	public void input(Instances inst, Instances output, Object... params) {
+	public void input(Instances inst, Instances output, FVSContext context, Object... params) {
 		this.inst = inst;
 		this.output = output;
-		this.fv_list = FVSHelper.getInstance().extractValuesFromData(inst);
+		long time = instrumentation.start();
+		this.fv_table = context.getTable(inst);
+		instrumentation.stop(Instrumentation.EXTRACT, time);
 		this.setThreshold((Double) params[0]);
-		preprocessing(inst);
+		preprocessing(inst, context);
 	}
 
-	private void preprocessing(Instances inst) {
-		List<Double> entropies = FVSHelper.getInstance().generateEntropy(fv_list, inst.numInstances(), inst.numClasses());
-		filtered_fv.putAll(fv_list);
+	private void preprocessing(Instances inst, FVSContext context) {
+		long time = instrumentation.start();
+		this.fv_stats = context.getStatistics(inst);
+		this.entropies = fv_stats.getEntropy();
+		instrumentation.stop(Instrumentation.SCORE, time);
+		filtered_fv.set(0, fv_table.size());
 		// See mean, Q1~Q3 values for entropy threshold
-		Double[] temp = new Double[entropies.size()];
-		temp = entropies.toArray(temp);
-		this.setThreshold(FVSHelper.getInstance().thresholdSelection(getThreshold(), temp, this.thr_alg));
+		time = instrumentation.start();
+		if (FVSHelper.getInstance().getUseSketch()) {
+			QuantileSketch sketch = new QuantileSketch(FVSHelper.getInstance().getSketchSize());
+			sketch.update(entropies);
+			this.setThreshold(
+					FVSHelper.getInstance().thresholdSelection(getThreshold(), sketch, this.thr_alg, () -> entropies));
+		} else
+			this.setThreshold(FVSHelper.getInstance().thresholdSelection(getThreshold(), entropies, this.thr_alg));
+		instrumentation.stop(Instrumentation.THRESHOLD, time);
 	}
 
 	@Override
 	public void applyFVS() {
 		// Apply removal
-		for (FV k : fv_list.keySet()) {
-			if (k.getEntropy() > getThreshold())
-				filtered_fv.remove(k);
+		long time = instrumentation.start();
+		for (int id = 0; id < fv_table.size(); id++) {
+			if (entropies[id] > getThreshold())
+				filtered_fv.clear(id);
 		}
+		instrumentation.stop(Instrumentation.SELECT, time);
 	}
 
 	@Override
 	public Instances output() {
-		Instances output = FVSHelper.getInstance().transformInstances(inst, this.output, filtered_fv);
+		long time = instrumentation.start();
+		Instances output = FVSHelper.getInstance().transformInstances(inst, this.output, fv_table, filtered_fv);
+		instrumentation.stop(Instrumentation.TRANSFORM, time);
 		return output;
 	}
 
@@ -64,4 +84,24 @@ public class EntropyFVS implements IFVS {
 	public void setThreshold(double threshold) {
 		this.threshold = threshold;
 	}
+
+	@Override
+	public FVTable getTable() {
+		return fv_table;
+	}
+
+	@Override
+	public BitSet getSelected() {
+		return filtered_fv;
+	}
+
+	@Override
+	public void setInstrumentation(Instrumentation instrumentation) {
+		this.instrumentation = instrumentation;
+	}
+
+	@Override
+	public void setRandom(Random random) {
+		/* The selection is deterministic */
+	}
 }
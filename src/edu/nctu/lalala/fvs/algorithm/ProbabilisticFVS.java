@@ -1,19 +1,15 @@
 package edu.nctu.lalala.fvs.algorithm;
 
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
+import java.util.BitSet;
 import java.util.Random;
-import java.util.Set;
 
-import edu.nctu.lalala.fvs.FV;
-import edu.nctu.lalala.fvs.Value;
+import edu.nctu.lalala.fvs.FVSContext;
+import edu.nctu.lalala.fvs.FVStatistics;
+import edu.nctu.lalala.fvs.FVTable;
+import edu.nctu.lalala.fvs.IntervalIndex;
 import edu.nctu.lalala.fvs.interfaces.IFVS;
 import edu.nctu.lalala.util.FVSHelper;
-import edu.nctu.lalala.util.MathHelper;
+import edu.nctu.lalala.util.Instrumentation;
 import weka.core.DenseInstance;
 import weka.core.Instance;
 import weka.core.Instances;
@@ -21,80 +17,42 @@ import weka.core.Instances;
 public class ProbabilisticFVS implements IFVS {
 	Instances inst;
 	Instances output;
-	Map<FV, Collection<FV>> fv_list;
-	Map<FV, Collection<FV>> filtered_fv;
+	FVTable fv_table;
+	BitSet filtered_fv;
+	FVStatistics fv_stats;
+	double[] entropies;
 	/**
 	 * epsilon is the parameter for removal rate (optimistic removal) <br/>
 	 * 0.0 < epsilon <= 1.0 <br/>
 	 * higher epsilon means higher FV removal probability
 	 */
 	double epsilon = 1.0;
+	private Instrumentation instrumentation = Instrumentation.DISABLED;
+	private Random random = new Random();
 
 	public ProbabilisticFVS() {
-		this.filtered_fv = new HashMap<FV, Collection<FV>>();
+		this.filtered_fv = new BitSet();
 	}
 
 	@Override
-	public void input(Instances inst, Instances output, Object... params) {
+	public void input(Instances inst, Instances output, FVSContext context, Object... params) {
 		this.inst = inst;
 		this.output = output;
-		this.fv_list = FVSHelper.getInstance().extractValuesFromData(inst);
+		long time = instrumentation.start();
+		this.fv_table = context.getTable(inst);
+		instrumentation.stop(Instrumentation.EXTRACT, time);
 		if (params.length > 0)
 			this.epsilon = (Double) params[0];
-		preprocessing(inst);
+		preprocessing(inst, context);
 	}
 
-	private void preprocessing(Instances inst) {
-		int[] act_dist = new int[inst.numClasses()];
-		for (int i=0; i<inst.numInstances(); i++) {
-			act_dist[(int) inst.get(i).classValue()]++;
-		}
-		double act_ent = MathHelper.getInstance().calculateEntropy(act_dist, inst.numInstances(), inst.numClasses());
-//		System.out.println(act_ent);
-		
-		/* Generating entropy and frequency for each FV */
-		List<Double> entropies = FVSHelper.getInstance().generateEntropy(fv_list, inst.numInstances(), inst.numClasses());
-		filtered_fv.putAll(fv_list);
-		
-		double max_ig = 0.0;
-		double max_su = 0.0;
-		Map<FV, Double> igs = MathHelper.getInstance().calculateIG(fv_list, act_dist, act_ent, this.inst.numClasses());
-		for (Entry<FV, Double> entry : igs.entrySet()) {
-			double ig = entry.getValue();
-			double su = 2*ig/(entry.getKey().getEntropy()+act_ent);
-			entry.getKey().setIg(ig);
-			max_ig = Math.max(max_ig, ig);
-			entry.getKey().setSymmetricUncertainty(su);
-			max_su = Math.max(max_su, su);
-		}
-		// Normalize to range 0-1
-		if (max_ig > 0.0) {
-			for (Entry<FV, Double> entry : igs.entrySet()) {
-				double ig = entry.getKey().getIg() / max_ig;
-				entry.getKey().setIg(ig);
-				if (max_su > 0.0)
-				{
-					double su = entry.getKey().getSymmetricUncertainty() / max_su;
-					entry.getKey().setSymmetricUncertainty(su);
-				}
-			}
-		}
-
-//		Map<FV, Double> chi = MathHelper.getInstance().calculateChi(fv_list, this.inst.numClasses());
-//		double max_phi = 0.0;
-//		for (Entry<FV, Double> entry : chi.entrySet()) {
-//			double phi = Math.sqrt(entry.getValue() / this.inst.numInstances()
-//					/ Math.min(this.inst.numInstances() - 1, this.inst.numAttributes() - 1));
-//			max_phi = Math.max(phi, max_phi);
-//			entry.getKey().setPhi(phi);
-//		}
-		// Normalize to range 0-1
-//		if (max_phi > 0.0) {
-//			for (Entry<FV, Double> entry : chi.entrySet()) {
-//				double phi = entry.getKey().getPhi() / max_phi;
-//				entry.getKey().setPhi(phi);
-//			}
-//		}
+	private void preprocessing(Instances inst, FVSContext context) {
+		/* Generating frequency, entropy and information gain for each FV */
+		long time = instrumentation.start();
+		this.fv_stats = context.getStatistics(inst);
+		this.entropies = fv_stats.getEntropy();
+		instrumentation.stop(Instrumentation.SCORE, time);
+		filtered_fv.set(0, fv_table.size());
 	}
 
 	@Override
@@ -107,27 +65,25 @@ public class ProbabilisticFVS implements IFVS {
 		boolean removeInstance = true;
 		boolean probabilistic = true;
 		boolean average = false;
-		Instances output = transformInstances(inst, this.output, filtered_fv, removeInstance, probabilistic, average);
+		/* FVs are selected per value during the transformation */
+		long time = instrumentation.start();
+		Instances output = transformInstances(inst, this.output, fv_table, filtered_fv, removeInstance, probabilistic,
+				average);
+		instrumentation.stop(Instrumentation.TRANSFORM, time);
 		return output;
 	}
 	
-	private Instances transformInstances(Instances inst, Instances output, Map<FV, Collection<FV>> map,
+	private Instances transformInstances(Instances inst, Instances output, FVTable table, BitSet selected,
 			boolean removeInstance, boolean probabilistic, boolean average) {
-		Set<FV> set = map.keySet();
-		Double[] substitution = FVSHelper.getInstance().calculateAverage(inst);
-		// Prepare the list
+		Double[] substitution = null;
+		if (average)
+			substitution = FVSHelper.getInstance().calculateAverage(inst);
+		// Prepare the index
 		// First level indicate which attribute the FVS resides in
-		List<Map<Value, FV>> list = new ArrayList<>();
-		for (int i = 0; i < inst.numAttributes(); i++) {
-			list.add(new HashMap<Value, FV>());
-		}
-		// Build the data structure
-		for (FV fv : set) {
-			Value v = new Value(fv.getValue().toString());
-			list.get(fv.getFeature()).put(v, fv);
-		}
+		IntervalIndex[] index = IntervalIndex.build(table, selected);
 		for (int i = 0; i < inst.numInstances(); i++) {
-			Instance instance = getFVSFilteredInstance(output, inst.instance(i), list, substitution, removeInstance, probabilistic, average);
+			Instance instance = getFVSFilteredInstance(output, inst.instance(i), index, substitution, removeInstance,
+					probabilistic, average, random);
 			if (removeInstance && instance == null)
 				continue;
 			output.add(instance);
@@ -139,27 +95,24 @@ public class ProbabilisticFVS implements IFVS {
 		return output;
 	}
 	
-	private Instance getFVSFilteredInstance(Instances output, Instance old_inst, List<Map<Value, FV>> map,
-			Double[] substitution, boolean removeInstance, boolean probabilistic, boolean average) {
-		double[] oldValues = old_inst.toDoubleArray();
+	private Instance getFVSFilteredInstance(Instances output, Instance old_inst, IntervalIndex[] index,
+			Double[] substitution, boolean removeInstance, boolean probabilistic, boolean average, Random random) {
 		Instance instance = new DenseInstance(old_inst);
+		int numAttributes = old_inst.numAttributes();
 		int count_miss = 0;
-		Random random = new Random();
-		for (int i = 0; i < oldValues.length - 1; i++) {
-			Value v = new Value(oldValues[i]);
-			FV fv = map.get(i).getOrDefault(v, null);
-			if (fv == null) {
+		boolean useEntropy = FVSHelper.getInstance().getInformationMetric().equals("entropy");
+		for (int i = 0; i < numAttributes - 1; i++) {
+			int fv = index[i].lookup(old_inst.value(i));
+			if (fv == IntervalIndex.NOT_FOUND) {
 				FVSHelper.getInstance().replaceValue(substitution, average, instance, i);
 				count_miss++;
-			} else if (old_inst.isMissing(i)) {
-				count_miss++;
-			} else if (fv != null && probabilistic) {
+			} else if (probabilistic) {
 				double rr = random.nextFloat() * epsilon;
-				boolean condition = fv.getIg() < rr;
-				if (FVSHelper.getInstance().getInformationMetric().equals("entropy"))
-					condition = fv.getEntropy() > rr;
+				boolean condition;
+				if (useEntropy)
+					condition = entropies[fv] > rr;
 				else
-					condition = fv.getIg() < rr;
+					condition = fv_stats.normalizedIg(fv) < rr;
 				if (condition) 
 				{
 					FVSHelper.getInstance().replaceValue(substitution, average, instance, i);
@@ -169,11 +122,39 @@ public class ProbabilisticFVS implements IFVS {
 		}
 		if (removeInstance) {
 			/* Remove the instance using miss rate probability */
-			double miss_rate = (double) count_miss / oldValues.length;
+			double miss_rate = (double) count_miss / numAttributes;
 			if (miss_rate > random.nextFloat()) {
 				instance = null;
 			}
 		}
 		return instance;
 	}
-}
\ No newline at end of file
+
+	@Override
+	public FVTable getTable() {
+		return fv_table;
+	}
+
+	@Override
+	public BitSet getSelected() {
+		return filtered_fv;
+	}
+
+	public FVStatistics getStatistics() {
+		return fv_stats;
+	}
+
+	public double getEpsilon() {
+		return epsilon;
+	}
+
+	@Override
+	public void setInstrumentation(Instrumentation instrumentation) {
+		this.instrumentation = instrumentation;
+	}
+
+	@Override
+	public void setRandom(Random random) {
+		this.random = random;
+	}
+}
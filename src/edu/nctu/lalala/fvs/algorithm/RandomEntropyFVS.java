@@ -1,143 +1,125 @@
 package edu.nctu.lalala.fvs.algorithm;
 
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
+import java.util.BitSet;
 import java.util.Random;
 
-import edu.nctu.lalala.fvs.FV;
+import edu.nctu.lalala.fvs.FVSContext;
+import edu.nctu.lalala.fvs.FVStatistics;
+import edu.nctu.lalala.fvs.FVTable;
 import edu.nctu.lalala.fvs.interfaces.IFVS;
 import edu.nctu.lalala.util.FVSHelper;
-import edu.nctu.lalala.util.MathHelper;
+import edu.nctu.lalala.util.Instrumentation;
 import weka.core.Instances;
 
 public class RandomEntropyFVS implements IFVS {
 	Instances inst;
 	Instances output;
-	Map<FV, Collection<FV>> fv_list;
-	Map<FV, Collection<FV>> filtered_fv;
+	FVTable fv_table;
+	BitSet filtered_fv;
+	FVStatistics fv_stats;
+	double[] entropies;
 	/**
 	 * epsilon is the parameter for removal rate <br/>
 	 * 0.0 < epsilon <= 1.0 <br/>
 	 * larger epsilon means higher FV removal probability
 	 */
 	double epsilon = 1.0;
+	private Instrumentation instrumentation = Instrumentation.DISABLED;
+	private Random random = new Random();
 
 	public RandomEntropyFVS() {
-		this.filtered_fv = new HashMap<FV, Collection<FV>>();
+		this.filtered_fv = new BitSet();
 	}
 
 	@Override
-	public void input(Instances inst, Instances output, Object... params) {
+	public void input(Instances inst, Instances output, FVSContext context, Object... params) {
 		this.inst = inst;
 		this.output = output;
-		this.fv_list = FVSHelper.getInstance().extractValuesFromData(inst);
+		long time = instrumentation.start();
+		this.fv_table = context.getTable(inst);
+		instrumentation.stop(Instrumentation.EXTRACT, time);
 		if (params.length > 0)
 			this.epsilon = (Double) params[0];
-		preprocessing(inst);
+		preprocessing(inst, context);
 	}
 
-	private void preprocessing(Instances inst) {
-		int[] act_dist = new int[inst.numClasses()];
-		for (int i = 0; i < inst.numInstances(); i++) {
-			act_dist[(int) inst.get(i).classValue()]++;
-		}
-		double act_ent = MathHelper.getInstance().calculateEntropy(act_dist, inst.numInstances(), inst.numClasses());
-		// System.out.println(act_ent);
-
-		/* Generating entropy and frequency for each FV */
-		List<Double> entropies = FVSHelper.getInstance().generateEntropy(fv_list, inst.numInstances(),
-				inst.numClasses());
-		filtered_fv.putAll(fv_list);
-
-		double max_ig = 0.0;
-		double max_su = 0.0;
-		Map<FV, Double> igs = MathHelper.getInstance().calculateIG(fv_list, act_dist, act_ent, this.inst.numClasses());
-		for (Entry<FV, Double> entry : igs.entrySet()) {
-			double ig = entry.getValue();
-			double su = 2 * ig / (entry.getKey().getEntropy() + act_ent);
-			entry.getKey().setIg(ig);
-			max_ig = Math.max(max_ig, ig);
-			entry.getKey().setSymmetricUncertainty(su);
-			max_su = Math.max(max_su, su);
-		}
-		// Normalize to range 0-1
-		if (max_ig > 0.0) {
-			for (Entry<FV, Double> entry : igs.entrySet()) {
-				double ig = entry.getKey().getIg() / max_ig;
-				entry.getKey().setIg(ig);
-				if (max_su > 0.0) {
-					double su = entry.getKey().getSymmetricUncertainty() / max_su;
-					entry.getKey().setSymmetricUncertainty(su);
-				}
-			}
-		}
-
-		// Map<FV, Double> chi = MathHelper.getInstance().calculateChi(fv_list,
-		// this.inst.numClasses());
-		// double max_phi = 0.0;
-		// for (Entry<FV, Double> entry : chi.entrySet()) {
-		// double phi = Math.sqrt(entry.getValue() / this.inst.numInstances()
-		// / Math.min(this.inst.numInstances() - 1, this.inst.numAttributes() -
-		// 1));
-		// max_phi = Math.max(phi, max_phi);
-		// entry.getKey().setPhi(phi);
-		// }
-		// Normalize to range 0-1
-		// if (max_phi > 0.0) {
-		// for (Entry<FV, Double> entry : chi.entrySet()) {
-		// double phi = entry.getKey().getPhi() / max_phi;
-		// entry.getKey().setPhi(phi);
-		// }
-		// }
+	private void preprocessing(Instances inst, FVSContext context) {
+		/* Generating frequency, entropy and information gain for each FV */
+		long time = instrumentation.start();
+		this.fv_stats = context.getStatistics(inst);
+		this.entropies = fv_stats.getEntropy();
+		instrumentation.stop(Instrumentation.SCORE, time);
+		filtered_fv.set(0, fv_table.size());
 	}
 
 	@Override
 	public void applyFVS() {
 		boolean show_information_stats = false;
-		Random random = new Random();
 		// Apply removal
+		long time = instrumentation.start();
 		int removed = 0;
 		double average_entropy = 0.0;
 		double average_ig = 0.0;
-		for (FV k : fv_list.keySet()) {
+		for (int id = 0; id < fv_table.size(); id++) {
 			if (show_information_stats) {
-				average_entropy += k.getEntropy();
-				average_ig += k.getIg();
+				average_entropy += entropies[id];
+				average_ig += fv_stats.normalizedIg(id);
 			}
 			double rr = random.nextFloat() * epsilon;
-			boolean condition = k.getIg() < rr;
+			boolean condition = fv_stats.normalizedIg(id) < rr;
 			if (FVSHelper.getInstance().getInformationMetric().equals("entropy"))
-				condition = k.getEntropy() > rr;
+				condition = entropies[id] > rr;
 			else
-				condition = k.getIg() < rr;
-			// if (k.getEntropy() > (random.nextFloat() * epsilon))
-			// if (k.getPhi() < (random.nextFloat() * epsilon))
-			// if (k.getIg() < (random.nextFloat() * epsilon))
-			// if(k.getSymmetricUncertainty() < (random.nextFloat() * epsilon))
+				condition = fv_stats.normalizedIg(id) < rr;
+			// if (entropies[id] > (random.nextFloat() * epsilon))
+			// if (fv_stats.normalizedPhi(id) < (random.nextFloat() * epsilon))
+			// if (fv_stats.normalizedIg(id) < (random.nextFloat() * epsilon))
+			// if (fv_stats.normalizedSymmetricUncertainty(id) < (random.nextFloat() * epsilon))
 			if (condition) {
-				filtered_fv.remove(k);
+				filtered_fv.clear(id);
 				removed++;
 			}
 		}
+		instrumentation.stop(Instrumentation.SELECT, time);
 		if (show_information_stats) {
-			average_entropy /= fv_list.size();
-			average_ig /= fv_list.size();
+			average_entropy /= fv_table.size();
+			average_ig /= fv_table.size();
 			System.out.println("Entropy: " + average_entropy);
 			System.out.println("IG: " + average_ig);
 		}
 		if (FVSHelper.getInstance().getDebugStatus()) {
 			System.out.println("Removed: " + removed);
-			System.out.println("Filtered FV Size: " + filtered_fv.size());
+			System.out.println("Filtered FV Size: " + filtered_fv.cardinality());
 		}
 	}
 
 	@Override
 	public Instances output() {
 		boolean removeInstance = true;
-		Instances output = FVSHelper.getInstance().transformInstances(inst, this.output, filtered_fv, removeInstance);
+		long time = instrumentation.start();
+		Instances output = FVSHelper.getInstance().transformInstances(inst, this.output, fv_table, filtered_fv,
+				removeInstance, random);
+		instrumentation.stop(Instrumentation.TRANSFORM, time);
 		return output;
 	}
+
+	@Override
+	public FVTable getTable() {
+		return fv_table;
+	}
+
+	@Override
+	public BitSet getSelected() {
+		return filtered_fv;
+	}
+
+	@Override
+	public void setInstrumentation(Instrumentation instrumentation) {
+		this.instrumentation = instrumentation;
+	}
+
+	@Override
+	public void setRandom(Random random) {
+		this.random = random;
+	}
 }
@@ -1,36 +1,38 @@
 package edu.nctu.lalala.fvs.algorithm;
 
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.BitSet;
 import java.util.Random;
 
-import edu.nctu.lalala.fvs.FV;
+import edu.nctu.lalala.fvs.FVSContext;
+import edu.nctu.lalala.fvs.FVTable;
 import edu.nctu.lalala.fvs.interfaces.IFVS;
 import edu.nctu.lalala.util.FVSHelper;
+import edu.nctu.lalala.util.Instrumentation;
 import weka.core.Instances;
 
 public class RandomFVS implements IFVS {
 	Instances inst;
 	Instances output;
-	Map<FV, Collection<FV>> fv_list;
-	Map<FV, Collection<FV>> filtered_fv;
+	FVTable fv_table;
+	BitSet filtered_fv;
 	int total;
 	double epsilon;
+	private Instrumentation instrumentation = Instrumentation.DISABLED;
+	private Random random = new Random();
 
 	public RandomFVS() {
-		this.filtered_fv = new HashMap<FV, Collection<FV>>();
+		this.filtered_fv = new BitSet();
 	}
 
 	@Override
-	public void input(Instances inst, Instances output, Object... params) {
+	public void input(Instances inst, Instances output, FVSContext context, Object... params) {
 		this.inst = inst;
 		this.output = output;
-		this.fv_list = FVSHelper.getInstance().extractValuesFromData(inst);
+		long time = instrumentation.start();
+		this.fv_table = context.getTable(inst);
+		instrumentation.stop(Instrumentation.EXTRACT, time);
 		this.epsilon = (Double) params[0];
-		filtered_fv.putAll(this.fv_list);
+		filtered_fv.set(0, fv_table.size());
 	}
 
 	/**
@@ -43,24 +45,47 @@ public class RandomFVS implements IFVS {
 	@Override
 	public void applyFVS() {
 		// Filter FV based on the algorithm (Random)
-		Random random = new Random();
 		// Apply removal
+		long time = instrumentation.start();
 		int removed = 0;
-		for (FV k : fv_list.keySet()) {
+		for (int id = 0; id < fv_table.size(); id++) {
 			if (epsilon > random.nextFloat()) {
-				filtered_fv.remove(k);
+				filtered_fv.clear(id);
 				removed++;
 			}
 		}
+		instrumentation.stop(Instrumentation.SELECT, time);
 		if (FVSHelper.getInstance().getDebugStatus()) {
 			System.out.println("Removed: " + removed);
-			System.out.println("Filtered FV Size: " + filtered_fv.size());
+			System.out.println("Filtered FV Size: " + filtered_fv.cardinality());
 		}
 	}
 
 	@Override
 	public Instances output() {
-		Instances output = FVSHelper.getInstance().transformInstances(inst, this.output, filtered_fv);
+		long time = instrumentation.start();
+		Instances output = FVSHelper.getInstance().transformInstances(inst, this.output, fv_table, filtered_fv);
+		instrumentation.stop(Instrumentation.TRANSFORM, time);
 		return output;
 	}
+
+	@Override
+	public FVTable getTable() {
+		return fv_table;
+	}
+
+	@Override
+	public BitSet getSelected() {
+		return filtered_fv;
+	}
+
+	@Override
+	public void setInstrumentation(Instrumentation instrumentation) {
+		this.instrumentation = instrumentation;
+	}
+
+	@Override
+	public void setRandom(Random random) {
+		this.random = random;
+	}
 }
@@ -1,16 +1,26 @@
 package edu.nctu.lalala.fvs.evaluation;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.ObjectOutputStream;
-import java.lang.management.ManagementFactory;
-import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.IntConsumer;
 
 import edu.nctu.lalala.enums.ClassifierType;
+import edu.nctu.lalala.enums.FVSPhase;
 import edu.nctu.lalala.enums.PreprocessingType;
 import edu.nctu.lalala.enums.Preprocessing_Algorithm;
+import edu.nctu.lalala.fvs.FVSContext;
+import edu.nctu.lalala.fvs.FVS_Filter;
+import edu.nctu.lalala.fvs.FVSubsets;
+import edu.nctu.lalala.fvs.FVTable;
 import edu.nctu.lalala.util.FVSHelper;
+import edu.nctu.lalala.util.Instrumentation;
+import edu.nctu.lalala.util.ResourceUsage;
 import weka.classifiers.Classifier;
 import weka.classifiers.bayes.NaiveBayes;
 import weka.classifiers.functions.Logistic;
@@ -25,15 +35,46 @@ import weka.filters.Filter;
 import weka.filters.unsupervised.attribute.AddNoise;
 
 public class FVSEvaluation extends weka.classifiers.Evaluation {
+	/**
+	 * Seed of the cross-validation split
+	 */
+	private static final int SEED = 1;
+	/**
+	 * (classifier type, size method, header) --> size of the model trained on
+	 * the header only
+	 */
+	private static final Map<String, Long> BASE_MODEL_SIZE = new ConcurrentHashMap<>();
+	/**
+	 * Pool of the folds which are not run inside a fork-join pool (shared by
+	 * every evaluation)
+	 */
+	private static ForkJoinPool foldPool;
 	private Instances data;
 	private double accuracy;
 	private long modelSize;
 	private long ruleSize;
 	private double runTime;
 	private long memoryUsage;
+	private double cpuTime;
+	private long retainedSize;
+	/**
+	 * CPU time (ms) and allocated memory (KB) of every phase of the IFVS
+	 */
+	private double[] phaseCpuTimes = new double[FVSPhase.values().length];
+	private long[] phaseMemoryUsages = new long[FVSPhase.values().length];
 	private double double_param;
-	
-	MemoryUsage heapMemoryUsage = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+	/**
+	 * Metrics of every fold before averaging (same units as the averages)
+	 */
+	private double[] foldAccuracies = new double[0];
+	private long[] foldModelSizes = new long[0];
+	private long[] foldRuleSizes = new long[0];
+	private double[] foldRunTimes = new double[0];
+	private long[] foldMemoryUsages = new long[0];
+	private double[] foldCpuTimes = new double[0];
+	private long[] foldRetainedSizes = new long[0];
+	private boolean[] foldCacheHits = new boolean[0];
+	private transient Instrumentation instrumentation = Instrumentation.DISABLED;
 
 	public FVSEvaluation(Instances data) throws Exception {
 		super(data);
@@ -55,7 +96,23 @@ public class FVSEvaluation extends weka.classifiers.Evaluation {
 	}
 
 	public void stratifiedFold(ClassifierType type, int folds, Preprocessing_Algorithm p_alg, Filter filter) {
-		int seed = 1;
+		stratifiedFold(type, prepareFolds(folds, p_alg, filter));
+	}
+
+	/**
+	 * Split the data into stratified folds and apply the filter to every fold
+	 * once, the result could be evaluated by several classifiers
+	 * 
+	 * @param folds
+	 * @param p_alg
+	 * @param filter
+	 *            null for no preprocessing
+	 * @return
+	 * @throws IllegalStateException
+	 *             if the filter couldn't be applied on a fold
+	 */
+	public PreparedFolds prepareFolds(int folds, Preprocessing_Algorithm p_alg, Filter filter) {
+		int seed = SEED;
 		Random rand = new Random(seed);
 		Instances randData = new Instances(data);
 		randData.randomize(rand);
@@ -67,25 +124,6 @@ public class FVSEvaluation extends weka.classifiers.Evaluation {
 //			System.err.println("RandData #Instances: " + randData.numInstances());
 //			System.err.println("Stratified kfold: " + folds);
 //		}
-		
-		double[] accuracies = new double[folds];
-		long[] models = new long[folds];
-		long[] rules = new long[folds];
-		double[] run_time = new double[folds];
-		long[] memories = new long[folds];
-
-		/* To get the base model size -- weka dump */
-		long baseModel = 0;
-		Classifier tempClassifier = null;
-		try {
-			tempClassifier = buildClassifier(new Instances(data, 0), type);
-			long[] tempModel = getModelSize(tempClassifier);
-			baseModel = tempModel[0];
-			tempModel = null;
-			// System.err.println("Base model size: " + baseModel);
-		} catch (Exception e1) {
-		}
-		tempClassifier = null;
 
 		/* Adding noise to training data */
 		if (FVSHelper.getInstance().getAddNoise()) {
@@ -101,52 +139,126 @@ public class FVSEvaluation extends weka.classifiers.Evaluation {
 			noise = null;
 		}
 
+		/* Split in order (shared random) */
+		final PreparedFolds prepared = new PreparedFolds(data, folds);
+		if (filter instanceof FVS_Filter && FVSHelper.getInstance().getFoldSubtraction()) {
+			splitBySubtraction(randData, prepared, rand);
+		} else {
+			for (int n = 0; n < folds; n++) {
+				prepared.setTrain(n, randData.trainCV(folds, n, rand));
+				prepared.setTest(n, randData.testCV(folds, n));
+			}
+		}
+		randData = null;
+		if (filter == null)
+			return prepared;
+
+		final PreprocessingType pt = FVSHelper.getInstance().getPreprocessType(p_alg);
+		int parallelism = Math.min(FVSHelper.getInstance().getFoldParallelism(), folds);
+		/*
+		 * Each fold gets its own copy of the filter, the last fold uses the
+		 * original one, thus the filter keeps the state of the last fold as in
+		 * sequential mode
+		 */
+		final Filter[] foldFilters = new Filter[folds];
+		try {
+			for (int n = 0; n < folds - 1 && parallelism > 1; n++)
+				foldFilters[n] = Filter.makeCopy(filter);
+		} catch (Exception e) {
+			System.err.println("Couldn't copy the filter, folds are run sequentially: " + p_alg);
+			parallelism = 1;
+		}
+		for (int n = 0; n < folds; n++)
+			if (foldFilters[n] == null || parallelism <= 1)
+				foldFilters[n] = filter;
+
+		runFolds(folds, parallelism, n -> filterFold(n, prepared, pt, foldFilters[n]));
+		prepared.setFilter(filter);
+		return prepared;
+	}
+
+	/**
+	 * Split the folds in the same way as trainCV and testCV, the FV tables of
+	 * the training folds are derived from the whole data by subtracting the
+	 * test fold (the whole data is extracted once, its cost is a part of the
+	 * build cost of every table)
+	 */
+	private void splitBySubtraction(Instances randData, PreparedFolds prepared, Random rand) {
+		int folds = prepared.numFolds();
+		int numInstances = randData.numInstances();
+		FVSubsets subsets = null;
+		ResourceUsage extractUsage = null;
 		for (int n = 0; n < folds; n++) {
-			Instances train = randData.trainCV(folds, n, rand);
-			Instances test = randData.testCV(folds, n);
-			PreprocessingType pt = FVSHelper.getInstance().getPreprocessType(p_alg);
-
-			if (filter != null) {
-				try {
-					filter.setInputFormat(train);
-				} catch (Exception e) {
-					// TODO Auto-generated catch block
-					e.printStackTrace();
-				}
-				Object[] temp = applyFilter(filter, train, pt);
-				train = (Instances) temp[0];
-				run_time[n] = (double) temp[1];
-				memories[n] = (long) temp[2];
+			int[] rows = FVSubsets.trainRows(numInstances, folds, n, rand);
+			Instances train = new Instances(randData, rows.length);
+			for (int row : rows)
+				train.add(randData.instance(row));
+			prepared.setTrain(n, train);
+			prepared.setTest(n, randData.testCV(folds, n));
+			FVSContext context = FVSContext.forFold(data, folds, n, SEED);
+			if (context.hasTable(train))
+				continue;
+			if (subsets == null) {
+				extractUsage = ResourceUsage.start();
+				subsets = FVSubsets.extract(randData);
+				extractUsage.stop();
 			}
+			ResourceUsage usage = ResourceUsage.start();
+			FVTable table = subsets.derive(rows, FVSubsets.testRows(numInstances, folds, n));
+			usage.stop();
+			usage.add(extractUsage);
+			context.setTable(train, table, usage);
+		}
+	}
 
-			int correct = 0;
-			double accuracy = 0.0;
-			double pred, label;
+	/**
+	 * Train and test the classifier on folds which are already preprocessed,
+	 * the preprocessing cost of the folds is reported as the run time and
+	 * memory usage
+	 * 
+	 * @param type
+	 * @param prepared
+	 * @throws IllegalStateException
+	 *             if a fold failed
+	 */
+	public void stratifiedFold(ClassifierType type, PreparedFolds prepared) {
+		int folds = prepared.numFolds();
+		final double[] accuracies = new double[folds];
+		final long[] models = new long[folds];
+		final long[] rules = new long[folds];
+		final double[] run_time = new double[folds];
+		final long[] memories = new long[folds];
+		final double[] cpu_time = new double[folds];
+		final long[] retained = new long[folds];
 
-			try {
-				Classifier cl = buildClassifier(train, type);
-				long[] tempModel = getModelSize(cl);
-				models[n] = tempModel[0] - baseModel;
-				rules[n] = tempModel[1];
-				tempModel = null;
-				// Apply the same preprocessing to the test dataset
-				if (filter != null && (pt == PreprocessingType.FS)) {
-					Object[] temp = applyFilter(filter, test, pt);
-					test = (Instances) temp[0];
-					run_time[n] += (double) temp[1];
-					memories[n] += (long) temp[2];
-				}
-				for (int i = 0; i < test.numInstances(); i++) {
-					pred = cl.classifyInstance(test.instance(i));
-					label = test.instance(i).classValue();
-					if (pred == label)
-						correct++;
-				}
-				accuracy = (double) correct / test.numInstances();
-				accuracies[n] = accuracy;
-			} catch (Exception e) {
+		/* To get the base model size -- weka dump */
+		final long baseModel = getBaseModelSize(prepared.getHeader(), type);
 
-			}
+		for (int n = 0; n < folds; n++) {
+			run_time[n] = prepared.getUsage(n).getWallTime();
+			memories[n] = prepared.getUsage(n).getAllocatedBytes();
+			cpu_time[n] = prepared.getUsage(n).getCpuTime();
+			retained[n] = prepared.getRetainedSize(n);
+		}
+		int parallelism = Math.min(FVSHelper.getInstance().getFoldParallelism(), folds);
+		runFolds(folds, parallelism, n -> runFold(n, prepared.getTrain(n), prepared.getTest(n), type, baseModel,
+				accuracies, models, rules));
+
+		/* Keep the metrics of every fold */
+		foldAccuracies = accuracies;
+		foldModelSizes = models;
+		foldRuleSizes = rules;
+		foldRunTimes = new double[folds];
+		foldMemoryUsages = new long[folds];
+		foldCpuTimes = new double[folds];
+		foldRetainedSizes = new long[folds];
+		foldCacheHits = new boolean[folds];
+		for (int n = 0; n < folds; n++) {
+			foldCacheHits[n] = prepared.isCacheHit(n);
+			foldRunTimes[n] = run_time[n] / 1000000;
+			foldMemoryUsages[n] = memories[n] / 1024;
+			foldCpuTimes[n] = cpu_time[n] / 1000000;
+			foldRetainedSizes[n] = retained[n] / 1024;
 		}
 
 		/* Calculate metrics */
@@ -176,19 +288,158 @@ public class FVSEvaluation extends weka.classifiers.Evaluation {
 			this.memoryUsage /= memories.length;
 			this.memoryUsage /= (1024);
 		}
+		if (this.cpuTime == 0.0) {
+			for (double x : cpu_time) {
+				this.cpuTime += x;
+			}
+			this.cpuTime /= cpu_time.length;
+			this.cpuTime /= 1000000;
+		}
+		if (this.retainedSize == 0) {
+			for (long x : retained) {
+				this.retainedSize += x;
+			}
+			this.retainedSize /= retained.length;
+			this.retainedSize /= 1024;
+		}
+		for (FVSPhase phase : FVSPhase.values()) {
+			double cpu = 0;
+			long memory = 0;
+			for (int n = 0; n < folds; n++) {
+				cpu += prepared.getPhaseUsage(n, phase).getCpuTime();
+				memory += prepared.getPhaseUsage(n, phase).getAllocatedBytes();
+			}
+			phaseCpuTimes[phase.ordinal()] = cpu / folds / 1000000;
+			phaseMemoryUsages[phase.ordinal()] = memory / folds / 1024;
+		}
 
 		/* Clearing the memory */
-		accuracies = null;
-		models = null;
-		rules = null;
-		run_time = null;
-		memories = null;
-
 		System.gc();
 
 		// System.err.println(this.accuracy);
 	}
 
+	/**
+	 * Run every fold, as fork-join subtasks if the parallelism is more than 1:
+	 * in the current pool if it is parallel (e.g. the cells of the grid),
+	 * otherwise in the shared fold pool. The exception of a failed fold is
+	 * thrown again, thus the cell fails instead of averaging an empty fold.
+	 */
+	private static void runFolds(int folds, int parallelism, IntConsumer fold) {
+		if (parallelism <= 1) {
+			for (int n = 0; n < folds; n++)
+				fold.accept(n);
+			return;
+		}
+		List<ForkJoinTask<?>> tasks = new ArrayList<>();
+		for (int n = 0; n < folds; n++) {
+			final int index = n;
+			tasks.add(ForkJoinTask.adapt(() -> fold.accept(index)));
+		}
+		if (ForkJoinTask.inForkJoinPool() && ForkJoinTask.getPool().getParallelism() > 1)
+			ForkJoinTask.invokeAll(tasks);
+		else
+			getFoldPool().invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+	}
+
+	private static synchronized ForkJoinPool getFoldPool() {
+		if (foldPool == null)
+			foldPool = new ForkJoinPool(FVSHelper.getInstance().getFoldParallelism());
+		return foldPool;
+	}
+
+	/**
+	 * Filter the training data of a single fold (and the test data for
+	 * feature selection)
+	 */
+	private void filterFold(int n, PreparedFolds prepared, PreprocessingType pt, Filter filter) {
+		/*
+		 * FV statistics of the fold are shared by every FVS parameter, the
+		 * random generator of the fold doesn't depend on the other folds
+		 */
+		if (filter instanceof FVS_Filter) {
+			((FVS_Filter) filter).setContext(FVSContext.forFold(data, prepared.numFolds(), n, SEED));
+			((FVS_Filter) filter).setInstrumentation(instrumentation);
+			((FVS_Filter) filter).setRandom(new Random(SEED * 31 + n));
+		}
+		try {
+			filter.setInputFormat(prepared.getTrain(n));
+		} catch (Exception e) {
+			throw new IllegalStateException("Couldn't set the input format of fold " + n + ": " + pt, e);
+		}
+		Object[] temp = applyFilter(filter, prepared.getTrain(n), pt);
+		if (temp[0] == null)
+			throw new IllegalStateException("Couldn't apply the filter on fold " + n + ": " + pt);
+		prepared.setTrain(n, (Instances) temp[0]);
+		addUsage(n, prepared, temp);
+		if (filter instanceof FVS_Filter)
+			prepared.setCacheHit(n, ((FVS_Filter) filter).isContextCacheHit());
+		// Apply the same preprocessing to the test dataset
+		/* FVS_Filter streams the test instances through the fitted selection */
+		if (pt == PreprocessingType.FS
+				|| (pt == PreprocessingType.FVS && FVSHelper.getInstance().getTransformTest())) {
+			temp = applyFilter(filter, prepared.getTest(n), pt);
+			if (temp[0] == null)
+				throw new IllegalStateException("Couldn't apply the filter on test fold " + n + ": " + pt);
+			prepared.setTest(n, (Instances) temp[0]);
+			addUsage(n, prepared, temp);
+		}
+	}
+
+	/**
+	 * Add the resources of an applied filter into the fold
+	 * 
+	 * @param results
+	 *            results of {@link #applyFilter(Filter, Instances, PreprocessingType)}
+	 */
+	private void addUsage(int n, PreparedFolds prepared, Object[] results) {
+		prepared.addUsage(n, (ResourceUsage) results[1]);
+		prepared.addRetainedSize(n, (long) results[2]);
+		ResourceUsage[] phases = (ResourceUsage[]) results[3];
+		for (FVSPhase phase : FVSPhase.values())
+			if (phases != null)
+				prepared.addPhaseUsage(n, phase, phases[phase.ordinal()]);
+	}
+
+	/**
+	 * Train and test a single fold, the results are written into index
+	 * <b>n</b> of the arrays
+	 * 
+	 * @throws IllegalStateException
+	 *             if the classifier couldn't be trained or tested
+	 */
+	private void runFold(int n, Instances train, Instances test, ClassifierType type, long baseModel,
+			double[] accuracies, long[] models, long[] rules) {
+		int correct = 0;
+		double accuracy = 0.0;
+		double pred, label;
+
+		try {
+			long time = instrumentation.start();
+			Classifier cl = buildClassifier(train, type);
+			instrumentation.stop(Instrumentation.TRAIN, time);
+			time = instrumentation.start();
+			long[] tempModel = getModelSize(cl, train);
+			instrumentation.stop(Instrumentation.MODEL_SIZE, time);
+			models[n] = tempModel[0] - baseModel;
+			rules[n] = tempModel[1];
+			tempModel = null;
+			time = instrumentation.start();
+			for (int i = 0; i < test.numInstances(); i++) {
+				pred = cl.classifyInstance(test.instance(i));
+				label = test.instance(i).classValue();
+				if (pred == label)
+					correct++;
+			}
+			instrumentation.stop(Instrumentation.CLASSIFY, time);
+			instrumentation.count("test_instances", test.numInstances());
+			accuracy = (double) correct / test.numInstances();
+			accuracies[n] = accuracy;
+		} catch (Exception e) {
+			throw new IllegalStateException("Fold " + n + " failed: " + type, e);
+		}
+	}
+
 	public double getAccuracy() {
 		return this.accuracy;
 	}
@@ -205,11 +456,100 @@ public class FVSEvaluation extends weka.classifiers.Evaluation {
 		return this.runTime;
 	}
 
+	/**
+	 * Memory allocated by the preprocessing thread (KB)
+	 */
 	public long getMemoryUsage() {
 		return this.memoryUsage;
 	}
 
-	private long[] getModelSize(Classifier cl) {
+	/**
+	 * CPU time of the preprocessing thread (ms)
+	 */
+	public double getCpuTime() {
+		return this.cpuTime;
+	}
+
+	/**
+	 * Estimated size of the preprocessed data (KB)
+	 */
+	public long getRetainedSize() {
+		return this.retainedSize;
+	}
+
+	/**
+	 * CPU time of a phase of the IFVS (ms, 0 for other filters)
+	 */
+	public double getPhaseCpuTime(FVSPhase phase) {
+		return phaseCpuTimes[phase.ordinal()];
+	}
+
+	/**
+	 * Memory allocated by a phase of the IFVS (KB, 0 for other filters)
+	 */
+	public long getPhaseMemoryUsage(FVSPhase phase) {
+		return phaseMemoryUsages[phase.ordinal()];
+	}
+
+	/**
+	 * Accuracy of every fold
+	 */
+	public double[] getFoldAccuracies() {
+		return foldAccuracies.clone();
+	}
+
+	public long[] getFoldModelSizes() {
+		return foldModelSizes.clone();
+	}
+
+	public long[] getFoldRuleSizes() {
+		return foldRuleSizes.clone();
+	}
+
+	public double[] getFoldRunTimes() {
+		return foldRunTimes.clone();
+	}
+
+	public long[] getFoldMemoryUsages() {
+		return foldMemoryUsages.clone();
+	}
+
+	public double[] getFoldCpuTimes() {
+		return foldCpuTimes.clone();
+	}
+
+	public long[] getFoldRetainedSizes() {
+		return foldRetainedSizes.clone();
+	}
+
+	/**
+	 * Folds whose statistics were loaded from the persistent cache
+	 */
+	public boolean[] getFoldCacheHits() {
+		return foldCacheHits.clone();
+	}
+
+	/**
+	 * Size of the model trained on the header only, computed once per
+	 * classifier type and header (0 if it couldn't be trained)
+	 */
+	private long getBaseModelSize(Instances header, ClassifierType type) {
+		boolean structural = FVSHelper.getInstance().getStructuralModelSize();
+		String key = type + ":" + structural + ":" + header.toString();
+		return BASE_MODEL_SIZE.computeIfAbsent(key, k -> {
+			try {
+				return getModelSize(buildClassifier(header, type), header)[0];
+			} catch (Exception e) {
+				return 0L;
+			}
+		});
+	}
+
+	/**
+	 * @return model size (serialized or structural, see
+	 *         {@link ModelSizeEstimator}) and number of rules
+	 */
+	private long[] getModelSize(Classifier cl, Instances header) {
 		long[] result = new long[2];
 		long modelSize, rule;
 		modelSize = 0;
@@ -226,18 +566,12 @@ public class FVSEvaluation extends weka.classifiers.Evaluation {
 			} catch (Exception e) {
 			}
 		}
-		ObjectOutputStream oos;
-		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		if (FVSHelper.getInstance().getStructuralModelSize())
+			modelSize = ModelSizeEstimator.estimate(cl, header);
 		try {
-			oos = new ObjectOutputStream(baos);
-			oos.writeObject(cl);
-			oos.flush();
-			baos.flush();
-			modelSize = baos.size();
-			oos.close();
-			baos.close();
-			baos = null;
-			oos = null;
+			/* Serialized size if the structure is not supported */
+			if (modelSize <= 0)
+				modelSize = ModelSizeEstimator.serializedSize(cl);
 		} catch (IOException e) {
 
 		} catch (Exception e) {
@@ -299,18 +633,35 @@ public class FVSEvaluation extends weka.classifiers.Evaluation {
 		return c;
 	}
 
+	/**
+	 * @return filtered data, resources used by the filter
+	 *         ({@link ResourceUsage}), estimated size of the filtered data
+	 *         (bytes) and resources of every {@link FVSPhase} (null if the
+	 *         filter is not an FVS_Filter)
+	 */
 	private Object[] applyFilter(Filter filter, Instances data, PreprocessingType pt) {
-		Object[] results = new Object[3];
+		Object[] results = new Object[4];
 		try {
-//			double beforeMem = (Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory()) / (1024);
-			double time = System.nanoTime();
+			ResourceUsage usage = ResourceUsage.start();
 			data = Filter.useFilter(data, filter);
+			usage.stop();
+			/* Every fold is charged with the build cost of the shared statistics */
+			if (filter instanceof FVS_Filter) {
+				usage.subtract(((FVS_Filter) filter).getContextCallUsage());
+				usage.add(((FVS_Filter) filter).getContextBuildUsage());
+			}
+			/* The phases of an FVS_Filter are recorded by its IFVS */
+			if (!(filter instanceof FVS_Filter))
+				instrumentation.record(Instrumentation.FILTER, usage.getWallTime());
 			results[0] = data;
-			time = (System.nanoTime() - time);
-			results[1] = time;
-//			double afterMem = (Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory()) / (1024);
-//			results[2] = Math.abs(afterMem - beforeMem);
-			results[2] = heapMemoryUsage.getUsed() / (1024);
+			results[1] = usage;
+			results[2] = ResourceUsage.retainedSize(data);
+			if (filter instanceof FVS_Filter) {
+				ResourceUsage[] phases = new ResourceUsage[FVSPhase.values().length];
+				for (FVSPhase phase : FVSPhase.values())
+					phases[phase.ordinal()] = ((FVS_Filter) filter).getPhaseUsage(phase);
+				results[3] = phases;
+			}
 
 		} catch (Exception e) {
 			System.err.println("Error in applying filter in training data: " + pt);
@@ -319,6 +670,13 @@ public class FVSEvaluation extends weka.classifiers.Evaluation {
 		return results;
 	}
 
+	/**
+	 * Timers of the preprocessing and the classification
+	 */
+	public void setInstrumentation(Instrumentation instrumentation) {
+		this.instrumentation = instrumentation;
+	}
+
 	public double getDouble_param() {
 		return double_param;
 	}
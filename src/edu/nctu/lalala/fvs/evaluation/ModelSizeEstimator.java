@@ -0,0 +1,135 @@
+package edu.nctu.lalala.fvs.evaluation;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+
+import edu.nctu.lalala.util.CountingOutputStream;
+import weka.classifiers.Classifier;
+import weka.classifiers.bayes.NaiveBayes;
+import weka.classifiers.rules.JRip;
+import weka.classifiers.rules.Rule;
+import weka.classifiers.trees.J48;
+import weka.core.Instances;
+import weka.estimators.DiscreteEstimator;
+import weka.estimators.Estimator;
+import weka.estimators.KernelEstimator;
+
+/**
+ * Size of a trained model: the serialized size (counted without keeping the
+ * bytes), or a structural estimation which walks the model of J48, JRip and
+ * NaiveBayes without serializing it. <br/>
+ * The structural estimation approximates the objects of the model on a 64-bit
+ * JVM with compressed references (tree nodes with their split and class
+ * distribution, rules with their antecedents, estimators of every attribute
+ * and class). The header of the data is not counted since it is the same for
+ * the base model.
+ *
+ * @author Gunarto Sindoro Njoo
+ * @version 1.0
+ * @category Evaluation
+ */
+public class ModelSizeEstimator {
+	private static final int OBJECT = 16;
+	private static final int ARRAY = 16;
+	private static final int REFERENCE = 4;
+	private static final int DOUBLE = 8;
+	/**
+	 * ClassifierTree, its split model (C45Split or NoSplit) and Distribution
+	 */
+	private static final int TREE_NODE = OBJECT + 6 * REFERENCE + 2;
+	private static final int SPLIT_MODEL = OBJECT + 4 * DOUBLE + 4 * REFERENCE;
+	private static final int DISTRIBUTION = OBJECT + DOUBLE + 3 * REFERENCE;
+	/**
+	 * RipperRule and its antecedents (NominalAntd or NumericAntd)
+	 */
+	private static final int RULE = OBJECT + DOUBLE + 2 * REFERENCE;
+	private static final int LIST = OBJECT + 2 * 4 + REFERENCE;
+	private static final int ANTECEDENT = OBJECT + 6 * DOUBLE + 3 * REFERENCE;
+	private static final int ESTIMATOR = OBJECT + 4 * DOUBLE;
+
+	private ModelSizeEstimator() {
+	}
+
+	/**
+	 * Number of bytes of the Java serialization of the object
+	 */
+	public static long serializedSize(Object object) throws IOException {
+		CountingOutputStream counter = new CountingOutputStream();
+		try (ObjectOutputStream oos = new ObjectOutputStream(counter)) {
+			oos.writeObject(object);
+			oos.flush();
+			return counter.getCount();
+		}
+	}
+
+	/**
+	 * Structural size of the model
+	 *
+	 * @param cl
+	 *            trained classifier
+	 * @param header
+	 *            header of the training data
+	 * @return -1 if the classifier is not supported
+	 */
+	public static long estimate(Classifier cl, Instances header) {
+		if (cl instanceof J48)
+			return estimateTree((J48) cl, header.numClasses());
+		if (cl instanceof JRip)
+			return estimateRules((JRip) cl, header.numClasses());
+		if (cl instanceof NaiveBayes)
+			return estimateBayes((NaiveBayes) cl);
+		return -1;
+	}
+
+	/**
+	 * Every node has a class distribution per branch (a leaf has one branch),
+	 * thus the branches are the sons of the inner nodes plus the leaves
+	 */
+	private static long estimateTree(J48 tree, int numClasses) {
+		long nodes = (long) tree.measureTreeSize();
+		long leaves = (long) tree.measureNumLeaves();
+		long branches = nodes - 1 + leaves;
+		long size = nodes * (TREE_NODE + SPLIT_MODEL + DISTRIBUTION + 3 * ARRAY + DOUBLE * numClasses);
+		size += (nodes - leaves) * ARRAY + (nodes - 1) * REFERENCE;
+		size += branches * (REFERENCE + ARRAY + DOUBLE * numClasses + DOUBLE);
+		return size;
+	}
+
+	private static long estimateRules(JRip rip, int numClasses) {
+		long size = LIST + ARRAY;
+		for (Rule rule : rip.getRuleset()) {
+			size += REFERENCE + RULE + LIST + ARRAY;
+			if (rule instanceof JRip.RipperRule)
+				size += ((JRip.RipperRule) rule).getAntds().size() * (REFERENCE + ANTECEDENT);
+			/* Class distribution of the rule */
+			size += REFERENCE + ARRAY + DOUBLE * numClasses;
+		}
+		return size;
+	}
+
+	private static long estimateBayes(NaiveBayes bayes) {
+		long size = estimateEstimator(bayes.getClassEstimator());
+		Estimator[][] estimators = bayes.getConditionalEstimators();
+		if (estimators == null)
+			return size;
+		size += ARRAY + estimators.length * REFERENCE;
+		for (Estimator[] row : estimators) {
+			if (row == null)
+				continue;
+			size += ARRAY + row.length * REFERENCE;
+			for (Estimator estimator : row)
+				size += estimateEstimator(estimator);
+		}
+		return size;
+	}
+
+	private static long estimateEstimator(Estimator estimator) {
+		if (estimator == null)
+			return 0;
+		if (estimator instanceof DiscreteEstimator)
+			return ESTIMATOR + ARRAY + DOUBLE * ((DiscreteEstimator) estimator).getNumSymbols();
+		if (estimator instanceof KernelEstimator)
+			return ESTIMATOR + 2 * (ARRAY + DOUBLE * ((KernelEstimator) estimator).getNumKernels());
+		return ESTIMATOR;
+	}
+}
@@ -0,0 +1,129 @@
+package edu.nctu.lalala.fvs.evaluation;
+
+import edu.nctu.lalala.enums.FVSPhase;
+import edu.nctu.lalala.util.ResourceUsage;
+import weka.core.Instances;
+import weka.filters.Filter;
+
+/**
+ * Cross-validation folds of a dataset which are already split and
+ * preprocessed, thus every classifier could be trained and tested on the same
+ * folds without applying the filter again. <br/>
+ * The resources used by the preprocessing (in total and per phase of an IFVS)
+ * and the retained size of its output are kept per fold, and reported by
+ * every classifier using these folds, together with the folds whose
+ * statistics were loaded from the persistent cache.
+ *
+ * @author Gunarto Sindoro Njoo
+ * @version 1.0
+ * @category Data Object
+ */
+public class PreparedFolds {
+	private final Instances header;
+	private final Instances[] train;
+	private final Instances[] test;
+	private final ResourceUsage[] usage;
+	private final ResourceUsage[][] phaseUsage;
+	private final long[] retainedSize;
+	private final boolean[] cacheHit;
+	private Filter filter;
+
+	public PreparedFolds(Instances header, int folds) {
+		this.header = new Instances(header, 0);
+		this.train = new Instances[folds];
+		this.test = new Instances[folds];
+		this.usage = new ResourceUsage[folds];
+		this.phaseUsage = new ResourceUsage[folds][FVSPhase.values().length];
+		this.retainedSize = new long[folds];
+		this.cacheHit = new boolean[folds];
+		for (int n = 0; n < folds; n++) {
+			usage[n] = new ResourceUsage();
+			for (int p = 0; p < phaseUsage[n].length; p++)
+				phaseUsage[n][p] = new ResourceUsage();
+		}
+	}
+
+	public int numFolds() {
+		return train.length;
+	}
+
+	/**
+	 * Header of the original data
+	 */
+	public Instances getHeader() {
+		return header;
+	}
+
+	public Instances getTrain(int fold) {
+		return train[fold];
+	}
+
+	public void setTrain(int fold, Instances data) {
+		train[fold] = data;
+	}
+
+	public Instances getTest(int fold) {
+		return test[fold];
+	}
+
+	public void setTest(int fold, Instances data) {
+		test[fold] = data;
+	}
+
+	/**
+	 * Resources used by the preprocessing of the fold
+	 */
+	public ResourceUsage getUsage(int fold) {
+		return usage[fold];
+	}
+
+	public void addUsage(int fold, ResourceUsage usage) {
+		this.usage[fold].add(usage);
+	}
+
+	/**
+	 * Resources used by a phase of the IFVS in the fold (nothing for other
+	 * filters)
+	 */
+	public ResourceUsage getPhaseUsage(int fold, FVSPhase phase) {
+		return phaseUsage[fold][phase.ordinal()];
+	}
+
+	public void addPhaseUsage(int fold, FVSPhase phase, ResourceUsage usage) {
+		phaseUsage[fold][phase.ordinal()].add(usage);
+	}
+
+	/**
+	 * Estimated size of the preprocessed data of the fold (bytes)
+	 */
+	public long getRetainedSize(int fold) {
+		return retainedSize[fold];
+	}
+
+	public void addRetainedSize(int fold, long size) {
+		retainedSize[fold] += size;
+	}
+
+	/**
+	 * Check whether the statistics of the fold were loaded from the
+	 * persistent cache (the fit cost is the loading only)
+	 */
+	public boolean isCacheHit(int fold) {
+		return cacheHit[fold];
+	}
+
+	public void setCacheHit(int fold, boolean cacheHit) {
+		this.cacheHit[fold] = cacheHit;
+	}
+
+	/**
+	 * Filter of the last fold (null if there is no preprocessing)
+	 */
+	public Filter getFilter() {
+		return filter;
+	}
+
+	public void setFilter(Filter filter) {
+		this.filter = filter;
+	}
+}
@@ -1,9 +1,46 @@
 package edu.nctu.lalala.fvs.interfaces;
 
+import java.util.BitSet;
+import java.util.Random;
+
+import edu.nctu.lalala.fvs.FVSContext;
+import edu.nctu.lalala.fvs.FVTable;
+import edu.nctu.lalala.util.Instrumentation;
 import weka.core.Instances;
 
 public interface IFVS {
-	public void input(Instances inst, Instances output, Object... params);
+	/**
+	 * @param inst
+	 *            training data
+	 * @param output
+	 *            output format
+	 * @param context
+	 *            fitted statistics of the training data (shared between
+	 *            parameters)
+	 * @param params
+	 */
+	public void input(Instances inst, Instances output, FVSContext context, Object... params);
 	public void applyFVS();
 	public Instances output();
+
+	/**
+	 * FV table of the training data (null before input)
+	 */
+	public FVTable getTable();
+
+	/**
+	 * Ids of the selected FVs in the table (after applyFVS)
+	 */
+	public BitSet getSelected();
+
+	/**
+	 * Timers of the phases (extract, score, threshold, select and transform)
+	 */
+	public void setInstrumentation(Instrumentation instrumentation);
+
+	/**
+	 * Random generator of the removal (an unseeded one is used if it is not
+	 * set)
+	 */
+	public void setRandom(Random random);
 }
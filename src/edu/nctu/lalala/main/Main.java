@@ -1,29 +1,41 @@
 package edu.nctu.lalala.main;
 
 import java.io.File;
-import java.io.FileWriter;
-import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
 
 import edu.nctu.lalala.enums.ClassifierType;
 import edu.nctu.lalala.enums.DiscretizationType;
+import edu.nctu.lalala.enums.FVSPhase;
 import edu.nctu.lalala.enums.PreprocessingType;
 import edu.nctu.lalala.enums.Preprocessing_Algorithm;
 import edu.nctu.lalala.enums.ThresholdType;
 import edu.nctu.lalala.fvs.FVS_Filter;
 import edu.nctu.lalala.fvs.algorithm.EntropyFVS;
 import edu.nctu.lalala.fvs.evaluation.FVSEvaluation;
+import edu.nctu.lalala.fvs.evaluation.PreparedFolds;
+import edu.nctu.lalala.util.ArffParser;
 import edu.nctu.lalala.util.FVSHelper;
+import edu.nctu.lalala.util.Instrumentation;
+import edu.nctu.lalala.util.ReportSink;
 import weka.attributeSelection.CfsSubsetEval;
 import weka.attributeSelection.ConsistencySubsetEval;
 import weka.classifiers.Classifier;
 import weka.classifiers.rules.JRip;
 import weka.classifiers.trees.J48;
 import weka.core.Instances;
-import weka.core.converters.ConverterUtils.DataSource;
 import weka.filters.Filter;
 import weka.filters.supervised.attribute.AttributeSelection;
 import weka.filters.supervised.attribute.NominalToBinary;
@@ -46,7 +58,7 @@ public class Main {
 	private static final String NUMERIC_FOLDER = DEFAULT_DATASET_FOLDER + "/numeric/";
 	private static final String TEST_FOLDER = DEFAULT_DATASET_FOLDER + "/run/";
 	private static final String REPORT_FOLDER = "report" + "/";
-	private static final String REPORT_HEADER = "User\tMethod\tClassifier\tDiscretization\tThreshold\tAccuracy\t#Rules\tDouble param\tFile Size\tRunning Time(ms)\tMemory Usage(KB)\tNoise\n";
+	public static final String REPORT_HEADER = "User\tMethod\tClassifier\tDiscretization\tThreshold\tAccuracy\t#Rules\tDouble param\tFile Size\tRunning Time(ms)\tMemory Usage(KB)\tNoise\tCPU Time(ms)\tRetained Size(KB)\tFit CPU(ms)\tFit Memory(KB)\tSelection CPU(ms)\tSelection Memory(KB)\tTransform CPU(ms)\tTransform Memory(KB)\n";
 	/**
 	 * Method - String<br/>
 	 * Classification Algorithm - String <br/>
@@ -55,8 +67,10 @@ public class Main {
 	 * Accuracy - Float <br/>
 	 * Model Size - Integer <br/>
 	 * Double Param - Float <br/>
+	 * Memory Usage - Integer (allocated by the preprocessing thread) <br/>
+	 * Fit, Selection and Transform - phases of FVS (0 for other methods) <br/>
 	 */
-	private static final String REPORT_FORMAT = "%s\t%s\t%s\t%s\t%s\t%.3f\t%d\t%.3f\t%d\t%.3f\t%d\t%d\n";
+	private static final String REPORT_FORMAT = "%s\t%s\t%s\t%s\t%s\t%.3f\t%d\t%.3f\t%d\t%.3f\t%d\t%d\t%.3f\t%d\t%.3f\t%d\t%.3f\t%d\t%.3f\t%d\n";
 
 	private int CROSS_VALIDATION = 10;
 
@@ -64,6 +78,11 @@ public class Main {
 
 	public static int NUMBER_OF_CLASS = 6;
 
+	/**
+	 * Report files of every dataset (TSV and JSON lines)
+	 */
+	private ReportSink reportSink;
+
 	/**
 	 * static Singleton instance
 	 */
@@ -95,7 +114,6 @@ public class Main {
 	 * @param args
 	 */
 	private void program(String[] args) {
-		PreprocessingType pt;
 		System.out.println("Program Started");
 		System.out.println(new Date());
 		/************************/
@@ -154,186 +172,342 @@ public class Main {
 		List<ThresholdType> tts = FVSHelper.getInstance().getThresholdType(config);
 		List<Preprocessing_Algorithm> fas = FVSHelper.getInstance().getPreprocessing_Algorithm(config);
 
-		MathExpression mathexpr = new MathExpression();
-		mathexpr.setIgnoreRange("4-6,13-14");
-		mathexpr.setInvertSelection(true);
-		try {
-			mathexpr.setExpression("A*100000");
-		} catch (Exception e1) {
-			e1.printStackTrace();
-		}
+		/*
+		 * The grid is expanded into independent experiments (dataset x
+		 * discretization x preprocessing x parameter), loading and
+		 * discretization are shared as upstream tasks, the classifiers of an
+		 * experiment share its folds
+		 */
+		int parallelism = FVSHelper.getInstance().getGridParallelism();
+		ForkJoinPool executor = new ForkJoinPool(parallelism, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null,
+				true);
+		List<Experiment> experiments = expandGrid(fas, tts);
+		reportSink = new ReportSink(REPORT_FOLDER, REPORT_HEADER);
+		List<CompletableFuture<Void>> tasks = new ArrayList<>();
+		LongAdder cellTime = new LongAdder();
+		LongAdder cellCount = new LongAdder();
+		long startTime = System.nanoTime();
 		// For each file
 		for (String datasetName : folder.list()) {
 			if (!datasetName.endsWith(".arff"))
 				continue;
+			// Only load data if necessary (no cache)
+			boolean load_data = false;
+			for (DiscretizationType dis_alg : dis) {
+				if (dis_alg == DiscretizationType.None
+						|| !FVSHelper.getInstance().isIntermediateExist(getCacheName(datasetName, dis_alg)))
+					load_data = true;
+			}
+			final String datasetFile = lookupFolder + datasetName;
+			/* Timers of the dataset, reported when every task of the dataset is finished */
+			Instrumentation instrumentation = new Instrumentation(FVSHelper.getInstance().getInstrumentation());
+			List<CompletableFuture<Void>> datasetTasks = new ArrayList<>();
+			CompletableFuture<Instances> data = load_data
+					? CompletableFuture.supplyAsync(() -> loadDataset(datasetFile, datasetName, instrumentation),
+							executor)
+					: CompletableFuture.completedFuture(null);
+			// For each discretization
+			for (DiscretizationType dis_alg : dis) {
+				CompletableFuture<Instances> discretized = data
+						.thenApplyAsync(d -> prepareDiscretized(d, datasetName, dis_alg, instrumentation), executor);
+				/*
+				 * For each pre-processing and parameter, the folds are prepared
+				 * once and shared by every classifier
+				 */
+				for (Experiment experiment : experiments) {
+					List<ClassifierType> types = getClassifiers(cts, experiment);
+					if (types.isEmpty())
+						continue;
+					datasetTasks.add(discretized.thenAcceptAsync(instances -> {
+						if (instances == null)
+							return;
+						long time = System.nanoTime();
+						runExperiment(types, datasetName, dis_alg, instances, experiment, parallelism > 1,
+								instrumentation);
+						cellTime.add(System.nanoTime() - time);
+						cellCount.add(types.size());
+					}, executor));
+				}
+			}
+			tasks.addAll(datasetTasks);
+			if (instrumentation.isEnabled())
+				tasks.add(CompletableFuture.allOf(datasetTasks.toArray(new CompletableFuture<?>[0]))
+						.handle((result, e) -> {
+							writeInstrumentation(datasetName, instrumentation);
+							return null;
+						}));
+		} // For each file
+
+		for (CompletableFuture<Void> task : tasks) {
 			try {
-				System.out.println(datasetName);
-				// Load original data
-				Instances data = null;
-				// For each discretization
-				for (DiscretizationType dis_alg : dis) {
-					// Create discretized set
-					Instances discretized = null;
-					boolean load_discretized = false;
-					String noise_name = "";
-					String discretized_cachename = String.format("%s_%s", datasetName.replace(".arff", ""),
-							dis_alg.toString());
-					if (dis_alg != DiscretizationType.None) {
-						if (FVSHelper.getInstance().isIntermediateExist(discretized_cachename))
-							discretized = FVSHelper.getInstance().loadIntermediateInstances(discretized_cachename);
-					}
-					if (discretized == null) {
-						if (data == null || data.numInstances() <= 0) {
-							// Only load data if necessary (no cache)
-							data = loadData(lookupFolder + datasetName);
-							/*
-							 * Delete timestamp (NCTU and OPP) or user id (HAR)
-							 */
-							data.deleteAttributeAt(0);
-							/* Adjust GPS_X and GPS_Y in NCTU dataset */
-							if (datasetName.contains("agg")) {
-								mathexpr.setInputFormat(data);
-								data = Filter.useFilter(data, mathexpr);
-							}
-						}
-						if (dis_alg != DiscretizationType.None)
-							discretized = discretize(data, dis_alg);
-						else
-							discretized = data;
-					} else
-						load_discretized = true;
-					FVSHelper.getInstance().logFile("Discertization: " + dis_alg);
-					if (IS_LOG_INTERMEDIATE && !load_discretized)
-						FVSHelper.getInstance().saveIntermediateInstances(discretized, discretized_cachename);
-					FVSHelper.getInstance().logFile(String.format("File %s has been loaded completely", datasetName));
-
-					/* Nominal to Binary */
-					// System.out.println(discretized.numAttributes());
-					// discretized = binarize(discretized);
-					// System.out.println(discretized.numAttributes());
-
-					/* Set the number of class */
-					NUMBER_OF_CLASS = discretized.numClasses();
-
-					/* For each pre-processing */
-					for (Preprocessing_Algorithm p_alg : fas) {
-						FVSHelper.getInstance().logFile("Preprocessing: " + p_alg);
-						pt = FVSHelper.getInstance().getPreprocessType(p_alg);
-						FVSHelper.getInstance().logFile("Preprocess type: " + pt);
-						if (p_alg == Preprocessing_Algorithm.Original) {
-							runEvaluation(cts, datasetName, dis_alg, discretized, p_alg, "Original", -999,
-									ThresholdType.NA, null);
-						} else if (pt == PreprocessingType.FVS) {
-							if (p_alg == Preprocessing_Algorithm.FVS_Random
-									|| p_alg == Preprocessing_Algorithm.FVS_Random_Entropy
-									|| p_alg == Preprocessing_Algorithm.FVS_Probabilistic) {
-								for (int i = 0; i < DOUBLE_PARAMS.length; i++) {
-									Double double_param = DOUBLE_PARAMS[i];
-									if (double_param == 1 && p_alg == Preprocessing_Algorithm.FVS_Random)
-										continue;
-									else if (double_param == 0)
-										continue;
-									Filter filter = getFVS(p_alg, ThresholdType.Iteration, discretized.numInstances(),
-											double_param);
-									runEvaluation(cts, datasetName, dis_alg, discretized, p_alg,
-											(p_alg + " : " + double_param), double_param, ThresholdType.Iteration,
-											filter);
-									filter = null;
-								}
-							} else if (p_alg == Preprocessing_Algorithm.FVS_Entropy) {
-								for (ThresholdType thr_alg : tts) {
-									if (thr_alg == ThresholdType.NA)
-										continue;
-									if (thr_alg == ThresholdType.Iteration) {
-										for (int i = 0; i < DOUBLE_PARAMS.length; i++) {
-											Double double_param = DOUBLE_PARAMS[i];
-											if ((double_param == 1 || double_param == 0))
-												continue;
-											Filter filter = getFVS(p_alg, ThresholdType.Iteration,
-													discretized.numInstances(), double_param);
-											runEvaluation(cts, datasetName, dis_alg, discretized, p_alg,
-													("FVS Entropy Iteration : " + double_param), double_param,
-													ThresholdType.Iteration, filter);
-											filter = null;
-										}
-									} else {
-										Filter filter = getFVS(p_alg, thr_alg, discretized.numInstances(), 0.0);
-										runEvaluation(cts, datasetName, dis_alg, discretized, p_alg, p_alg.toString(),
-												0.0, thr_alg, filter);
-										filter = null;
-									}
-								}
-							} else if (p_alg == Preprocessing_Algorithm.FVS_Correlation) {
-								for (ThresholdType thr_alg : tts) {
-									if (thr_alg == ThresholdType.NA || thr_alg == ThresholdType.Iteration)
-										continue;
-									for (int i = 0; i < DOUBLE_PARAMS.length; i++) {
-										Double double_param = DOUBLE_PARAMS[i];
-										if ((double_param == 1 || double_param == 0))
-											continue;
-										Filter filter = getFVS(p_alg, thr_alg, discretized.numInstances(),
-												double_param);
-										runEvaluation(cts, datasetName, dis_alg,
-												discretized, p_alg, String.format("FVS Correlation (%s) : %.1f ",
-														thr_alg.toString(), double_param),
-												double_param, thr_alg, filter);
-										filter = null;
-									}
-								}
-							}
-						} else if (pt != PreprocessingType.None) {
-							Filter filter = getFilter(discretized, p_alg);
-							runEvaluation(cts, datasetName, dis_alg, discretized, p_alg, p_alg.toString(), 0.0,
-									ThresholdType.NA, filter);
-							filter = null;
-						}
-					} // For each preprocessing algorithm
-					System.out.println();
-					/* Clear the memory */
-					if (data != null)
-						data.delete();
-					data = null;
-					if (discretized != null)
-						discretized.delete();
-					discretized = null;
-					System.gc();
-				} // For each discretization
-			} // Try for each file
-			catch (Exception e) {
+				task.join();
+			} catch (CompletionException e) {
 				if (FVSHelper.getInstance().getDebugStatus())
 					e.printStackTrace();
 				FVSHelper.getInstance().logFile(e.getMessage());
 			}
-		} // For each file
+		}
+		executor.shutdown();
+		reportSink.close();
+		double wallTime = (System.nanoTime() - startTime) / 1e9;
+		double summedTime = cellTime.sum() / 1e9;
+		String summary = String.format(
+				"Grid: %d cells on %d threads, wall time %.3f s, summed cell time %.3f s, speedup %.2fx",
+				cellCount.sum(), parallelism, wallTime, summedTime, wallTime > 0 ? summedTime / wallTime : 0.0);
+		System.out.println(summary);
+		FVSHelper.getInstance().logFile(summary);
 
 		System.out.println("Program finished");
 		System.out.println(new Date());
 
 	}
 
-	private void runEvaluation(List<ClassifierType> cts, String datasetName, DiscretizationType dis_alg,
-			Instances instances, Preprocessing_Algorithm p_alg, String context, double double_param,
-			ThresholdType thr_alg, Filter filter) throws Exception, IOException {
+	/**
+	 * Report files of the results (e.g. a separate folder for the
+	 * benchmarks), the sink is created by the program otherwise
+	 */
+	public void setReportSink(ReportSink reportSink) {
+		this.reportSink = reportSink;
+	}
+
+	/**
+	 * Number of cross-validation folds (the program argument otherwise)
+	 */
+	public void setCrossValidation(int folds) {
+		CROSS_VALIDATION = folds;
+	}
+
+	/**
+	 * Classifiers evaluated in the experiment (DecisionStump only for the
+	 * original data)
+	 */
+	public List<ClassifierType> getClassifiers(List<ClassifierType> cts, Experiment experiment) {
+		List<ClassifierType> types = new ArrayList<>();
 		for (ClassifierType type : cts) {
-			if (type == ClassifierType.DecisionStump && p_alg != Preprocessing_Algorithm.Original)
+			if (type == ClassifierType.DecisionStump && experiment.p_alg != Preprocessing_Algorithm.Original)
 				continue;
-			FVSHelper.getInstance().logFile("Classifier: " + type);
-			double modelSize = Double.NEGATIVE_INFINITY;
-			if (modelSize == Double.NEGATIVE_INFINITY) {
-				FVSEvaluation eval = new FVSEvaluation(instances);
-				// Cross validate dataset
-				eval.stratifiedFold(type, CROSS_VALIDATION, p_alg, filter);
-				if (p_alg == Preprocessing_Algorithm.FVS_Entropy)
-					eval.setDouble_param(((EntropyFVS) ((FVS_Filter) filter).getFvs()).getThreshold());
-				else
-					eval.setDouble_param(double_param);
+			types.add(type);
+		}
+		return types;
+	}
 
-				writeReport(REPORT_FOLDER, datasetName, instances.classIndex(), eval, eval.getDouble_param(), p_alg,
-						type, dis_alg, thr_alg);
-				if (FVSHelper.getInstance().getDebugStatus())
-					System.out.println("Writing report: " + context);
-				eval = null;
+	/**
+	 * Expand the preprocessing algorithms and their parameters into
+	 * experiments (in the same order as they are reported)
+	 */
+	public List<Experiment> expandGrid(List<Preprocessing_Algorithm> fas, List<ThresholdType> tts) {
+		List<Experiment> experiments = new ArrayList<>();
+		/* For each pre-processing */
+		for (Preprocessing_Algorithm p_alg : fas) {
+			PreprocessingType pt = FVSHelper.getInstance().getPreprocessType(p_alg);
+			if (p_alg == Preprocessing_Algorithm.Original) {
+				experiments.add(new Experiment(p_alg, "Original", -999, ThresholdType.NA, null));
+			} else if (pt == PreprocessingType.FVS) {
+				if (p_alg == Preprocessing_Algorithm.FVS_Random || p_alg == Preprocessing_Algorithm.FVS_Random_Entropy
+						|| p_alg == Preprocessing_Algorithm.FVS_Probabilistic) {
+					for (int i = 0; i < DOUBLE_PARAMS.length; i++) {
+						Double double_param = DOUBLE_PARAMS[i];
+						if (double_param == 1 && p_alg == Preprocessing_Algorithm.FVS_Random)
+							continue;
+						else if (double_param == 0)
+							continue;
+						experiments.add(new Experiment(p_alg, (p_alg + " : " + double_param), double_param,
+								ThresholdType.Iteration, data -> getFVS(p_alg, ThresholdType.Iteration,
+										data.numInstances(), double_param)));
+					}
+				} else if (p_alg == Preprocessing_Algorithm.FVS_Entropy) {
+					for (ThresholdType thr_alg : tts) {
+						if (thr_alg == ThresholdType.NA)
+							continue;
+						if (thr_alg == ThresholdType.Iteration) {
+							for (int i = 0; i < DOUBLE_PARAMS.length; i++) {
+								Double double_param = DOUBLE_PARAMS[i];
+								if ((double_param == 1 || double_param == 0))
+									continue;
+								experiments.add(new Experiment(p_alg, ("FVS Entropy Iteration : " + double_param),
+										double_param, ThresholdType.Iteration, data -> getFVS(p_alg,
+												ThresholdType.Iteration, data.numInstances(), double_param)));
+							}
+						} else {
+							experiments.add(new Experiment(p_alg, p_alg.toString(), 0.0, thr_alg,
+									data -> getFVS(p_alg, thr_alg, data.numInstances(), 0.0)));
+						}
+					}
+				} else if (p_alg == Preprocessing_Algorithm.FVS_Correlation) {
+					for (ThresholdType thr_alg : tts) {
+						if (thr_alg == ThresholdType.NA || thr_alg == ThresholdType.Iteration)
+							continue;
+						for (int i = 0; i < DOUBLE_PARAMS.length; i++) {
+							Double double_param = DOUBLE_PARAMS[i];
+							if ((double_param == 1 || double_param == 0))
+								continue;
+							experiments.add(new Experiment(p_alg,
+									String.format("FVS Correlation (%s) : %.1f ", thr_alg.toString(), double_param),
+									double_param, thr_alg,
+									data -> getFVS(p_alg, thr_alg, data.numInstances(), double_param)));
+						}
+					}
+				}
+			} else if (pt != PreprocessingType.None) {
+				experiments.add(new Experiment(p_alg, p_alg.toString(), 0.0, ThresholdType.NA,
+						data -> getFilter(data, p_alg)));
+			}
+		}
+		return experiments;
+	}
+
+	private String getCacheName(String datasetName, DiscretizationType dis_alg) {
+		return String.format("%s_%s", datasetName.replace(".arff", ""), dis_alg.toString());
+	}
+
+	/**
+	 * Load the original data and do the dataset specific adjustment (also
+	 * used by the benchmarks)
+	 * 
+	 * @return null if the data couldn't be loaded
+	 */
+	public Instances loadDataset(String file, String datasetName, Instrumentation instrumentation) {
+		try {
+			System.out.println(datasetName);
+			long time = instrumentation.start();
+			Instances data = loadData(file);
+			/*
+			 * Delete timestamp (NCTU and OPP) or user id (HAR)
+			 */
+			data.deleteAttributeAt(0);
+			/* Adjust GPS_X and GPS_Y in NCTU dataset */
+			if (datasetName.contains("agg")) {
+				MathExpression mathexpr = new MathExpression();
+				mathexpr.setIgnoreRange("4-6,13-14");
+				mathexpr.setInvertSelection(true);
+				mathexpr.setExpression("A*100000");
+				mathexpr.setInputFormat(data);
+				data = Filter.useFilter(data, mathexpr);
+			}
+			instrumentation.stop(Instrumentation.LOAD, time);
+			instrumentation.count("instances", data.numInstances());
+			return data;
+		} catch (Exception e) {
+			if (FVSHelper.getInstance().getDebugStatus())
+				e.printStackTrace();
+			FVSHelper.getInstance().logFile(e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Discretize the data, or load it from the intermediate folder if it is
+	 * available
+	 * 
+	 * @return null if the data couldn't be prepared
+	 */
+	public Instances prepareDiscretized(Instances data, String datasetName, DiscretizationType dis_alg,
+			Instrumentation instrumentation) {
+		try {
+			long time = instrumentation.start();
+			// Create discretized set
+			Instances discretized = null;
+			boolean load_discretized = false;
+			String discretized_cachename = getCacheName(datasetName, dis_alg);
+			if (dis_alg != DiscretizationType.None) {
+				if (FVSHelper.getInstance().isIntermediateExist(discretized_cachename))
+					discretized = FVSHelper.getInstance().loadIntermediateInstances(discretized_cachename);
 			}
+			if (discretized == null) {
+				if (data == null)
+					return null;
+				if (dis_alg != DiscretizationType.None)
+					discretized = discretize(data, dis_alg);
+				else
+					discretized = data;
+			} else
+				load_discretized = true;
+			if (discretized == null)
+				return null;
+			instrumentation.stop(Instrumentation.DISCRETIZE, time);
+			FVSHelper.getInstance().logFile("Discertization: " + dis_alg);
+			if (IS_LOG_INTERMEDIATE && !load_discretized)
+				FVSHelper.getInstance().saveIntermediateInstances(discretized, discretized_cachename);
+			FVSHelper.getInstance().logFile(String.format("File %s has been loaded completely", datasetName));
+
+			/* Nominal to Binary */
+			// System.out.println(discretized.numAttributes());
+			// discretized = binarize(discretized);
+			// System.out.println(discretized.numAttributes());
+
+			/* Set the number of class */
+			NUMBER_OF_CLASS = discretized.numClasses();
+			return discretized;
+		} catch (Exception e) {
+			if (FVSHelper.getInstance().getDebugStatus())
+				e.printStackTrace();
+			FVSHelper.getInstance().logFile(e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Prepare the folds of an experiment (the filter is applied once per fold),
+	 * then evaluate every classifier on the same folds
+	 * 
+	 * @param parallel
+	 *            evaluate the classifiers as subtasks in the current pool
+	 */
+	public void runExperiment(List<ClassifierType> types, String datasetName, DiscretizationType dis_alg,
+			Instances instances, Experiment experiment, boolean parallel, Instrumentation instrumentation) {
+		PreparedFolds prepared = null;
+		try {
+			FVSHelper.getInstance().logFile("Preprocessing: " + experiment.p_alg);
+			Filter filter = experiment.createFilter(instances);
+			FVSEvaluation eval = new FVSEvaluation(instances);
+			eval.setInstrumentation(instrumentation);
+			prepared = eval.prepareFolds(CROSS_VALIDATION, experiment.p_alg, filter);
+		} catch (Exception e) {
+			if (FVSHelper.getInstance().getDebugStatus())
+				e.printStackTrace();
+			FVSHelper.getInstance().logFile(e.getMessage());
+			return;
+		}
+		final PreparedFolds folds = prepared;
+		if (!parallel) {
+			for (ClassifierType type : types)
+				runEvaluation(type, datasetName, dis_alg, instances, experiment, folds, instrumentation);
+			return;
+		}
+		List<ForkJoinTask<?>> evaluations = new ArrayList<>();
+		for (ClassifierType type : types)
+			evaluations.add(
+					ForkJoinTask.adapt(() -> runEvaluation(type, datasetName, dis_alg, instances, experiment, folds,
+							instrumentation)));
+		ForkJoinTask.invokeAll(evaluations);
+	}
+
+	/**
+	 * Evaluate a single cell of the grid on the prepared folds of the
+	 * experiment
+	 */
+	private void runEvaluation(ClassifierType type, String datasetName, DiscretizationType dis_alg,
+			Instances instances, Experiment experiment, PreparedFolds folds, Instrumentation instrumentation) {
+		Preprocessing_Algorithm p_alg = experiment.p_alg;
+		try {
+			FVSHelper.getInstance().logFile("Classifier: " + type);
+			FVSEvaluation eval = new FVSEvaluation(instances);
+			eval.setInstrumentation(instrumentation);
+			// Cross validate dataset
+			eval.stratifiedFold(type, folds);
+			if (p_alg == Preprocessing_Algorithm.FVS_Entropy)
+				eval.setDouble_param(((EntropyFVS) ((FVS_Filter) folds.getFilter()).getFvs()).getThreshold());
+			else
+				eval.setDouble_param(experiment.double_param);
+			writeReport(datasetName, instances.classIndex(), eval, eval.getDouble_param(), p_alg, type, dis_alg,
+					experiment.thr_alg);
+			if (FVSHelper.getInstance().getDebugStatus())
+				System.out.println("Writing report: " + experiment.context);
+			eval = null;
+		} catch (Exception e) {
+			if (FVSHelper.getInstance().getDebugStatus())
+				e.printStackTrace();
+			FVSHelper.getInstance().logFile(e.getMessage());
 		}
 	}
 
@@ -363,13 +537,16 @@ public class Main {
 	}
 
 	private Instances loadData(String file) throws Exception {
-		DataSource source = new DataSource(file);
+		ArffParser parser = new ArffParser(FVSHelper.getInstance().getLoadParallelism());
 		if (FVSHelper.getInstance().getDebugStatus()) {
 			FVSHelper.getInstance().logFile(file);
 			if (FVSHelper.getInstance().getDebugStatus())
 				System.err.println(new Date().toString());
 		}
-		Instances data = source.getDataSet();
+		Instances data = parser.load(file);
+		System.out.println(String.format("Loaded %s: %d instances, %.2f MB in %.3f s (%.1f MB/s%s)", file,
+				data.numInstances(), parser.getBytes() / 1048576.0, parser.getTime() / 1e9, parser.getThroughput(),
+				parser.isFallback() ? ", Weka" : ""));
 		if (data.classIndex() == -1)
 			data.setClassIndex(data.numAttributes() - 1);
 		return data;
@@ -399,7 +576,13 @@ public class Main {
 		return result;
 	}
 
-	private Instances discretize(Instances data, DiscretizationType type) {
+	/**
+	 * Discretize the data with {@link #NUMBER_OF_BINS} bins (also used by the
+	 * benchmarks)
+	 * 
+	 * @return null if the data couldn't be discretized
+	 */
+	public Instances discretize(Instances data, DiscretizationType type) {
 		Instances result = null;
 		Filter filter = null;
 		if (type == DiscretizationType.None) {
@@ -506,23 +689,17 @@ public class Main {
 		return result;
 	}
 
-	private void writeReport(String folder, String datasetName, int classIndex, FVSEvaluation eval, double double_param,
-			Object... params) throws IOException {
-		if (!folder.endsWith("/"))
-			folder = folder + "/";
+	/**
+	 * Submit a row into the report of the dataset (written by
+	 * {@link ReportSink}, cells are running on many threads), together with a
+	 * JSON line of every metric including the metrics of every fold
+	 */
+	private void writeReport(String datasetName, int classIndex, FVSEvaluation eval, double double_param,
+			Object... params) {
 		if (datasetName.contains(".")) {
 			datasetName = datasetName.split("\\.")[0];
 		}
 		String uid = datasetName;
-		datasetName = datasetName + ".txt";
-		File ffolder = new File(folder);
-		ffolder.mkdirs();
-		File f = new File(folder + datasetName);
-		boolean new_file = f.createNewFile();
-		FileWriter fileWriter = new FileWriter(f, true);
-		if (new_file) {
-			fileWriter.write(REPORT_HEADER);
-		}
 
 		int noise = 0;
 		if (FVSHelper.getInstance().getAddNoise())
@@ -534,11 +711,99 @@ public class Main {
 		if (params[2].toString() == DiscretizationType.Binning.toString()
 				|| params[2].toString() == DiscretizationType.Frequency.toString())
 			discretization = discretization + "_" + NUMBER_OF_BINS;
-		fileWriter.append(String.format(REPORT_FORMAT, uid, params[0].toString(), params[1].toString(), discretization,
+		String row = String.format(REPORT_FORMAT, uid, params[0].toString(), params[1].toString(), discretization,
 				params[3].toString(), eval.getAccuracy(), eval.getRuleSize(), double_param, eval.getModelSize(),
-				eval.getRunTime(), eval.getMemoryUsage(), noise));
-		fileWriter.close();
-		fileWriter = null;
+				eval.getRunTime(), eval.getMemoryUsage(), noise, eval.getCpuTime(), eval.getRetainedSize(),
+				eval.getPhaseCpuTime(FVSPhase.Fit), eval.getPhaseMemoryUsage(FVSPhase.Fit),
+				eval.getPhaseCpuTime(FVSPhase.Selection), eval.getPhaseMemoryUsage(FVSPhase.Selection),
+				eval.getPhaseCpuTime(FVSPhase.Transform), eval.getPhaseMemoryUsage(FVSPhase.Transform));
+
+		JSONObject json = new JSONObject();
+		json.put("user", uid);
+		json.put("method", params[0].toString());
+		json.put("classifier", params[1].toString());
+		json.put("discretization", discretization);
+		json.put("threshold", params[3].toString());
+		json.put("double_param", Double.isNaN(double_param) ? JSONObject.NULL : double_param);
+		json.put("noise", noise);
+		json.put("folds", eval.getFoldAccuracies().length);
+		json.put("accuracy", eval.getAccuracy());
+		json.put("rules", eval.getRuleSize());
+		json.put("model_size", eval.getModelSize());
+		json.put("run_time_ms", eval.getRunTime());
+		json.put("memory_usage", eval.getMemoryUsage());
+		json.put("cpu_time_ms", eval.getCpuTime());
+		json.put("retained_size", eval.getRetainedSize());
+		/* The fit cost of a cached fold is the loading of its statistics */
+		int cacheHits = 0;
+		for (boolean hit : eval.getFoldCacheHits())
+			if (hit)
+				cacheHits++;
+		json.put("cache_hits", cacheHits);
+		for (FVSPhase phase : FVSPhase.values()) {
+			JSONObject usage = new JSONObject();
+			usage.put("cpu_time_ms", eval.getPhaseCpuTime(phase));
+			usage.put("memory_usage", eval.getPhaseMemoryUsage(phase));
+			json.put(phase.toString().toLowerCase(), usage);
+		}
+		json.put("fold_accuracy", new JSONArray(eval.getFoldAccuracies()));
+		json.put("fold_rules", new JSONArray(eval.getFoldRuleSizes()));
+		json.put("fold_model_size", new JSONArray(eval.getFoldModelSizes()));
+		json.put("fold_run_time_ms", new JSONArray(eval.getFoldRunTimes()));
+		json.put("fold_memory_usage", new JSONArray(eval.getFoldMemoryUsages()));
+		json.put("fold_cpu_time_ms", new JSONArray(eval.getFoldCpuTimes()));
+		json.put("fold_retained_size", new JSONArray(eval.getFoldRetainedSizes()));
+		json.put("fold_cache_hit", new JSONArray(eval.getFoldCacheHits()));
+		reportSink.submit(uid, row, json.toString());
 	}
 
+	/**
+	 * Print the timers of the dataset and submit them as a JSON line of the
+	 * dataset report
+	 */
+	private void writeInstrumentation(String datasetName, Instrumentation instrumentation) {
+		String uid = datasetName;
+		if (uid.contains("."))
+			uid = uid.split("\\.")[0];
+		String summary = instrumentation.summary(uid);
+		System.out.print(summary);
+		FVSHelper.getInstance().logFile(summary);
+		JSONObject json = new JSONObject();
+		json.put("user", uid);
+		json.put("instrumentation", instrumentation.toJSON());
+		reportSink.submit(uid, null, json.toString());
+	}
+
+	/**
+	 * A preprocessing algorithm with one of its parameters
+	 */
+	public static class Experiment {
+		final Preprocessing_Algorithm p_alg;
+		final String context;
+		final double double_param;
+		final ThresholdType thr_alg;
+		/**
+		 * Create a new filter for the data (null for no filter)
+		 */
+		final Function<Instances, Filter> filterFactory;
+
+		Experiment(Preprocessing_Algorithm p_alg, String context, double double_param, ThresholdType thr_alg,
+				Function<Instances, Filter> filterFactory) {
+			this.p_alg = p_alg;
+			this.context = context;
+			this.double_param = double_param;
+			this.thr_alg = thr_alg;
+			this.filterFactory = filterFactory;
+		}
+
+		public Preprocessing_Algorithm getAlgorithm() {
+			return p_alg;
+		}
+
+		Filter createFilter(Instances data) {
+			if (filterFactory == null)
+				return null;
+			return filterFactory.apply(data);
+		}
+	}
 }
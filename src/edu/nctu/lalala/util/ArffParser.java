@@ -0,0 +1,425 @@
+package edu.nctu.lalala.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+import weka.core.Utils;
+import weka.core.converters.ConverterUtils.DataSource;
+
+/**
+ * Parallel loader of dense ARFF files. <br/>
+ * The header is read by Weka, the data section is memory-mapped, split into
+ * chunks at line boundaries and the chunks are parsed at the same time.
+ * Numbers are parsed directly from the bytes (exact for up to 15 significant
+ * digits and exponents up to 22, otherwise {@link Double#valueOf(String)}),
+ * nominal values are matched against the encoded labels. <br/>
+ * The result is the same as {@link DataSource#getDataSet()}, which is used
+ * for anything this parser doesn't support (sparse rows, instance weights,
+ * string/date/relational attributes, escaped quotes) or an invalid file (the
+ * error is reported by Weka).
+ *
+ * @author Gunarto Sindoro Njoo
+ * @version 1.0
+ * @category Data Structure
+ */
+public class ArffParser {
+	private static final int MIN_CHUNK_SIZE = 1 << 16;
+	private static final int MAX_CHUNK_SIZE = 1 << 23;
+	private static final int MAX_FAST_DIGITS = 15;
+	private static final double[] POWERS_OF_TEN = new double[23];
+
+	static {
+		POWERS_OF_TEN[0] = 1;
+		for (int i = 1; i < POWERS_OF_TEN.length; i++)
+			POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+	}
+
+	private final int parallelism;
+	private int chunkSize;
+	private long bytes;
+	private long time;
+	private boolean fallback;
+
+	/**
+	 * @param parallelism
+	 *            number of chunks parsed at the same time (1 is sequential)
+	 */
+	public ArffParser(int parallelism) {
+		this.parallelism = Math.max(1, parallelism);
+	}
+
+	/**
+	 * Size of the chunks, by default the data is divided by the parallelism
+	 * (between 64 KB and 8 MB)
+	 */
+	public void setChunkSize(int chunkSize) {
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Load the whole file (class index is not set)
+	 *
+	 * @param filename
+	 * @return
+	 * @throws Exception
+	 *             if the file couldn't be read by Weka
+	 */
+	public Instances load(String filename) throws Exception {
+		long start = System.nanoTime();
+		bytes = new File(filename).length();
+		Instances data;
+		try {
+			data = parse(filename);
+			fallback = false;
+		} catch (UnsupportedFormatException e) {
+			if (FVSHelper.getInstance().getDebugStatus())
+				System.err.println("ArffParser fallback to Weka: " + filename + " " + e.getMessage());
+			data = new DataSource(filename).getDataSet();
+			fallback = true;
+		}
+		time = System.nanoTime() - start;
+		return data;
+	}
+
+	/**
+	 * Size of the last file (bytes)
+	 */
+	public long getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * Load time of the last file (nanoseconds)
+	 */
+	public long getTime() {
+		return time;
+	}
+
+	/**
+	 * Load throughput of the last file (MB/s)
+	 */
+	public double getThroughput() {
+		return time == 0 ? 0 : bytes / 1048576.0 / (time / 1e9);
+	}
+
+	/**
+	 * Whether the last file was loaded by Weka
+	 */
+	public boolean isFallback() {
+		return fallback;
+	}
+
+	private Instances parse(String filename) throws Exception {
+		MappedByteBuffer buffer;
+		try (RandomAccessFile file = new RandomAccessFile(filename, "r"); FileChannel channel = file.getChannel()) {
+			if (channel.size() > Integer.MAX_VALUE)
+				throw new UnsupportedFormatException("file is too large to be mapped");
+			buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+		}
+		int size = buffer.capacity();
+		int dataStart = findData(buffer);
+		if (dataStart < 0)
+			throw new UnsupportedFormatException("@data is not found");
+		byte[] headerBytes = new byte[dataStart];
+		buffer.duplicate().get(headerBytes);
+		Instances header = new Instances(new StringReader(new String(headerBytes, StandardCharsets.UTF_8)));
+		int numAttributes = header.numAttributes();
+		byte[][][] labels = new byte[numAttributes][][];
+		for (int a = 0; a < numAttributes; a++) {
+			Attribute att = header.attribute(a);
+			if (att.isNominal()) {
+				labels[a] = new byte[att.numValues()][];
+				for (int v = 0; v < att.numValues(); v++)
+					labels[a][v] = att.value(v).getBytes(StandardCharsets.UTF_8);
+			} else if (!att.isNumeric() || att.isDate())
+				throw new UnsupportedFormatException("attribute type of " + att.name());
+		}
+
+		/* Chunks end after a line break */
+		int length = chunkSize > 0 ? chunkSize
+				: Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, (size - dataStart) / parallelism + 1));
+		List<int[]> chunks = new ArrayList<>();
+		int position = dataStart;
+		while (position < size) {
+			int end = (int) Math.min((long) position + length, size);
+			while (end < size && buffer.get(end - 1) != '\n')
+				end++;
+			chunks.add(new int[] { position, end });
+			position = end;
+		}
+
+		List<List<double[]>> rows = new ArrayList<>();
+		if (parallelism <= 1 || chunks.size() <= 1) {
+			for (int[] chunk : chunks)
+				rows.add(parseChunk(buffer, chunk[0], chunk[1], labels));
+		} else {
+			ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, chunks.size()));
+			List<Future<List<double[]>>> futures = new ArrayList<>();
+			for (int[] chunk : chunks)
+				futures.add(executor.submit(() -> parseChunk(buffer, chunk[0], chunk[1], labels)));
+			try {
+				for (Future<List<double[]>> future : futures)
+					rows.add(future.get());
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof UnsupportedFormatException)
+					throw (UnsupportedFormatException) e.getCause();
+				throw e;
+			} finally {
+				executor.shutdown();
+			}
+		}
+
+		int total = 0;
+		for (List<double[]> chunk : rows)
+			total += chunk.size();
+		Instances data = new Instances(header, total);
+		for (List<double[]> chunk : rows)
+			for (double[] values : chunk)
+				data.add(new DenseInstance(1.0, values));
+		return data;
+	}
+
+	/**
+	 * Position after the line of @data
+	 *
+	 * @return -1 if there is no @data
+	 */
+	private static int findData(ByteBuffer buffer) {
+		int size = buffer.capacity();
+		int line = 0;
+		while (line < size) {
+			int i = line;
+			while (i < size && isBlank(buffer.get(i)) && buffer.get(i) != '\n')
+				i++;
+			if (i + 5 <= size && buffer.get(i) == '@' && matches(buffer, i + 1, "data")
+					&& (i + 5 == size || isBlank(buffer.get(i + 5)))) {
+				while (i < size && buffer.get(i) != '\n')
+					i++;
+				return Math.min(i + 1, size);
+			}
+			while (i < size && buffer.get(i) != '\n')
+				i++;
+			line = i + 1;
+		}
+		return -1;
+	}
+
+	private static boolean matches(ByteBuffer buffer, int position, String keyword) {
+		for (int k = 0; k < keyword.length(); k++)
+			if (Character.toLowerCase((char) buffer.get(position + k)) != keyword.charAt(k))
+				return false;
+		return true;
+	}
+
+	/**
+	 * Parse the rows of a chunk (same tokens as the tokenizer of Weka: values
+	 * are separated by commas or blanks, '%' starts a comment, blank lines are
+	 * skipped)
+	 */
+	private static List<double[]> parseChunk(ByteBuffer buffer, int start, int end, byte[][][] labels)
+			throws UnsupportedFormatException {
+		byte[] bytes = new byte[end - start];
+		ByteBuffer view = buffer.duplicate();
+		view.position(start);
+		view.get(bytes);
+		int numAttributes = labels.length;
+		List<double[]> rows = new ArrayList<>(bytes.length / (numAttributes * 4) + 1);
+		int i = 0;
+		int n = bytes.length;
+		while (i < n) {
+			double[] values = null;
+			int a = 0;
+			/* One line */
+			while (i < n && bytes[i] != '\n') {
+				byte b = bytes[i];
+				if (isSeparator(b)) {
+					i++;
+					continue;
+				}
+				if (b == '%') {
+					while (i < n && bytes[i] != '\n')
+						i++;
+					break;
+				}
+				if (b == '{' || b == '}')
+					throw new UnsupportedFormatException("sparse instance or instance weight");
+				if (a == numAttributes)
+					throw new UnsupportedFormatException("too many values in a line");
+				int from;
+				int to;
+				boolean quoted = b == '\'' || b == '"';
+				if (quoted) {
+					from = i + 1;
+					to = from;
+					while (to < n && bytes[to] != b && bytes[to] != '\n') {
+						if (bytes[to] == '\\')
+							throw new UnsupportedFormatException("escaped value");
+						to++;
+					}
+					if (to == n || bytes[to] != b)
+						throw new UnsupportedFormatException("unterminated quote");
+					i = to + 1;
+				} else {
+					from = i;
+					to = i;
+					while (to < n && isWord(bytes[to]))
+						to++;
+					i = to;
+				}
+				if (values == null)
+					values = new double[numAttributes];
+				if (!quoted && to - from == 1 && bytes[from] == '?')
+					values[a] = Utils.missingValue();
+				else if (labels[a] != null)
+					values[a] = indexOf(labels[a], bytes, from, to);
+				else
+					values[a] = parseDouble(bytes, from, to);
+				a++;
+			}
+			i++;
+			if (values == null)
+				continue;
+			if (a < numAttributes)
+				throw new UnsupportedFormatException("premature end of line");
+			rows.add(values);
+		}
+		return rows;
+	}
+
+	private static int indexOf(byte[][] labels, byte[] bytes, int from, int to) throws UnsupportedFormatException {
+		int length = to - from;
+		for (int v = 0; v < labels.length; v++) {
+			byte[] label = labels[v];
+			if (label.length != length)
+				continue;
+			int k = 0;
+			while (k < length && label[k] == bytes[from + k])
+				k++;
+			if (k == length)
+				return v;
+		}
+		throw new UnsupportedFormatException("nominal value not declared");
+	}
+
+	/**
+	 * Parse a decimal number without allocation when the result is exact (at
+	 * most 15 significant digits and a power of ten up to 22), otherwise by
+	 * {@link Double#valueOf(String)} as Weka does
+	 */
+	static double parseDouble(byte[] bytes, int from, int to) throws UnsupportedFormatException {
+		int i = from;
+		boolean negative = false;
+		if (i < to && (bytes[i] == '-' || bytes[i] == '+')) {
+			negative = bytes[i] == '-';
+			i++;
+		}
+		long mantissa = 0;
+		int digits = 0;
+		int exponent = 0;
+		boolean any = false;
+		while (i < to && bytes[i] >= '0' && bytes[i] <= '9') {
+			any = true;
+			if (mantissa != 0 || bytes[i] != '0') {
+				mantissa = mantissa * 10 + (bytes[i] - '0');
+				digits++;
+			}
+			if (digits > MAX_FAST_DIGITS)
+				return slowParse(bytes, from, to);
+			i++;
+		}
+		if (i < to && bytes[i] == '.') {
+			i++;
+			while (i < to && bytes[i] >= '0' && bytes[i] <= '9') {
+				any = true;
+				if (mantissa != 0 || bytes[i] != '0') {
+					mantissa = mantissa * 10 + (bytes[i] - '0');
+					digits++;
+				}
+				if (digits > MAX_FAST_DIGITS)
+					return slowParse(bytes, from, to);
+				exponent--;
+				i++;
+			}
+		}
+		if (!any)
+			return slowParse(bytes, from, to);
+		if (i < to && (bytes[i] == 'e' || bytes[i] == 'E')) {
+			i++;
+			boolean negativeExponent = false;
+			if (i < to && (bytes[i] == '-' || bytes[i] == '+')) {
+				negativeExponent = bytes[i] == '-';
+				i++;
+			}
+			if (i == to)
+				return slowParse(bytes, from, to);
+			int e = 0;
+			while (i < to && bytes[i] >= '0' && bytes[i] <= '9') {
+				e = e * 10 + (bytes[i] - '0');
+				if (e > 1000)
+					return slowParse(bytes, from, to);
+				i++;
+			}
+			exponent += negativeExponent ? -e : e;
+		}
+		if (i != to)
+			return slowParse(bytes, from, to);
+		double value = mantissa;
+		if (mantissa != 0) {
+			if (exponent < -22 || exponent > 22)
+				return slowParse(bytes, from, to);
+			value = exponent < 0 ? value / POWERS_OF_TEN[-exponent] : value * POWERS_OF_TEN[exponent];
+		}
+		return negative ? -value : value;
+	}
+
+	private static double slowParse(byte[] bytes, int from, int to) throws UnsupportedFormatException {
+		try {
+			return Double.valueOf(new String(bytes, from, to - from, StandardCharsets.UTF_8));
+		} catch (NumberFormatException e) {
+			throw new UnsupportedFormatException("number expected");
+		}
+	}
+
+	private static boolean isBlank(byte b) {
+		return b >= 0 && b <= ' ';
+	}
+
+	private static boolean isSeparator(byte b) {
+		return (b >= 0 && b <= ' ' && b != '\n') || b == ',';
+	}
+
+	/**
+	 * Characters of an unquoted value (bytes of multi-byte characters are
+	 * negative)
+	 */
+	private static boolean isWord(byte b) {
+		return b < 0 || (b > ' ' && b != ',' && b != '%' && b != '\'' && b != '"' && b != '{' && b != '}');
+	}
+
+	/**
+	 * The file is loaded by Weka instead
+	 */
+	private static class UnsupportedFormatException extends Exception {
+		private static final long serialVersionUID = 1L;
+
+		UnsupportedFormatException(String message) {
+			super(message);
+		}
+	}
+}
@@ -0,0 +1,211 @@
+package edu.nctu.lalala.util;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import edu.nctu.lalala.enums.LogFlushPolicy;
+
+/**
+ * Log file written by a background thread. <br/>
+ * Lines are put into a bounded lock-free queue (the caller waits if the queue
+ * is full, thus no line is dropped) and appended in batches, in the order they
+ * were logged. The file is kept open and synced according to the
+ * {@link LogFlushPolicy}: after every batch, every interval, or only on
+ * {@link #close()}. A shutdown hook closes the writer, thus the queued lines
+ * are written before the JVM exits.
+ *
+ * @author Gunarto Sindoro Njoo
+ * @version 1.0
+ * @category Logging
+ */
+public class AsyncLogWriter {
+	public static final int DEFAULT_CAPACITY = 1 << 16;
+	public static final long DEFAULT_INTERVAL = 1000;
+	private static final int BATCH_SIZE = 1024;
+
+	private final String filename;
+	private final int capacity;
+	private final ConcurrentLinkedQueue<Entry> queue = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger size = new AtomicInteger();
+	private final Thread writer;
+	private volatile LogFlushPolicy policy = LogFlushPolicy.Batch;
+	private volatile long interval = DEFAULT_INTERVAL;
+	private volatile boolean waiting;
+	private volatile boolean closed;
+	private FileOutputStream stream;
+	private BufferedWriter out;
+	private long lastSync;
+	private boolean dirty;
+
+	/**
+	 * @param filename
+	 *            the lines are appended into the file
+	 * @param capacity
+	 *            maximum number of queued lines
+	 */
+	public AsyncLogWriter(String filename, int capacity) {
+		this.filename = filename;
+		this.capacity = Math.max(1, capacity);
+		this.writer = new Thread(this::run, "log-writer");
+		this.writer.setDaemon(true);
+		this.writer.start();
+		Runtime.getRuntime().addShutdownHook(new Thread(this::close, "log-writer-shutdown"));
+	}
+
+	public void setFlushPolicy(LogFlushPolicy policy) {
+		this.policy = policy;
+	}
+
+	/**
+	 * Sync interval of {@link LogFlushPolicy#Timed} (milliseconds)
+	 */
+	public void setInterval(long interval) {
+		this.interval = Math.max(1, interval);
+	}
+
+	/**
+	 * Queue a line, the time is taken now
+	 */
+	public void log(String text) {
+		Entry entry = new Entry(System.currentTimeMillis(), text);
+		/* Bounded: wait for the writer instead of dropping the line */
+		while (!closed && size.incrementAndGet() > capacity) {
+			size.decrementAndGet();
+			LockSupport.unpark(writer);
+			LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+		}
+		queue.offer(entry);
+		if (closed)
+			writeRemaining();
+		else if (waiting)
+			LockSupport.unpark(writer);
+	}
+
+	/**
+	 * Write the queued lines, sync the file and stop the writer (the next
+	 * lines are written directly)
+	 */
+	public void close() {
+		if (closed)
+			return;
+		closed = true;
+		LockSupport.unpark(writer);
+		try {
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void run() {
+		lastSync = System.currentTimeMillis();
+		while (true) {
+			int written = drain();
+			long now = System.currentTimeMillis();
+			if (dirty && (policy == LogFlushPolicy.Batch && written > 0
+					|| policy == LogFlushPolicy.Timed && now - lastSync >= interval))
+				sync(now);
+			if (written > 0)
+				continue;
+			if (closed && queue.isEmpty())
+				break;
+			waiting = true;
+			if (queue.isEmpty() && !closed)
+				LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(interval));
+			waiting = false;
+		}
+		sync(System.currentTimeMillis());
+		closeFile();
+	}
+
+	/**
+	 * Append at most one batch
+	 *
+	 * @return number of lines written
+	 */
+	private int drain() {
+		int written = 0;
+		Entry entry;
+		while (written < BATCH_SIZE && (entry = queue.poll()) != null) {
+			size.decrementAndGet();
+			try {
+				append(entry);
+			} catch (IOException e) {
+				if (FVSHelper.getInstance().getDebugStatus())
+					System.err.println("AsyncLogWriter exception: " + e.getMessage());
+				closeFile();
+			}
+			written++;
+		}
+		return written;
+	}
+
+	private void append(Entry entry) throws IOException {
+		if (out == null) {
+			stream = new FileOutputStream(filename, true);
+			out = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8));
+		}
+		out.append(String.format("[%s] %s", new Date(entry.time).toString(), entry.text));
+		out.newLine();
+		dirty = true;
+	}
+
+	private void sync(long now) {
+		lastSync = now;
+		if (out == null || !dirty)
+			return;
+		try {
+			out.flush();
+			stream.getFD().sync();
+		} catch (IOException e) {
+			if (FVSHelper.getInstance().getDebugStatus())
+				System.err.println("AsyncLogWriter exception: " + e.getMessage());
+		}
+		dirty = false;
+	}
+
+	private void closeFile() {
+		try {
+			if (out != null)
+				out.close();
+		} catch (IOException e) {
+		}
+		out = null;
+		stream = null;
+		dirty = false;
+	}
+
+	/**
+	 * Lines logged after {@link #close()} (e.g. from another shutdown hook)
+	 * are written directly
+	 */
+	private synchronized void writeRemaining() {
+		try {
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return;
+		}
+		while (drain() > 0)
+			sync(System.currentTimeMillis());
+		closeFile();
+	}
+
+	private static class Entry {
+		final long time;
+		final String text;
+
+		Entry(long time, String text) {
+			this.time = time;
+			this.text = text;
+		}
+	}
+}
@@ -0,0 +1,316 @@
+package edu.nctu.lalala.util;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.Utils;
+
+/**
+ * Binary columnar file of a dataset, read through a memory-mapped buffer. <br/>
+ * Layout: magic, version, ARFF header (attribute metadata), number of rows,
+ * then one block per attribute: type, missing-value bitmap (if any) and the
+ * values. Nominal attributes are stored as byte or short codes, other
+ * attributes as doubles. Instance weights are only stored if any of them is
+ * not 1. <br/>
+ * The values could be read per cell without building {@link Instances}
+ * (e.g. {@link edu.nctu.lalala.fvs.FVTable#extract(ColumnarFile)}), the
+ * {@link Instances} are only built on {@link #toInstances()}.
+ *
+ * @author Gunarto Sindoro Njoo
+ * @version 1.0
+ * @category Data Structure
+ */
+public class ColumnarFile {
+	public static final String EXTENSION = ".col";
+	private static final int MAGIC = 0x46564342;
+	private static final int VERSION = 1;
+	private static final byte TYPE_BYTE = 1;
+	private static final byte TYPE_SHORT = 2;
+	private static final byte TYPE_DOUBLE = 3;
+
+	private final Instances header;
+	private final int numInstances;
+	private final ByteBuffer buffer;
+	private final byte[] types;
+	/**
+	 * Position of the values of every attribute
+	 */
+	private final int[] valueOffsets;
+	/**
+	 * Position of the missing-value bitmap, -1 if there is no missing value
+	 */
+	private final int[] missingOffsets;
+	private final int weightOffset;
+	private Instances instances;
+
+	private ColumnarFile(Instances header, int numInstances, ByteBuffer buffer, byte[] types, int[] valueOffsets,
+			int[] missingOffsets, int weightOffset) {
+		this.header = header;
+		this.numInstances = numInstances;
+		this.buffer = buffer;
+		this.types = types;
+		this.valueOffsets = valueOffsets;
+		this.missingOffsets = missingOffsets;
+		this.weightOffset = weightOffset;
+	}
+
+	/**
+	 * Write the data into a columnar file (written into a temporary file, then
+	 * renamed)
+	 *
+	 * @param data
+	 * @param filename
+	 * @throws IOException
+	 *             if the data has string or relational attributes
+	 */
+	public static void write(Instances data, String filename) throws IOException {
+		int numAttributes = data.numAttributes();
+		int n = data.numInstances();
+		byte[] headerBytes = new Instances(data, 0).toString().getBytes(StandardCharsets.UTF_8);
+		byte[] types = new byte[numAttributes];
+		boolean[] hasMissing = new boolean[numAttributes];
+		for (int a = 0; a < numAttributes; a++) {
+			Attribute att = data.attribute(a);
+			if (att.isString() || att.isRelationValued())
+				throw new IOException("Unsupported attribute type: " + att.name());
+			if (att.isNominal() && att.numValues() <= 256)
+				types[a] = TYPE_BYTE;
+			else if (att.isNominal() && att.numValues() <= 65536)
+				types[a] = TYPE_SHORT;
+			else
+				types[a] = TYPE_DOUBLE;
+		}
+		boolean hasWeights = false;
+		for (int i = 0; i < n; i++) {
+			Instance ins = data.instance(i);
+			if (ins.weight() != 1.0)
+				hasWeights = true;
+			for (int a = 0; a < numAttributes; a++)
+				if (ins.isMissing(a))
+					hasMissing[a] = true;
+		}
+
+		/* Fixed part: magic, version, header, rows, weights flag, and types */
+		long size = align(4 + 4 + 4 + headerBytes.length + 4 + 4 + numAttributes * 2);
+		if (hasWeights)
+			size += align((long) n * 8);
+		for (int a = 0; a < numAttributes; a++) {
+			if (hasMissing[a])
+				size += align(bitmapSize(n));
+			size += align((long) n * valueSize(types[a]));
+		}
+		if (size > Integer.MAX_VALUE)
+			throw new IOException("Data is too large for a columnar file: " + size + " bytes");
+
+		Path target = Paths.get(filename);
+		Path temp = Files.createTempFile(target.toAbsolutePath().getParent(), target.getFileName().toString(),
+				".tmp");
+		/* Not mapped for writing, thus the file could be renamed right away */
+		try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+			ByteBuffer out = ByteBuffer.allocate((int) size);
+			out.order(ByteOrder.LITTLE_ENDIAN);
+			out.putInt(MAGIC);
+			out.putInt(VERSION);
+			out.putInt(headerBytes.length);
+			out.put(headerBytes);
+			out.putInt(n);
+			out.putInt(hasWeights ? 1 : 0);
+			for (int a = 0; a < numAttributes; a++) {
+				out.put(types[a]);
+				out.put((byte) (hasMissing[a] ? 1 : 0));
+			}
+			pad(out);
+			if (hasWeights) {
+				for (int i = 0; i < n; i++)
+					out.putDouble(data.instance(i).weight());
+				pad(out);
+			}
+			for (int a = 0; a < numAttributes; a++) {
+				if (hasMissing[a]) {
+					long[] bitmap = new long[(n + 63) >>> 6];
+					for (int i = 0; i < n; i++)
+						if (data.instance(i).isMissing(a))
+							bitmap[i >>> 6] |= 1L << (i & 63);
+					for (long word : bitmap)
+						out.putLong(word);
+					pad(out);
+				}
+				for (int i = 0; i < n; i++) {
+					Instance ins = data.instance(i);
+					double value = ins.isMissing(a) ? 0 : ins.value(a);
+					if (types[a] == TYPE_BYTE)
+						out.put((byte) value);
+					else if (types[a] == TYPE_SHORT)
+						out.putShort((short) value);
+					else
+						out.putDouble(value);
+				}
+				pad(out);
+			}
+			out.flip();
+			while (out.hasRemaining())
+				channel.write(out);
+		} catch (IOException | RuntimeException e) {
+			Files.deleteIfExists(temp);
+			throw e;
+		}
+		Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Map the columnar file into memory
+	 *
+	 * @param filename
+	 * @return
+	 * @throws IOException
+	 *             if the file is not a columnar file
+	 */
+	public static ColumnarFile open(String filename) throws IOException {
+		MappedByteBuffer buffer;
+		try (RandomAccessFile file = new RandomAccessFile(filename, "r"); FileChannel channel = file.getChannel()) {
+			/* The mapping stays valid after the channel is closed */
+			buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+		}
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		try {
+			if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION)
+				throw new IOException("Not a columnar file: " + filename);
+			byte[] headerBytes = new byte[buffer.getInt()];
+			buffer.get(headerBytes);
+			Instances header = new Instances(new StringReader(new String(headerBytes, StandardCharsets.UTF_8)));
+			if (header.classIndex() == -1)
+				header.setClassIndex(header.numAttributes() - 1);
+			int n = buffer.getInt();
+			boolean hasWeights = buffer.getInt() == 1;
+			int numAttributes = header.numAttributes();
+			byte[] types = new byte[numAttributes];
+			boolean[] hasMissing = new boolean[numAttributes];
+			for (int a = 0; a < numAttributes; a++) {
+				types[a] = buffer.get();
+				hasMissing[a] = buffer.get() == 1;
+			}
+			int position = (int) align(buffer.position());
+			int weightOffset = -1;
+			if (hasWeights) {
+				weightOffset = position;
+				position += align((long) n * 8);
+			}
+			int[] valueOffsets = new int[numAttributes];
+			int[] missingOffsets = new int[numAttributes];
+			for (int a = 0; a < numAttributes; a++) {
+				missingOffsets[a] = -1;
+				if (hasMissing[a]) {
+					missingOffsets[a] = position;
+					position += align(bitmapSize(n));
+				}
+				valueOffsets[a] = position;
+				position += align((long) n * valueSize(types[a]));
+			}
+			if (position > buffer.capacity())
+				throw new IOException("Truncated columnar file: " + filename);
+			return new ColumnarFile(header, n, buffer, types, valueOffsets, missingOffsets, weightOffset);
+		} catch (RuntimeException e) {
+			throw new IOException("Corrupted columnar file: " + filename, e);
+		}
+	}
+
+	public Instances getHeader() {
+		return header;
+	}
+
+	public int numInstances() {
+		return numInstances;
+	}
+
+	public int numAttributes() {
+		return header.numAttributes();
+	}
+
+	public boolean isMissing(int row, int attribute) {
+		int offset = missingOffsets[attribute];
+		if (offset < 0)
+			return false;
+		return (buffer.getLong(offset + (row >>> 6) * 8) & (1L << (row & 63))) != 0;
+	}
+
+	/**
+	 * Value of the cell (internal value of Weka, NaN if it is missing)
+	 */
+	public double value(int row, int attribute) {
+		if (isMissing(row, attribute))
+			return Utils.missingValue();
+		int offset = valueOffsets[attribute];
+		switch (types[attribute]) {
+		case TYPE_BYTE:
+			return buffer.get(offset + row) & 0xFF;
+		case TYPE_SHORT:
+			return buffer.getShort(offset + row * 2) & 0xFFFF;
+		default:
+			return buffer.getDouble(offset + row * 8);
+		}
+	}
+
+	public double weight(int row) {
+		if (weightOffset < 0)
+			return 1.0;
+		return buffer.getDouble(weightOffset + row * 8);
+	}
+
+	/**
+	 * Build the {@link Instances} of the file (built once)
+	 */
+	public synchronized Instances toInstances() {
+		if (instances == null) {
+			int numAttributes = numAttributes();
+			Instances result = new Instances(header, numInstances);
+			for (int i = 0; i < numInstances; i++) {
+				double[] values = new double[numAttributes];
+				for (int a = 0; a < numAttributes; a++)
+					values[a] = value(i, a);
+				result.add(new DenseInstance(weight(i), values));
+			}
+			instances = result;
+		}
+		return instances;
+	}
+
+	private static int valueSize(byte type) {
+		if (type == TYPE_BYTE)
+			return 1;
+		if (type == TYPE_SHORT)
+			return 2;
+		return 8;
+	}
+
+	private static long bitmapSize(int n) {
+		return ((n + 63L) >>> 6) * 8;
+	}
+
+	/**
+	 * Blocks start at 8-byte boundaries
+	 */
+	private static long align(long position) {
+		return (position + 7) & ~7L;
+	}
+
+	private static void pad(ByteBuffer out) {
+		while ((out.position() & 7) != 0)
+			out.put((byte) 0);
+	}
+}
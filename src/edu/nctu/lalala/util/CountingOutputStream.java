@@ -0,0 +1,38 @@
+package edu.nctu.lalala.util;
+
+import java.io.OutputStream;
+
+/**
+ * Output stream which only counts the written bytes (the bytes are thrown
+ * away), e.g. the serialized size of an object without keeping a copy of it
+ *
+ * @author Gunarto Sindoro Njoo
+ * @version 1.0
+ * @category Data Object
+ */
+public class CountingOutputStream extends OutputStream {
+	private long count;
+
+	@Override
+	public void write(int b) {
+		count++;
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) {
+		if (off < 0 || len < 0 || off + len > b.length)
+			throw new IndexOutOfBoundsException();
+		count += len;
+	}
+
+	/**
+	 * Number of bytes written so far
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	public void reset() {
+		count = 0;
+	}
+}
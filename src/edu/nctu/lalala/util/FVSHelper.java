@@ -1,40 +1,38 @@
 package edu.nctu.lalala.util;
 
 import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Collections;
+import java.util.BitSet;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Random;
-import java.util.Set;
+import java.util.function.Supplier;
 
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import com.google.common.collect.ArrayListMultimap;
-import com.google.common.collect.Multimap;
-
 import edu.nctu.lalala.enums.ClassifierType;
 import edu.nctu.lalala.enums.DiscretizationType;
+import edu.nctu.lalala.enums.LogFlushPolicy;
 import edu.nctu.lalala.enums.PreprocessingType;
 import edu.nctu.lalala.enums.Preprocessing_Algorithm;
 import edu.nctu.lalala.enums.ThresholdType;
 import edu.nctu.lalala.fvs.CorrelationMatrix;
-import edu.nctu.lalala.fvs.FV;
-import edu.nctu.lalala.fvs.Value;
+import edu.nctu.lalala.fvs.FVBuckets;
+import edu.nctu.lalala.fvs.FVStatistics;
+import edu.nctu.lalala.fvs.FVStatisticsCache;
+import edu.nctu.lalala.fvs.FVSubsets;
+import edu.nctu.lalala.fvs.FVTable;
+import edu.nctu.lalala.fvs.IntervalIndex;
+import edu.nctu.lalala.fvs.evaluation.ModelSizeEstimator;
 import weka.core.DenseInstance;
 import weka.core.Instance;
 import weka.core.Instances;
@@ -50,6 +48,21 @@ public class FVSHelper {
 	private int NOISE_LEVEL = 10; // 10 Percents
 	private boolean IS_DEBUG = true;
 	private String INFORMATION_METRIC = "ig";
+	private boolean USE_SKETCH = false;
+	private int SKETCH_SIZE = QuantileSketch.DEFAULT_K;
+	private int PARALLEL_FOLDS = 1;
+	private int PARALLEL_GRID = 1;
+	private int PARALLEL_LOAD = Runtime.getRuntime().availableProcessors();
+	private boolean FOLD_SUBTRACTION = false;
+	private boolean STATISTICS_CACHE = false;
+	private boolean BINARY_INTERMEDIATE = true;
+	private LogFlushPolicy LOG_FLUSH = LogFlushPolicy.Batch;
+	private long LOG_INTERVAL = AsyncLogWriter.DEFAULT_INTERVAL;
+	private int LOG_CAPACITY = AsyncLogWriter.DEFAULT_CAPACITY;
+	private boolean INSTRUMENTATION = false;
+	private boolean STRUCTURAL_MODEL_SIZE = false;
+	private boolean TRANSFORM_TEST = false;
+	private volatile AsyncLogWriter logWriter;
 
 	private FVSHelper() {
 		System.err.println(timestamp);
@@ -61,55 +74,25 @@ public class FVSHelper {
 		return singleton;
 	}
 
-	public Map<FV, Collection<FV>> extractValuesFromData(Instances inst) {
-		Multimap<FV, FV> fv_list = ArrayListMultimap.create();
-		// Instances outFormat = getOutputFormat();
-		for (int i = 0; i < inst.numInstances(); i++) {
-			Instance ins = inst.instance(i);
-			// Skip the class label
-			for (int x = 0; x < ins.numAttributes() - 1; x++) {
-				Object value = null;
-				try {
-					value = ins.stringValue(x);
-				} catch (Exception e) {
-					value = ins.value(x);
-				}
-				FV fv = new FV(x, value, ins.classValue());
-				fv.setNumLabels(inst.numClasses());
-				if (!fv_list.put(fv, fv)) {
-					System.err.println("Couldn't put duplicates: " + fv);
-				}
-			}
-		}
-		Map<FV, Collection<FV>> original_map = fv_list.asMap();
-		return original_map;
+	/**
+	 * Count the label histogram of every feature-value pair in the data
+	 * 
+	 * @param inst
+	 * @return
+	 */
+	public FVTable extractValuesFromData(Instances inst) {
+		return FVTable.extract(inst);
 	}
 
+	/**
+	 * Absolute linear correlation between every pair of features, computed in
+	 * parallel (see {@link CorrelationMatrix#compute(Instances)})
+	 * 
+	 * @param inst
+	 * @return
+	 */
 	public CorrelationMatrix generateCorrelationMatrix(Instances inst) {
-		CorrelationMatrix result = new CorrelationMatrix();
-		Double[][] CM = new Double[inst.numAttributes()][inst.numAttributes()];
-		Double[] average = calculateAverage(inst);
-		for (int i = 0; i < inst.numAttributes(); i++) {
-			for (int j = 0; j < inst.numAttributes(); j++) {
-				CM[i][j] = 0.0;
-			}
-		}
-		// Update CM values
-		for (int i = 0; i < inst.numAttributes() - 1; i++) {
-			for (int j = i + 1; j < inst.numAttributes() - 1; j++) {
-				CM[i][j] = calculateLinearCorrelation(inst, average, i, j);
-				/* Normalize the value if correlation is a negative value */
-				CM[i][j] = Math.abs(CM[i][j]);
-				/* Symmetric property */
-				/* Correlation between x and y is the same with y and x */
-				CM[j][i] = CM[i][j];
-				if (CM[i][j] != 0)
-					result.getCorrValues().add(CM[i][j]);
-			}
-		}
-		Collections.sort(result.getCorrValues());
-		result.setCM(CM);
-		return result;
+		return CorrelationMatrix.compute(inst);
 	}
 
 	/**
@@ -168,23 +151,25 @@ public class FVSHelper {
 		return corr;
 	}
 
-	public Instances transformInstances(Instances inst, Instances output, Map<FV, Collection<FV>> map,
+	public Instances transformInstances(Instances inst, Instances output, FVTable table, BitSet selected,
 			boolean removeInstance) {
-		Set<FV> set = map.keySet();
-		Double[] substitution = calculateAverage(inst);
-		// Prepare the list
+		return transformInstances(inst, output, table, selected, removeInstance, new Random());
+	}
+
+	/**
+	 * @param random
+	 *            random generator of the instance removal
+	 */
+	public Instances transformInstances(Instances inst, Instances output, FVTable table, BitSet selected,
+			boolean removeInstance, Random random) {
+		/* No substitution is needed, removed values are changed into missing */
+		Double[] substitution = null;
+		// Prepare the index
 		// First level indicate which attribute the FVS resides in
-		List<Map<Value, FV>> list = new ArrayList<>();
-		for (int i = 0; i < inst.numAttributes(); i++) {
-			list.add(new HashMap<Value, FV>());
-		}
-		// Build the data structure
-		for (FV fv : set) {
-			Value v = new Value(fv.getValue().toString());
-			list.get(fv.getFeature()).put(v, fv);
-		}
+		IntervalIndex[] index = IntervalIndex.build(table, selected);
 		for (int i = 0; i < inst.numInstances(); i++) {
-			Instance instance = getFVSFilteredInstance(output, inst.instance(i), list, substitution, removeInstance, false);
+			Instance instance = getFVSFilteredInstance(output, inst.instance(i), index, substitution, removeInstance,
+					false, random);
 			if (removeInstance && instance == null)
 				continue;
 			output.add(instance);
@@ -196,29 +181,25 @@ public class FVSHelper {
 		return output;
 	}
 
-	public Instances transformInstances(Instances inst, Instances output, Map<FV, Collection<FV>> map) {
-		return transformInstances(inst, output, map, false);
+	public Instances transformInstances(Instances inst, Instances output, FVTable table, BitSet selected) {
+		return transformInstances(inst, output, table, selected, false);
 	}
 	
-	public Instance getFVSFilteredInstance(Instances output, Instance old_inst, List<Map<Value, FV>> map,
-			Double[] substitution, boolean removeInstance, boolean average) {
-		double[] oldValues = old_inst.toDoubleArray();
+	public Instance getFVSFilteredInstance(Instances output, Instance old_inst, IntervalIndex[] index,
+			Double[] substitution, boolean removeInstance, boolean average, Random random) {
 		Instance instance = new DenseInstance(old_inst);
+		int numAttributes = old_inst.numAttributes();
 		int count_miss = 0;
-		Random random = new Random();
-		for (int i = 0; i < oldValues.length - 1; i++) {
-			Value v = new Value(oldValues[i]);
-			FV fv = map.get(i).getOrDefault(v, null);
-			if (fv == null) {
+		for (int i = 0; i < numAttributes - 1; i++) {
+			int fv = index[i].lookup(old_inst.value(i));
+			if (fv == IntervalIndex.NOT_FOUND) {
 				replaceValue(substitution, average, instance, i);
 				count_miss++;
-			} else if (old_inst.isMissing(i)) {
-				count_miss++;
 			} 
 		}
 		if (removeInstance) {
 			/* Remove the instance using miss rate probability */
-			double miss_rate = (double) count_miss / oldValues.length;
+			double miss_rate = (double) count_miss / numAttributes;
 			if (miss_rate > random.nextFloat()) {
 				instance = null;
 			}
@@ -226,9 +207,9 @@ public class FVSHelper {
 		return instance;
 	}
 
-	public Instance getFVSFilteredInstance(Instances output, Instance old_inst, List<Map<Value, FV>> map,
+	public Instance getFVSFilteredInstance(Instances output, Instance old_inst, IntervalIndex[] index,
 			Double[] substitution) {
-		return getFVSFilteredInstance(output, old_inst, map, substitution, false, false);
+		return getFVSFilteredInstance(output, old_inst, index, substitution, false, false, new Random());
 	}
 	
 	public void replaceValue(Double[] substitution, boolean average, Instance instance, int i) {
@@ -240,79 +221,169 @@ public class FVSHelper {
 			instance.setMissing(i);
 	}
 
-	@SuppressWarnings({ "unchecked", "rawtypes" })
-	public List<Double> generateEntropy(Map<FV, Collection<FV>> fv_list, int numInstances, int numOfClass) {
-		List<Double> entropies = new ArrayList();
-		Iterator<Entry<FV, Collection<FV>>> iterator = fv_list.entrySet().iterator();
-		while (iterator.hasNext()) {
-			Entry<FV, Collection<FV>> next = iterator.next();
-			FV key = next.getKey();
-			key.setFrequency((double) next.getValue().size() / numInstances);
-			int[] counter = new int[key.getNumLabels()];
-			for (FV fv : next.getValue()) {
-				int idx = (int) fv.getLabel();
-				counter[idx]++;
-			}
-			key.setEntropy(MathHelper.getInstance().calculateEntropy(counter, next.getValue().size(), numOfClass));
-			entropies.add(key.getEntropy());
+	/**
+	 * Calculate frequency, entropy, information gain, symmetric uncertainty,
+	 * chi-square and phi of every FV in the table (single pass)
+	 * 
+	 * @param table
+	 * @return
+	 */
+	public FVStatistics generateStatistics(FVTable table) {
+		return FVStatistics.compute(table);
+	}
+
+	/**
+	 * Calculate entropy of every FV in the table
+	 * 
+	 * @param table
+	 * @return entropy indexed by FV id
+	 */
+	public double[] generateEntropy(FVTable table) {
+		return generateStatistics(table).getEntropy();
+	}
+
+	/**
+	 * Correlation FVS: correlated features are grouped into connected
+	 * components, then top-k percent FVs with the lowest entropy are selected
+	 * from each group (an uncorrelated feature is a group by itself)
+	 * 
+	 * @param table
+	 * @param entropies
+	 *            entropy of every FV
+	 * @param CM
+	 * @param corrThreshold
+	 * @param topk
+	 * @return selected FVs
+	 */
+	public BitSet correlatedSelection(FVTable table, double[] entropies, CorrelationMatrix CM,
+			double corrThreshold, double topk) {
+		BitSet result = new BitSet(table.size());
+		FVBuckets buckets = FVBuckets.build(table, entropies);
+		for (int[] group : CM.getCorrelatedGroups(corrThreshold)) {
+			int size = buckets.size(group);
+			/* Prevent out-of-size */
+			int limit = Math.min((int) (size * topk) + 1, size - 1);
+			/* Prevent negative */
+			limit = Math.max(limit, 0);
+			buckets.selectLowest(group, limit, result);
 		}
-		return entropies;
+		return result;
 	}
 
-	public double thresholdSelection(double threshold, Double[] values, ThresholdType thr_alg) {
-		Double mean = MathHelper.getInstance().calculateAverage(values);
-		Double stdev = MathHelper.getInstance().calculateStdev(mean, values);
-		Double[] q = MathHelper.getInstance().calculateQuartile(values);
+	/**
+	 * Select the threshold based on the distribution of the values, only the
+	 * statistic required by the threshold type is computed
+	 * 
+	 * @param threshold
+	 *            used when the threshold type is not a statistic
+	 * @param values
+	 * @param thr_alg
+	 * @return
+	 */
+	public double thresholdSelection(double threshold, double[] values, ThresholdType thr_alg) {
 		// threshold = mean + stdev; // Force using specified threshold
+		threshold = MathHelper.getInstance().calculateThreshold(threshold, values, thr_alg);
+		logThreshold(threshold, thr_alg);
+		return threshold;
+	}
+
+	/**
+	 * Select the threshold based on a quantile sketch of the values. The
+	 * accuracy of the sketch is written in the log, and in debug mode the
+	 * threshold is compared with the exact one.
+	 * 
+	 * @param threshold
+	 *            used when the threshold type is not a statistic
+	 * @param sketch
+	 * @param thr_alg
+	 * @param exact
+	 *            supplier of the exact values, only called in debug mode (could
+	 *            be null)
+	 * @return
+	 */
+	public double thresholdSelection(double threshold, QuantileSketch sketch, ThresholdType thr_alg,
+			Supplier<double[]> exact) {
+		double estimated = MathHelper.getInstance().calculateThreshold(threshold, sketch, thr_alg);
+		if (!logThreshold(estimated, thr_alg))
+			return estimated;
+		logFile(String.format("Sketch: k=%d, n=%d, retained=%d, rank error=%.4f", sketch.getK(), sketch.getN(),
+				sketch.getRetained(), sketch.getNormalizedRankError()));
+		if (IS_DEBUG && exact != null) {
+			double[] values = exact.get();
+			double exactThreshold = MathHelper.getInstance().calculateThreshold(threshold, values, thr_alg);
+			/* Actual rank error: fraction of values between both thresholds */
+			long between = 0;
+			double lo = Math.min(estimated, exactThreshold);
+			double hi = Math.max(estimated, exactThreshold);
+			for (double v : values)
+				if (v > lo && v <= hi)
+					between++;
+			logFile(String.format("Exact: %s (difference=%.6f, rank error=%.4f)", exactThreshold,
+					estimated - exactThreshold, values.length == 0 ? 0.0 : (double) between / values.length));
+		}
+		return estimated;
+	}
+
+	/**
+	 * @return true if the threshold type is a statistic
+	 */
+	private boolean logThreshold(double threshold, ThresholdType thr_alg) {
 		switch (thr_alg) {
 		case Mean:
-			threshold = mean;
 			logFile("Mean: " + threshold);
 			break;
 		case MeanMin:
-			threshold = mean - stdev;
 			logFile("Mean-: " + threshold);
 			break;
 		case MeanPlus:
-			threshold = mean + stdev;
 			logFile("Mean+: " + threshold);
 			break;
 		case Q1:
-			threshold = q[0];
-			logFile("Q1: " + q[0]);
+			logFile("Q1: " + threshold);
 			break;
 		case Q2:
-			threshold = q[1];
-			logFile("Q2: " + q[1]);
+			logFile("Q2: " + threshold);
 			break;
 		case Q3:
-			threshold = q[2];
-			logFile("Q3: " + q[2]);
+			logFile("Q3: " + threshold);
 			break;
 		default:
-			break;
+			return false;
 		}
-		return threshold;
+		return true;
 	}
 
+	/**
+	 * Append the text into the log file (written in background, see
+	 * {@link AsyncLogWriter}), and print it in debug mode
+	 * 
+	 * @param text
+	 */
 	public void logFile(String text) {
-		String filename = LOG_FOLDER + timestamp + ".txt";
-		try (BufferedWriter out = Files.newBufferedWriter(Paths.get(filename), Charset.forName("UTF-8"),
-				StandardOpenOption.APPEND, StandardOpenOption.CREATE, StandardOpenOption.DSYNC)) {
-			out.append(String.format("[%s] %s", new Date().toString(), text));
-			out.newLine();
-
-		} catch (IOException e) {
-			if (IS_DEBUG)
-				System.err.println("FVSHelper.logFile exception");
-			// e.printStackTrace();
-		}
+		getLogWriter().log(text);
 		if (IS_DEBUG)
 			System.out.println(text);
 	}
 
+	private AsyncLogWriter getLogWriter() {
+		AsyncLogWriter writer = logWriter;
+		if (writer == null) {
+			synchronized (this) {
+				if (logWriter == null) {
+					logWriter = new AsyncLogWriter(LOG_FOLDER + timestamp + ".txt", LOG_CAPACITY);
+					logWriter.setFlushPolicy(LOG_FLUSH);
+					logWriter.setInterval(LOG_INTERVAL);
+				}
+				writer = logWriter;
+			}
+		}
+		return writer;
+	}
+
 	public void saveIntermediateInstances(Instances dataSet, String remark) {
 		remark = remark.replace(".arff", "");
+		if (BINARY_INTERMEDIATE && saveIntermediateColumnar(dataSet, remark))
+			return;
 		String filename = INTERMEDIATE_FOLDER + remark + ".arff";
 		File f = new File(filename);
 		if (f.exists())
@@ -332,9 +403,35 @@ public class FVSHelper {
 			System.out.println("Saved intermediate instances : " + filename);
 	}
 
+	/**
+	 * Save the intermediate instances in binary columnar format
+	 * 
+	 * @return false if the data couldn't be saved (e.g. string attribute)
+	 */
+	private boolean saveIntermediateColumnar(Instances dataSet, String remark) {
+		String filename = INTERMEDIATE_FOLDER + remark + ColumnarFile.EXTENSION;
+		if (new File(filename).exists())
+			return true;
+		try {
+			ColumnarFile.write(dataSet, filename);
+		} catch (IOException e) {
+			if (IS_DEBUG)
+				System.err.println("FVSHelper.saveIntermediateColumnar exception: " + e.getMessage());
+			return false;
+		}
+		if (IS_DEBUG)
+			System.out.println("Saved intermediate instances : " + filename);
+		return true;
+	}
+
 	public Instances loadIntermediateInstances(String remark) {
 		remark = remark.replace(".arff", "");
 		Instances data = null;
+		if (BINARY_INTERMEDIATE) {
+			ColumnarFile file = loadIntermediateColumnar(remark);
+			if (file != null)
+				return file.toInstances();
+		}
 		try {
 			String filename = INTERMEDIATE_FOLDER + remark + ".arff";
 			DataSource source = new DataSource(filename);
@@ -343,6 +440,9 @@ public class FVSHelper {
 				data.setClassIndex(data.numAttributes() - 1);
 			if (IS_DEBUG)
 				System.out.println("Loaded intermediate instances : " + filename);
+			/* Convert the old intermediate file for the next run */
+			if (BINARY_INTERMEDIATE)
+				saveIntermediateColumnar(data, remark);
 		} catch (Exception e) {
 			if (IS_DEBUG)
 				System.err.println("FVSHelper.loadIntermediateInstances exception: " + e.getMessage());
@@ -351,7 +451,31 @@ public class FVSHelper {
 		return data;
 	}
 
+	/**
+	 * Map the intermediate instances in binary columnar format, the values
+	 * could be read without building the instances
+	 * 
+	 * @return null if the file doesn't exist or couldn't be read
+	 */
+	public ColumnarFile loadIntermediateColumnar(String remark) {
+		String filename = INTERMEDIATE_FOLDER + remark.replace(".arff", "") + ColumnarFile.EXTENSION;
+		if (!new File(filename).exists())
+			return null;
+		try {
+			ColumnarFile file = ColumnarFile.open(filename);
+			if (IS_DEBUG)
+				System.out.println("Loaded intermediate instances : " + filename);
+			return file;
+		} catch (IOException e) {
+			if (IS_DEBUG)
+				System.err.println("FVSHelper.loadIntermediateColumnar exception: " + e.getMessage());
+			return null;
+		}
+	}
+
 	public boolean isIntermediateExist(String remark) {
+		if (BINARY_INTERMEDIATE && new File(INTERMEDIATE_FOLDER + remark + ColumnarFile.EXTENSION).exists())
+			return true;
 		String filename = INTERMEDIATE_FOLDER + remark + ".arff";
 		File f = new File(filename);
 		return f.exists();
@@ -396,6 +520,8 @@ public class FVSHelper {
 				this.INTERMEDIATE_FOLDER = obj.get("intermediate").toString();
 				if (!this.INTERMEDIATE_FOLDER.endsWith("\\") && !this.INTERMEDIATE_FOLDER.endsWith("/"))
 					this.INTERMEDIATE_FOLDER = this.INTERMEDIATE_FOLDER + "\\";
+				/* Binary columnar (default) or ARFF */
+				BINARY_INTERMEDIATE = !obj.optString("format", "binary").equalsIgnoreCase("arff");
 			}
 			/* Initialize add noise */
 			obj = rootObject.getJSONObject("noise");
@@ -408,6 +534,57 @@ public class FVSHelper {
 				this.INFORMATION_METRIC = rootObject.getString("info");
 			} catch (Exception ex) {
 			}
+			/* Initialize quantile sketch for the thresholds */
+			try {
+				obj = rootObject.getJSONObject("sketch");
+				USE_SKETCH = obj.getBoolean("enable_sketch");
+				SKETCH_SIZE = obj.optInt("sketch_size", SKETCH_SIZE);
+			} catch (Exception ex) {
+			}
+			/* Initialize parallelism (1 is sequential) */
+			try {
+				obj = rootObject.getJSONObject("parallel");
+				PARALLEL_FOLDS = Math.max(1, obj.optInt("folds", PARALLEL_FOLDS));
+				PARALLEL_GRID = Math.max(1, obj.optInt("grid", PARALLEL_GRID));
+				PARALLEL_LOAD = Math.max(1, obj.optInt("load", PARALLEL_LOAD));
+			} catch (Exception ex) {
+			}
+			/* Initialize training fold statistics (subtraction and persistent cache) */
+			try {
+				obj = rootObject.getJSONObject("fold_statistics");
+				FOLD_SUBTRACTION = obj.optBoolean("subtraction", FOLD_SUBTRACTION);
+				STATISTICS_CACHE = obj.optBoolean("cache", STATISTICS_CACHE);
+				TRANSFORM_TEST = obj.optBoolean("transform_test", TRANSFORM_TEST);
+			} catch (Exception ex) {
+			}
+			/* Initialize log writer (flush per batch, timed, or on shutdown) */
+			try {
+				obj = rootObject.getJSONObject("log");
+				String flush = obj.optString("flush", "batch");
+				if (flush.equalsIgnoreCase("timed"))
+					LOG_FLUSH = LogFlushPolicy.Timed;
+				else if (flush.equalsIgnoreCase("shutdown"))
+					LOG_FLUSH = LogFlushPolicy.Shutdown;
+				else
+					LOG_FLUSH = LogFlushPolicy.Batch;
+				LOG_INTERVAL = Math.max(1, obj.optLong("interval", LOG_INTERVAL));
+				LOG_CAPACITY = Math.max(1, obj.optInt("capacity", LOG_CAPACITY));
+				if (logWriter != null) {
+					logWriter.setFlushPolicy(LOG_FLUSH);
+					logWriter.setInterval(LOG_INTERVAL);
+				}
+			} catch (Exception ex) {
+			}
+			/* Initialize instrumentation (timers of the pipeline phases) */
+			try {
+				this.INSTRUMENTATION = rootObject.getBoolean("instrumentation");
+			} catch (Exception ex) {
+			}
+			/* Initialize model size (serialized or structural) */
+			try {
+				STRUCTURAL_MODEL_SIZE = rootObject.getString("model_size").equalsIgnoreCase("structural");
+			} catch (Exception ex) {
+			}
 			/* Initialize debug status */
 			try {
 				this.IS_DEBUG = rootObject.getBoolean("debug");
@@ -417,6 +594,17 @@ public class FVSHelper {
 				System.out.println("Debug mode is ON");
 				System.out.println(String.format("Add noise: %s (%d percents)", this.ADD_NOISE, this.NOISE_LEVEL));
 				System.out.println("Information metric: " + getInformationMetric());
+				System.out.println(String.format("Quantile sketch: %s (k=%d)", this.USE_SKETCH, this.SKETCH_SIZE));
+				System.out.println("Parallel folds: " + this.PARALLEL_FOLDS);
+				System.out.println("Parallel grid: " + this.PARALLEL_GRID);
+				System.out.println("Parallel load: " + this.PARALLEL_LOAD);
+				System.out.println("Fold statistics by subtraction: " + this.FOLD_SUBTRACTION);
+				System.out.println("Fold statistics cache: " + this.STATISTICS_CACHE);
+				System.out.println("FVS on test folds: " + this.TRANSFORM_TEST);
+				System.out.println("Binary intermediate instances: " + this.BINARY_INTERMEDIATE);
+				System.out.println(String.format("Log flush: %s (interval=%d ms)", this.LOG_FLUSH, this.LOG_INTERVAL));
+				System.out.println("Instrumentation: " + this.INSTRUMENTATION);
+				System.out.println("Structural model size: " + this.STRUCTURAL_MODEL_SIZE);
 			}
 		} catch (JSONException e) {
 			// JSON Parsing error
@@ -575,7 +763,97 @@ public class FVSHelper {
 		return IS_DEBUG;
 	}
 
+	/**
+	 * Override the debug flag of the config (e.g. quiet benchmarks)
+	 */
+	public void setDebugStatus(boolean debug) {
+		this.IS_DEBUG = debug;
+	}
+
 	public String getInformationMetric() {
 		return INFORMATION_METRIC;
 	}
+
+	public boolean getUseSketch() {
+		return USE_SKETCH;
+	}
+
+	public int getSketchSize() {
+		return SKETCH_SIZE;
+	}
+
+	/**
+	 * Number of cross-validation folds run at the same time
+	 */
+	public int getFoldParallelism() {
+		return PARALLEL_FOLDS;
+	}
+
+	/**
+	 * Override the fold parallelism of the config (e.g. tests)
+	 */
+	public void setFoldParallelism(int parallelism) {
+		this.PARALLEL_FOLDS = Math.max(1, parallelism);
+	}
+
+	/**
+	 * Number of experiment cells (dataset, discretization, preprocessing,
+	 * parameter, classifier) run at the same time
+	 */
+	public int getGridParallelism() {
+		return PARALLEL_GRID;
+	}
+
+	/**
+	 * Number of chunks of an ARFF file parsed at the same time (see
+	 * {@link ArffParser})
+	 */
+	public int getLoadParallelism() {
+		return PARALLEL_LOAD;
+	}
+
+	/**
+	 * Derive the FV tables of the training folds from the whole data (see
+	 * {@link FVSubsets})
+	 */
+	public boolean getFoldSubtraction() {
+		return FOLD_SUBTRACTION;
+	}
+
+	/**
+	 * Keep the fitted statistics of the training folds in the intermediate
+	 * folder (see {@link FVStatisticsCache})
+	 */
+	public boolean getStatisticsCache() {
+		return STATISTICS_CACHE;
+	}
+
+	/**
+	 * Time the phases of the pipeline per dataset (see
+	 * {@link Instrumentation})
+	 */
+	public boolean getInstrumentation() {
+		return INSTRUMENTATION;
+	}
+
+	/**
+	 * Estimate the model size from its structure instead of serializing it
+	 * (see {@link ModelSizeEstimator})
+	 */
+	public boolean getStructuralModelSize() {
+		return STRUCTURAL_MODEL_SIZE;
+	}
+
+	/**
+	 * Apply the FV selection of the training fold to the test fold (streamed
+	 * through the fitted FVS_Filter), otherwise only the training fold is
+	 * transformed
+	 */
+	public boolean getTransformTest() {
+		return TRANSFORM_TEST;
+	}
+
+	public String getIntermediateFolder() {
+		return INTERMEDIATE_FOLDER;
+	}
 }
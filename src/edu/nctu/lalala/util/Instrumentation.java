@@ -0,0 +1,217 @@
+package edu.nctu.lalala.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.json.JSONObject;
+
+/**
+ * Named timers and counters of the pipeline, one instance per dataset. <br/>
+ * A phase is timed by <b>long t = instrumentation.start(); ...
+ * instrumentation.stop(Instrumentation.TRAIN, t);</b>, every timer keeps the
+ * number of samples, the total time and a {@link QuantileSketch} of the
+ * samples for p50 and p99. The timers and counters could be updated from any
+ * thread. <br/>
+ * A disabled instance (e.g. {@link #DISABLED}) only checks a final flag, thus
+ * it could be left in the hot paths.
+ *
+ * @author Gunarto Sindoro Njoo
+ * @version 1.0
+ * @category Logging
+ */
+public class Instrumentation {
+	public static final String LOAD = "load";
+	public static final String DISCRETIZE = "discretize";
+	public static final String EXTRACT = "extract";
+	public static final String SCORE = "score";
+	public static final String THRESHOLD = "threshold";
+	public static final String SELECT = "select";
+	public static final String TRANSFORM = "transform";
+	/**
+	 * Other filters (the selection and transformation are not separated)
+	 */
+	public static final String FILTER = "filter";
+	public static final String TRAIN = "train";
+	public static final String MODEL_SIZE = "model_size";
+	public static final String CLASSIFY = "classify";
+	/**
+	 * Order of the phases in the summary (other timers are sorted by name)
+	 */
+	private static final List<String> PIPELINE = Arrays.asList(LOAD, DISCRETIZE, EXTRACT, SCORE, THRESHOLD, SELECT,
+			TRANSFORM, FILTER, TRAIN, MODEL_SIZE, CLASSIFY);
+	/**
+	 * Records nothing
+	 */
+	public static final Instrumentation DISABLED = new Instrumentation(false);
+
+	private final boolean enabled;
+	private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+
+	public Instrumentation(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Start of a phase (0 if disabled)
+	 */
+	public long start() {
+		if (!enabled)
+			return 0;
+		return System.nanoTime();
+	}
+
+	/**
+	 * End of a phase
+	 *
+	 * @param start
+	 *            result of {@link #start()}
+	 */
+	public void stop(String name, long start) {
+		if (!enabled)
+			return;
+		record(name, System.nanoTime() - start);
+	}
+
+	/**
+	 * Add a sample into the timer
+	 *
+	 * @param time
+	 *            nanoseconds
+	 */
+	public void record(String name, long time) {
+		if (!enabled)
+			return;
+		timers.computeIfAbsent(name, k -> new Timer()).add(time);
+	}
+
+	public void count(String name, long delta) {
+		if (!enabled)
+			return;
+		counters.computeIfAbsent(name, k -> new LongAdder()).add(delta);
+	}
+
+	/**
+	 * Number of samples of the timer
+	 */
+	public long getCount(String name) {
+		Timer timer = timers.get(name);
+		return timer == null ? 0 : timer.getCount();
+	}
+
+	/**
+	 * Total time of the timer (nanoseconds)
+	 */
+	public long getTotal(String name) {
+		Timer timer = timers.get(name);
+		return timer == null ? 0 : timer.getTotal();
+	}
+
+	/**
+	 * Estimated quantile of the samples of the timer (nanoseconds, NaN if
+	 * there is no sample)
+	 */
+	public double getQuantile(String name, double fraction) {
+		Timer timer = timers.get(name);
+		return timer == null ? Double.NaN : timer.getQuantile(fraction);
+	}
+
+	public long getCounter(String name) {
+		LongAdder counter = counters.get(name);
+		return counter == null ? 0 : counter.sum();
+	}
+
+	/**
+	 * Names of the timers in the pipeline order
+	 */
+	public List<String> getTimerNames() {
+		List<String> names = new ArrayList<>();
+		for (String name : PIPELINE)
+			if (timers.containsKey(name))
+				names.add(name);
+		List<String> others = new ArrayList<>();
+		for (String name : timers.keySet())
+			if (!PIPELINE.contains(name))
+				others.add(name);
+		Collections.sort(others);
+		names.addAll(others);
+		return names;
+	}
+
+	public List<String> getCounterNames() {
+		List<String> names = new ArrayList<>(counters.keySet());
+		Collections.sort(names);
+		return names;
+	}
+
+	/**
+	 * Table of the timers (p50, p99 and total in ms) and the counters
+	 */
+	public String summary(String title) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format("Instrumentation: %s%n", title));
+		sb.append(String.format("%-16s %8s %12s %12s %12s%n", "phase", "count", "p50(ms)", "p99(ms)", "total(ms)"));
+		for (String name : getTimerNames())
+			sb.append(String.format("%-16s %8d %12.3f %12.3f %12.3f%n", name, getCount(name),
+					getQuantile(name, 0.5) / 1e6, getQuantile(name, 0.99) / 1e6, getTotal(name) / 1e6));
+		for (String name : getCounterNames())
+			sb.append(String.format("%-16s %8d%n", name, getCounter(name)));
+		return sb.toString();
+	}
+
+	/**
+	 * Same content as {@link #summary(String)}: <b>{"timers": {name: {count,
+	 * p50_ms, p99_ms, total_ms}}, "counters": {name: value}}</b>
+	 */
+	public JSONObject toJSON() {
+		JSONObject timers = new JSONObject();
+		for (String name : getTimerNames()) {
+			JSONObject timer = new JSONObject();
+			timer.put("count", getCount(name));
+			timer.put("p50_ms", getQuantile(name, 0.5) / 1e6);
+			timer.put("p99_ms", getQuantile(name, 0.99) / 1e6);
+			timer.put("total_ms", getTotal(name) / 1e6);
+			timers.put(name, timer);
+		}
+		JSONObject counters = new JSONObject();
+		for (String name : getCounterNames())
+			counters.put(name, getCounter(name));
+		JSONObject json = new JSONObject();
+		json.put("timers", timers);
+		json.put("counters", counters);
+		return json;
+	}
+
+	private static class Timer {
+		private final QuantileSketch sketch = new QuantileSketch();
+		private long count;
+		private long total;
+
+		synchronized void add(long time) {
+			count++;
+			total += time;
+			sketch.update(time);
+		}
+
+		synchronized long getCount() {
+			return count;
+		}
+
+		synchronized long getTotal() {
+			return total;
+		}
+
+		synchronized double getQuantile(double fraction) {
+			return sketch.getQuantile(fraction);
+		}
+	}
+}
@@ -0,0 +1,121 @@
+package edu.nctu.lalala.util;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from primitive long keys to non-negative int values
+ * (linear probing, power of two capacity). <br/>
+ * Used to index feature-value pairs without boxing.
+ *
+ * @author Gunarto Sindoro Njoo
+ * @version 1.0
+ * @category Data Structure
+ */
+public class LongIntMap {
+	public static final int NOT_FOUND = -1;
+	private static final float LOAD_FACTOR = 0.5f;
+
+	private long[] keys;
+	private int[] values;
+	private int size;
+	private int mask;
+	private int resizeAt;
+
+	public LongIntMap() {
+		this(16);
+	}
+
+	public LongIntMap(int expected) {
+		int capacity = Integer.highestOneBit(Math.max(4, (int) (expected / LOAD_FACTOR)) - 1) << 1;
+		allocate(capacity);
+	}
+
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		values = new int[capacity];
+		Arrays.fill(values, NOT_FOUND);
+		mask = capacity - 1;
+		resizeAt = (int) (capacity * LOAD_FACTOR);
+	}
+
+	private static int hash(long key) {
+		/* MurmurHash3 finalizer */
+		key ^= key >>> 33;
+		key *= 0xff51afd7ed558ccdL;
+		key ^= key >>> 33;
+		key *= 0xc4ceb9fe1a85ec53L;
+		key ^= key >>> 33;
+		return (int) key;
+	}
+
+	/**
+	 * @param key
+	 * @return value mapped to the key, or {@link #NOT_FOUND}
+	 */
+	public int get(long key) {
+		int slot = hash(key) & mask;
+		while (values[slot] != NOT_FOUND) {
+			if (keys[slot] == key)
+				return values[slot];
+			slot = (slot + 1) & mask;
+		}
+		return NOT_FOUND;
+	}
+
+	/**
+	 * Return the value of the key, or map the key into <b>value</b> if it is
+	 * not available yet
+	 *
+	 * @param key
+	 * @param value
+	 *            must be non-negative
+	 * @return existing value, or <b>value</b> if the key is new
+	 */
+	public int putIfAbsent(long key, int value) {
+		int slot = hash(key) & mask;
+		while (values[slot] != NOT_FOUND) {
+			if (keys[slot] == key)
+				return values[slot];
+			slot = (slot + 1) & mask;
+		}
+		keys[slot] = key;
+		values[slot] = value;
+		if (++size > resizeAt)
+			rehash();
+		return value;
+	}
+
+	public void put(long key, int value) {
+		int slot = hash(key) & mask;
+		while (values[slot] != NOT_FOUND) {
+			if (keys[slot] == key) {
+				values[slot] = value;
+				return;
+			}
+			slot = (slot + 1) & mask;
+		}
+		keys[slot] = key;
+		values[slot] = value;
+		if (++size > resizeAt)
+			rehash();
+	}
+
+	private void rehash() {
+		long[] oldKeys = keys;
+		int[] oldValues = values;
+		allocate(keys.length << 1);
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldValues[i] == NOT_FOUND)
+				continue;
+			int slot = hash(oldKeys[i]) & mask;
+			while (values[slot] != NOT_FOUND)
+				slot = (slot + 1) & mask;
+			keys[slot] = oldKeys[i];
+			values[slot] = oldValues[i];
+		}
+	}
+
+	public int size() {
+		return size;
+	}
+}
@@ -1,17 +1,14 @@
 package edu.nctu.lalala.util;
 
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
 import java.util.stream.IntStream;
 
 import org.apache.commons.math3.stat.inference.ChiSquareTest;
 
-import edu.nctu.lalala.fvs.FV;
+import edu.nctu.lalala.enums.ThresholdType;
+import edu.nctu.lalala.fvs.FVTable;
 
 public class MathHelper {
 	private MathHelper() {
@@ -19,6 +16,11 @@ public class MathHelper {
 
 	private static final MathHelper singleton = new MathHelper();
 
+	/**
+	 * Cached n*log(n) table, grown on demand
+	 */
+	private volatile double[] nlognTable = new double[0];
+
 	public static MathHelper getInstance() {
 		return singleton;
 	}
@@ -76,80 +78,398 @@ public class MathHelper {
 		return q;
 	}
 
+	/**
+	 * Calculate average of an array
+	 * 
+	 * @param data
+	 * @return
+	 */
+	public double calculateAverage(double[] data) {
+		double mean = 0.0;
+		if (data.length > 0) {
+			for (double x : data) {
+				mean += x;
+			}
+			mean = mean / data.length;
+		}
+		return mean;
+	}
+
+	/**
+	 * Calculate stdev of an array (same as
+	 * {@link #calculateStdev(Double, Double...)})
+	 * 
+	 * @param average
+	 * @param data
+	 * @return
+	 */
+	public double calculateStdev(double average, double[] data) {
+		double stdev = 0.0;
+		if (data.length > 0) {
+			for (int i = 0; i < data.length; i++) {
+				double d = data[i] - average;
+				stdev += d * d;
+			}
+			stdev /= data.length;
+		}
+		return stdev;
+	}
+
+	/**
+	 * Position of the quartile in the sorted array, the same position as
+	 * {@link #calculateQuartile(Double...)} but bounded by the array size
+	 */
+	private long quartilePosition(long size, int quartile) {
+		final int QUARTILE = 4;
+		return Math.min(size * quartile / QUARTILE + 1, size - 1);
+	}
+
+	/**
+	 * Calculate a single quartile of an array by selection (O(n)), the array
+	 * is not modified
+	 * 
+	 * @param data
+	 * @param quartile
+	 *            1, 2, or 3
+	 * @return quartile value, NaN for empty array
+	 */
+	public double calculateQuartile(double[] data, int quartile) {
+		if (data.length == 0)
+			return Double.NaN;
+		double[] temp = data.clone();
+		return select(temp, 0, temp.length, (int) quartilePosition(temp.length, quartile));
+	}
+
+	/**
+	 * Calculate Q1, Q2, and Q3 of an array by selection (O(n)), the array is
+	 * not modified
+	 * 
+	 * @param data
+	 * @return
+	 */
+	public double[] calculateQuartile(double[] data) {
+		double[] q = new double[3];
+		if (data.length == 0) {
+			Arrays.fill(q, Double.NaN);
+			return q;
+		}
+		double[] temp = data.clone();
+		int p1 = (int) quartilePosition(temp.length, 1);
+		int p2 = (int) quartilePosition(temp.length, 2);
+		int p3 = (int) quartilePosition(temp.length, 3);
+		q[1] = select(temp, 0, temp.length, p2);
+		/* After the selection, left side <= Q2 <= right side */
+		q[0] = p1 < p2 ? select(temp, 0, p2, p1) : q[1];
+		q[2] = p3 > p2 ? select(temp, p2 + 1, temp.length, p3) : q[1];
+		return q;
+	}
+
+	/**
+	 * Select the k-th smallest value of data[from .. to) in place
+	 * (introselect: quickselect with median-of-3 pivot, falls back into
+	 * sorting when the partitioning degenerates). <br/>
+	 * After the selection, data[from .. k) &lt;= data[k] &lt;= data[k+1 ..
+	 * to). The data must not contain NaN.
+	 * 
+	 * @param data
+	 * @param from
+	 * @param to
+	 * @param k
+	 *            absolute position, from &lt;= k &lt; to
+	 * @return
+	 */
+	public double select(double[] data, int from, int to, int k) {
+		int lo = from;
+		int hi = to - 1;
+		int depth = 2 * (32 - Integer.numberOfLeadingZeros(to - from));
+		while (hi > lo) {
+			if (depth-- == 0) {
+				Arrays.sort(data, lo, hi + 1);
+				return data[k];
+			}
+			int mid = (lo + hi) >>> 1;
+			if (data[mid] < data[lo])
+				swap(data, lo, mid);
+			if (data[hi] < data[lo])
+				swap(data, lo, hi);
+			if (data[hi] < data[mid])
+				swap(data, mid, hi);
+			double pivot = data[mid];
+			int i = lo;
+			int j = hi;
+			while (i <= j) {
+				while (data[i] < pivot)
+					i++;
+				while (data[j] > pivot)
+					j--;
+				if (i <= j) {
+					swap(data, i, j);
+					i++;
+					j--;
+				}
+			}
+			/* data[lo..j] <= pivot <= data[i..hi], data(j..i) == pivot */
+			if (k <= j)
+				hi = j;
+			else if (k >= i)
+				lo = i;
+			else
+				return data[k];
+		}
+		return data[k];
+	}
+
+	private static void swap(double[] data, int i, int j) {
+		double temp = data[i];
+		data[i] = data[j];
+		data[j] = temp;
+	}
+
+	/**
+	 * Partial top-k: move the ids with the k lowest scores (ties are broken by
+	 * the smaller id) into ids[0 .. k), in no particular order (O(n))
+	 * 
+	 * @param ids
+	 * @param length
+	 *            number of ids to consider
+	 * @param scores
+	 *            score indexed by id
+	 * @param k
+	 */
+	public void selectLowest(int[] ids, int length, double[] scores, int k) {
+		if (k <= 0 || k >= length)
+			return;
+		int lo = 0;
+		int hi = length - 1;
+		int depth = 2 * (32 - Integer.numberOfLeadingZeros(length));
+		while (hi > lo) {
+			if (depth-- == 0) {
+				sortByScore(ids, lo, hi + 1, scores);
+				return;
+			}
+			int mid = (lo + hi) >>> 1;
+			if (less(scores, ids[mid], ids[lo]))
+				swap(ids, lo, mid);
+			if (less(scores, ids[hi], ids[lo]))
+				swap(ids, lo, hi);
+			if (less(scores, ids[hi], ids[mid]))
+				swap(ids, mid, hi);
+			int pivot = ids[mid];
+			int i = lo;
+			int j = hi;
+			while (i <= j) {
+				while (less(scores, ids[i], pivot))
+					i++;
+				while (less(scores, pivot, ids[j]))
+					j--;
+				if (i <= j) {
+					swap(ids, i, j);
+					i++;
+					j--;
+				}
+			}
+			/* Keys are distinct (ties are broken by id) */
+			if (k - 1 <= j)
+				hi = j;
+			else if (k - 1 >= i)
+				lo = i;
+			else
+				return;
+		}
+	}
+
+	private static boolean less(double[] scores, int a, int b) {
+		return scores[a] < scores[b] || (scores[a] == scores[b] && a < b);
+	}
+
+	private static void swap(int[] data, int i, int j) {
+		int temp = data[i];
+		data[i] = data[j];
+		data[j] = temp;
+	}
+
+	/**
+	 * Heapsort by score, only used when quickselect degenerates
+	 */
+	private static void sortByScore(int[] ids, int from, int to, double[] scores) {
+		int n = to - from;
+		for (int i = n / 2 - 1; i >= 0; i--)
+			siftDown(ids, from, i, n, scores);
+		for (int end = n - 1; end > 0; end--) {
+			swap(ids, from, from + end);
+			siftDown(ids, from, 0, end, scores);
+		}
+	}
+
+	private static void siftDown(int[] ids, int from, int i, int n, double[] scores) {
+		while (2 * i + 1 < n) {
+			int child = 2 * i + 1;
+			if (child + 1 < n && less(scores, ids[from + child], ids[from + child + 1]))
+				child++;
+			if (!less(scores, ids[from + i], ids[from + child]))
+				return;
+			swap(ids, from + i, from + child);
+			i = child;
+		}
+	}
+
+	/**
+	 * Calculate the threshold of the values, only the statistic required by
+	 * the threshold type is computed. The values are not modified.
+	 * 
+	 * @param threshold
+	 *            returned as it is if the type is not a statistic
+	 * @param values
+	 * @param thr_alg
+	 * @return
+	 */
+	public double calculateThreshold(double threshold, double[] values, ThresholdType thr_alg) {
+		switch (thr_alg) {
+		case Mean:
+			return calculateAverage(values);
+		case MeanMin: {
+			double mean = calculateAverage(values);
+			return mean - calculateStdev(mean, values);
+		}
+		case MeanPlus: {
+			double mean = calculateAverage(values);
+			return mean + calculateStdev(mean, values);
+		}
+		case Q1:
+			return calculateQuartile(values, 1);
+		case Q2:
+			return calculateQuartile(values, 2);
+		case Q3:
+			return calculateQuartile(values, 3);
+		default:
+			return threshold;
+		}
+	}
+
+	/**
+	 * Estimate the threshold from a quantile sketch, the same statistic as
+	 * {@link #calculateThreshold(double, double[], ThresholdType)} (mean and
+	 * variance are exact, quartiles are approximated)
+	 * 
+	 * @param threshold
+	 *            returned as it is if the type is not a statistic
+	 * @param sketch
+	 * @param thr_alg
+	 * @return
+	 */
+	public double calculateThreshold(double threshold, QuantileSketch sketch, ThresholdType thr_alg) {
+		switch (thr_alg) {
+		case Mean:
+			return sketch.getMean();
+		case MeanMin:
+			return sketch.getMean() - sketch.getVariance();
+		case MeanPlus:
+			return sketch.getMean() + sketch.getVariance();
+		case Q1:
+			return sketch.getValueAt(quartilePosition(sketch.getN(), 1));
+		case Q2:
+			return sketch.getValueAt(quartilePosition(sketch.getN(), 2));
+		case Q3:
+			return sketch.getValueAt(quartilePosition(sketch.getN(), 3));
+		default:
+			return threshold;
+		}
+	}
+
+	/**
+	 * Table of n*log(n) for n = 0..max (0*log(0) is defined as 0). <br/>
+	 * The table is shared and must not be modified.
+	 * 
+	 * @param max
+	 * @return
+	 */
+	public double[] getNLogNTable(int max) {
+		double[] table = nlognTable;
+		if (table.length > max)
+			return table;
+		synchronized (this) {
+			table = nlognTable;
+			if (table.length > max)
+				return table;
+			int size = Math.max(max + 1, table.length * 2);
+			double[] newTable = Arrays.copyOf(table, size);
+			for (int n = Math.max(table.length, 1); n < size; n++)
+				newTable[n] = n * Math.log(n);
+			nlognTable = newTable;
+			return newTable;
+		}
+	}
+
 	public double calculateEntropy(int[] counter, long frequency, int numOfClass) {
+		return calculateEntropy(counter, 0, counter.length, frequency, numOfClass);
+	}
+
+	/**
+	 * Calculate entropy of the histogram stored in counter[offset ..
+	 * offset+length)
+	 */
+	public double calculateEntropy(int[] counter, int offset, int length, long frequency, int numOfClass) {
 		if (frequency == 0)
 			return 0;
 		double entropy = 0;
-		double[] p = new double[counter.length];
-		for (int i = 0; i < counter.length; i++) {
-			p[i] = (double) counter[i] / frequency;
-		}
-		for (int i = 0; i < p.length; i++) {
-			if (p[i] == 0.0F)
+		for (int i = offset; i < offset + length; i++) {
+			if (counter[i] == 0)
 				continue;
-			// entropy -= p[i] * (Math.log(p[i]) / Math.log(p.length));
-			entropy -= p[i] * (Math.log(p[i]) / numOfClass);
+			double p = (double) counter[i] / frequency;
+			// entropy -= p * (Math.log(p) / Math.log(length));
+			entropy -= p * (Math.log(p) / numOfClass);
 		}
 		return entropy;
 	}
 
-	public Map<FV, Double> calculateChi(Map<FV, Collection<FV>> fv_list, int numOfClasses) {
+	/**
+	 * Chi-square statistic of every FV against the class distribution
+	 * 
+	 * @param table
+	 * @param numOfClasses
+	 * @return chi-square indexed by FV id
+	 */
+	public double[] calculateChi(FVTable table, int numOfClasses) {
 		double verysmallnumber = 0.0000000001;
-		Map<FV, Double> result = new HashMap<FV, Double>();
-
-		Map<FV, long[]> dist_set = new HashMap<FV, long[]>();
-		Map<FV, double[]> expect_set = new HashMap<FV, double[]>();
-		Map<FV, Integer> count_set = new HashMap<FV, Integer>();
-		int[] all_activities = new int[numOfClasses];
-
-		for (Entry<FV, Collection<FV>> entry : fv_list.entrySet()) {
-			for (FV fv : entry.getValue()) {
-				long[] dist = dist_set.getOrDefault(fv, new long[numOfClasses]);
-				int label = (int) fv.getLabel();
-				dist[label] += 1;
-				all_activities[label] += 1;
-				count_set.put(fv, count_set.getOrDefault(fv, 0) + 1);
-				dist_set.put(fv, dist);
-			}
-			// System.out.println(entry.getKey());
-			// System.out.println(count_set.get(entry.getKey()));
-		}
-
-		// System.out.println(Arrays.toString(all_activities));
+		double[] result = new double[table.size()];
+		int[] all_activities = table.getClassDistribution();
+		int[] counts = table.getCounts();
 		int sum = IntStream.of(all_activities).sum();
-		for (Entry<FV, Collection<FV>> entry : fv_list.entrySet()) {
-			double[] expect_dist = new double[numOfClasses];
+
+		ChiSquareTest chi = new ChiSquareTest();
+		double[] expect_dist = new double[numOfClasses];
+		long[] dist = new long[numOfClasses];
+		for (int id = 0; id < table.size(); id++) {
 			for (int i = 0; i < numOfClasses; i++) {
-				// expect_dist[i] = (double) all_activities[i] *
-				// LongStream.of(dist_set.get(entry.getKey())).sum() / sum;
-				expect_dist[i] = (double) all_activities[i] * count_set.get(entry.getKey()) / sum;
+				expect_dist[i] = (double) all_activities[i] * table.getCount(id) / sum;
 				if (expect_dist[i] <= 0)
 					expect_dist[i] = verysmallnumber;
+				dist[i] = counts[id * numOfClasses + i];
 			}
-			expect_set.put(entry.getKey(), expect_dist);
-			// System.out.println(Arrays.toString(dist_set.get(entry.getKey())));
-			// System.out.println(Arrays.toString(expect_set.get(entry.getKey())));
-		}
-
-		ChiSquareTest chi = new ChiSquareTest();
-		for (Entry<FV, Collection<FV>> entry : fv_list.entrySet()) {
-			FV fv = entry.getKey();
-			result.put(fv, chi.chiSquare(expect_set.get(fv), dist_set.get(fv)));
+			result[id] = chi.chiSquare(expect_dist, dist);
 		}
 
 		return result;
 	}
 
-	public Map<FV, Double> calculateIG(Map<FV, Collection<FV>> fv_list, int[] act_dist, double act_ent,
-			int numOfClasses) {
-		Map<FV, Double> result = new HashMap<FV, Double>();
+	/**
+	 * Information gain of every FV
+	 * 
+	 * @param table
+	 * @param act_dist
+	 * @param act_ent
+	 * @param numOfClasses
+	 * @return information gain indexed by FV id
+	 */
+	public double[] calculateIG(FVTable table, int[] act_dist, double act_ent, int numOfClasses) {
+		double[] result = new double[table.size()];
 		double[] act_dist_prob = new double[act_dist.length];
 		int sum = IntStream.of(act_dist).sum();
 		for (int i = 0; i < act_dist.length; i++) {
 			act_dist_prob[i] = (double) act_dist[i] / sum;
 		}
-		for (Entry<FV, Collection<FV>> entry : fv_list.entrySet()) {
-			double px = entry.getKey().getFrequency();
+		for (int id = 0; id < table.size(); id++) {
+			double px = table.getFrequency(id);
 			double hy_x = 0.0;
 			double ig = 0.0;
 			for (double py : act_dist_prob) {
@@ -161,7 +481,7 @@ public class MathHelper {
 				ig = 0;
 			else
 				ig = act_ent - hy_x;
-			result.put(entry.getKey(), ig);
+			result[id] = ig;
 		}
 
 		return result;
@@ -0,0 +1,267 @@
+package edu.nctu.lalala.util;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Streaming quantile estimator with bounded memory (KLL sketch). <br/>
+ * Values are kept in a hierarchy of compactors, level <b>h</b> holds items of
+ * weight 2^h. When the sketch is full, the lowest full level is sorted and
+ * every other item (random offset) is promoted into the next level. The memory
+ * is about 3k values, and the rank error is about
+ * {@link #getNormalizedRankError()}. <br/>
+ * Mean and variance are tracked exactly (Welford's method). <br/>
+ * Reference: Karnin, Lang, Liberty. Optimal Quantile Approximation in Streams.
+ * FOCS 2016.
+ *
+ * @author Gunarto Sindoro Njoo
+ * @version 1.0
+ * @category Data Structure
+ */
+public class QuantileSketch {
+	public static final int DEFAULT_K = 200;
+	private static final double DECAY = 2.0 / 3.0;
+	private static final int MIN_CAPACITY = 2;
+
+	private final int k;
+	/**
+	 * Fixed seed, thus the same stream gives the same estimation
+	 */
+	private final Random random = new Random(0);
+	private double[][] levels;
+	private int[] sizes;
+	private int numLevels;
+	private int retained;
+	private long n;
+	private double mean;
+	private double m2;
+	private double min = Double.NaN;
+	private double max = Double.NaN;
+	/**
+	 * Sorted view for the queries, invalidated by update
+	 */
+	private double[] sortedValues;
+	private long[] cumulativeWeights;
+
+	public QuantileSketch() {
+		this(DEFAULT_K);
+	}
+
+	/**
+	 * @param k
+	 *            accuracy parameter, bigger k is more accurate (and uses more
+	 *            memory)
+	 */
+	public QuantileSketch(int k) {
+		if (k < MIN_CAPACITY)
+			throw new IllegalArgumentException("k must be at least " + MIN_CAPACITY + ": " + k);
+		this.k = k;
+		this.levels = new double[1][16];
+		this.sizes = new int[1];
+		this.numLevels = 1;
+	}
+
+	/**
+	 * Add a value into the sketch (NaN is ignored)
+	 */
+	public void update(double value) {
+		if (Double.isNaN(value))
+			return;
+		n++;
+		double delta = value - mean;
+		mean += delta / n;
+		m2 += delta * (value - mean);
+		if (n == 1 || value < min)
+			min = value;
+		if (n == 1 || value > max)
+			max = value;
+		append(0, value);
+		retained++;
+		sortedValues = null;
+		if (retained >= totalCapacity())
+			compress();
+	}
+
+	public void update(double[] values) {
+		for (double value : values)
+			update(value);
+	}
+
+	private void append(int level, double value) {
+		if (sizes[level] == levels[level].length)
+			levels[level] = Arrays.copyOf(levels[level], levels[level].length << 1);
+		levels[level][sizes[level]++] = value;
+	}
+
+	private int capacity(int level) {
+		return Math.max(MIN_CAPACITY, (int) Math.ceil(k * Math.pow(DECAY, numLevels - level - 1)));
+	}
+
+	private int totalCapacity() {
+		int total = 0;
+		for (int h = 0; h < numLevels; h++)
+			total += capacity(h);
+		return total;
+	}
+
+	private void compress() {
+		for (int h = 0; h < numLevels; h++) {
+			if (sizes[h] < capacity(h))
+				continue;
+			if (h + 1 == numLevels) {
+				levels = Arrays.copyOf(levels, numLevels + 1);
+				sizes = Arrays.copyOf(sizes, numLevels + 1);
+				levels[numLevels] = new double[16];
+				numLevels++;
+			}
+			double[] items = levels[h];
+			int size = sizes[h];
+			Arrays.sort(items, 0, size);
+			/* Odd item (the largest) stays at this level */
+			int pairs = size / 2;
+			int offset = random.nextBoolean() ? 1 : 0;
+			for (int i = 0; i < pairs; i++)
+				append(h + 1, items[2 * i + offset]);
+			if (size % 2 == 1)
+				items[0] = items[size - 1];
+			sizes[h] = size % 2;
+			retained -= pairs;
+			if (retained < totalCapacity())
+				return;
+		}
+	}
+
+	/**
+	 * Number of values seen
+	 */
+	public long getN() {
+		return n;
+	}
+
+	/**
+	 * Number of values kept in the sketch
+	 */
+	public int getRetained() {
+		return retained;
+	}
+
+	public int getK() {
+		return k;
+	}
+
+	public double getMean() {
+		return n == 0 ? 0 : mean;
+	}
+
+	/**
+	 * Population variance (divided by n)
+	 */
+	public double getVariance() {
+		return n == 0 ? 0 : m2 / n;
+	}
+
+	public double getMin() {
+		return min;
+	}
+
+	public double getMax() {
+		return max;
+	}
+
+	/**
+	 * Approximate normalized rank error (99% confidence, empirical constants
+	 * of the KLL sketch). The error is 0 as long as no compaction happens.
+	 */
+	public double getNormalizedRankError() {
+		if (numLevels == 1)
+			return 0;
+		return 2.296 / Math.pow(k, 0.9723);
+	}
+
+	/**
+	 * Estimate the value at the position of the sorted stream
+	 *
+	 * @param position
+	 *            0-based position in the sorted stream (0 .. n-1)
+	 * @return NaN if the sketch is empty
+	 */
+	public double getValueAt(long position) {
+		if (n == 0)
+			return Double.NaN;
+		prepareSortedView();
+		long target = Math.max(0, Math.min(position, n - 1));
+		/* First item whose cumulative weight exceeds the position */
+		int lo = 0;
+		int hi = cumulativeWeights.length - 1;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (cumulativeWeights[mid] > target)
+				hi = mid;
+			else
+				lo = mid + 1;
+		}
+		return sortedValues[lo];
+	}
+
+	/**
+	 * Estimate the quantile
+	 *
+	 * @param fraction
+	 *            0 .. 1
+	 * @return
+	 */
+	public double getQuantile(double fraction) {
+		return getValueAt((long) (fraction * n));
+	}
+
+	/**
+	 * Estimate the number of values less than or equal to the value
+	 */
+	public long getRank(double value) {
+		if (n == 0)
+			return 0;
+		prepareSortedView();
+		int idx = Arrays.binarySearch(sortedValues, value);
+		if (idx < 0)
+			idx = -idx - 2;
+		else
+			while (idx + 1 < sortedValues.length && sortedValues[idx + 1] == value)
+				idx++;
+		return idx < 0 ? 0 : cumulativeWeights[idx];
+	}
+
+	private void prepareSortedView() {
+		if (sortedValues != null)
+			return;
+		double[] values = new double[retained];
+		long[] weights = new long[retained];
+		int count = 0;
+		for (int h = 0; h < numLevels; h++) {
+			Arrays.sort(levels[h], 0, sizes[h]);
+			for (int i = 0; i < sizes[h]; i++) {
+				values[count] = levels[h][i];
+				weights[count] = 1L << h;
+				count++;
+			}
+		}
+		/* Sort values together with their weights */
+		Integer[] order = new Integer[count];
+		for (int i = 0; i < count; i++)
+			order[i] = i;
+		Arrays.sort(order, (a, b) -> Double.compare(values[a], values[b]));
+		sortedValues = new double[count];
+		cumulativeWeights = new long[count];
+		long cumulative = 0;
+		for (int i = 0; i < count; i++) {
+			sortedValues[i] = values[order[i]];
+			cumulative += weights[order[i]];
+			cumulativeWeights[i] = cumulative;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return String.format("QuantileSketch{k=%d, n=%d, retained=%d, rank error=%.4f}", k, n, retained,
+				getNormalizedRankError());
+	}
+}
@@ -0,0 +1,192 @@
+package edu.nctu.lalala.util;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Report files written by a single background thread. <br/>
+ * Every dataset has two files which are kept open: the tab-separated report
+ * (<b>dataset.txt</b>, the header is written once when the file is created)
+ * and a JSON line per result (<b>dataset.jsonl</b>). An existing report with
+ * another header (e.g. written before new columns were added) is rotated
+ * into <b>dataset.txt.1</b> (or the next unused number) instead of being
+ * appended with rows of another layout. Rows could be submitted
+ * from any thread, they are queued and written in the submitted order. The
+ * files are flushed whenever the queue is empty, and closed on
+ * {@link #close()} (or on shutdown).
+ *
+ * @author Gunarto Sindoro Njoo
+ * @version 1.0
+ * @category Logging
+ */
+public class ReportSink {
+	public static final String TSV_EXTENSION = ".txt";
+	public static final String JSON_EXTENSION = ".jsonl";
+	private static final Row CLOSE = new Row(null, null, null);
+
+	private final String folder;
+	private final String header;
+	private final BlockingQueue<Row> queue = new LinkedBlockingQueue<>();
+	private final Map<String, Writer> writers = new HashMap<>();
+	private final Thread writer;
+	private volatile boolean closed;
+
+	/**
+	 * @param folder
+	 *            report folder
+	 * @param header
+	 *            first line of the tab-separated report
+	 */
+	public ReportSink(String folder, String header) {
+		if (!folder.endsWith("/"))
+			folder = folder + "/";
+		this.folder = folder;
+		this.header = header;
+		this.writer = new Thread(this::run, "report-writer");
+		this.writer.setDaemon(true);
+		this.writer.start();
+		Runtime.getRuntime().addShutdownHook(new Thread(this::close, "report-writer-shutdown"));
+	}
+
+	/**
+	 * Queue a result of the dataset
+	 *
+	 * @param dataset
+	 *            name of the report files
+	 * @param tsv
+	 *            row of the tab-separated report (with line break)
+	 * @param json
+	 *            JSON object of the row (without line break)
+	 */
+	public void submit(String dataset, String tsv, String json) {
+		if (closed)
+			throw new IllegalStateException("Report sink is closed");
+		queue.add(new Row(dataset, tsv, json));
+	}
+
+	/**
+	 * Write the queued rows and close every file
+	 */
+	public synchronized void close() {
+		if (closed)
+			return;
+		closed = true;
+		queue.add(CLOSE);
+		try {
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void run() {
+		try {
+			while (true) {
+				Row row = queue.take();
+				if (row == CLOSE)
+					break;
+				write(row);
+				if (queue.isEmpty())
+					flush();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		for (Writer out : writers.values()) {
+			try {
+				out.close();
+			} catch (IOException e) {
+			}
+		}
+		writers.clear();
+	}
+
+	private void write(Row row) {
+		try {
+			if (row.tsv != null)
+				getWriter(row.dataset + TSV_EXTENSION, header).write(row.tsv);
+			if (row.json != null) {
+				Writer out = getWriter(row.dataset + JSON_EXTENSION, null);
+				out.write(row.json);
+				out.write('\n');
+			}
+		} catch (IOException e) {
+			if (FVSHelper.getInstance().getDebugStatus())
+				System.err.println("ReportSink exception: " + row.dataset + " " + e.getMessage());
+			FVSHelper.getInstance().logFile(e.getMessage());
+		}
+	}
+
+	private Writer getWriter(String filename, String header) throws IOException {
+		Writer out = writers.get(filename);
+		if (out == null) {
+			new File(folder).mkdirs();
+			File f = new File(folder + filename);
+			if (header != null && f.length() > 0 && !firstLine(f).equals(header.split("\r?\n", 2)[0]))
+				rotate(f);
+			boolean new_file = f.length() == 0;
+			out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(f, true), StandardCharsets.UTF_8));
+			if (new_file && header != null)
+				out.write(header);
+			writers.put(filename, out);
+		}
+		return out;
+	}
+
+	private static String firstLine(File f) throws IOException {
+		try (BufferedReader in = new BufferedReader(
+				new InputStreamReader(new FileInputStream(f), StandardCharsets.UTF_8))) {
+			String line = in.readLine();
+			return line == null ? "" : line;
+		}
+	}
+
+	/**
+	 * Move the file into the next unused <b>filename.n</b>
+	 */
+	private static void rotate(File f) throws IOException {
+		int n = 1;
+		File rotated;
+		while ((rotated = new File(f.getPath() + "." + n)).exists())
+			n++;
+		if (!f.renameTo(rotated))
+			throw new IOException("Couldn't rotate the report " + f.getPath());
+		if (FVSHelper.getInstance().getDebugStatus())
+			System.err.println("Report with another header is moved into " + rotated.getPath());
+	}
+
+	private void flush() {
+		for (Writer out : writers.values()) {
+			try {
+				out.flush();
+			} catch (IOException e) {
+				if (FVSHelper.getInstance().getDebugStatus())
+					System.err.println("ReportSink exception: " + e.getMessage());
+			}
+		}
+	}
+
+	private static class Row {
+		final String dataset;
+		final String tsv;
+		final String json;
+
+		Row(String dataset, String tsv, String json) {
+			this.dataset = dataset;
+			this.tsv = tsv;
+			this.json = json;
+		}
+	}
+}
@@ -0,0 +1,142 @@
+package edu.nctu.lalala.util;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.SparseInstance;
+
+/**
+ * Resources used by the current thread between {@link #start()} and
+ * {@link #stop()}: wall time, thread CPU time and bytes allocated by the
+ * thread. The CPU time and the allocated bytes are 0 if the JVM doesn't
+ * support them, work done by other threads (e.g. a parallel stream) is not
+ * counted.
+ *
+ * @author Gunarto Sindoro Njoo
+ * @version 1.0
+ * @category Data Object
+ */
+public class ResourceUsage {
+	private static final ThreadMXBean THREAD_BEAN = ManagementFactory.getThreadMXBean();
+	/**
+	 * Estimated sizes of a 64-bit JVM with compressed references (bytes)
+	 */
+	private static final int ARRAY_HEADER = 16;
+	private static final int REFERENCE = 4;
+	private static final int DENSE_INSTANCE = 32;
+	private static final int SPARSE_INSTANCE = 40;
+
+	private long wallTime;
+	private long cpuTime;
+	private long allocatedBytes;
+
+	/**
+	 * Nothing used yet
+	 */
+	public ResourceUsage() {
+	}
+
+	/**
+	 * Start measuring the current thread
+	 */
+	public static ResourceUsage start() {
+		ResourceUsage usage = new ResourceUsage();
+		usage.wallTime = -System.nanoTime();
+		usage.cpuTime = -threadCpuTime();
+		usage.allocatedBytes = -threadAllocatedBytes();
+		return usage;
+	}
+
+	/**
+	 * Stop measuring, must be called by the same thread as {@link #start()}
+	 */
+	public ResourceUsage stop() {
+		wallTime += System.nanoTime();
+		cpuTime += threadCpuTime();
+		allocatedBytes += threadAllocatedBytes();
+		return this;
+	}
+
+	public void add(ResourceUsage usage) {
+		if (usage == null)
+			return;
+		wallTime += usage.wallTime;
+		cpuTime += usage.cpuTime;
+		allocatedBytes += usage.allocatedBytes;
+	}
+
+	/**
+	 * Remove a part of the measured resources (e.g. a wait)
+	 */
+	public void subtract(ResourceUsage usage) {
+		if (usage == null)
+			return;
+		wallTime -= usage.wallTime;
+		cpuTime -= usage.cpuTime;
+		allocatedBytes -= usage.allocatedBytes;
+	}
+
+	/**
+	 * Wall time (nanoseconds)
+	 */
+	public long getWallTime() {
+		return wallTime;
+	}
+
+	/**
+	 * CPU time of the thread (nanoseconds)
+	 */
+	public long getCpuTime() {
+		return cpuTime;
+	}
+
+	/**
+	 * Bytes allocated by the thread
+	 */
+	public long getAllocatedBytes() {
+		return allocatedBytes;
+	}
+
+	/**
+	 * Estimated bytes retained by the instances of the data (the instance
+	 * objects, their values and the list of instances), the header is not
+	 * counted since it is shared with the input of a filter
+	 */
+	public static long retainedSize(Instances data) {
+		if (data == null)
+			return 0;
+		long size = align(ARRAY_HEADER + (long) REFERENCE * data.numInstances());
+		for (int i = 0; i < data.numInstances(); i++) {
+			Instance instance = data.instance(i);
+			if (instance instanceof SparseInstance)
+				size += SPARSE_INSTANCE + align(ARRAY_HEADER + 8L * instance.numValues())
+						+ align(ARRAY_HEADER + 4L * instance.numValues());
+			else
+				size += DENSE_INSTANCE + align(ARRAY_HEADER + 8L * instance.numValues());
+		}
+		return size;
+	}
+
+	private static long align(long size) {
+		return (size + 7) & ~7L;
+	}
+
+	private static long threadCpuTime() {
+		if (!THREAD_BEAN.isCurrentThreadCpuTimeSupported())
+			return 0;
+		long time = THREAD_BEAN.getCurrentThreadCpuTime();
+		return time < 0 ? 0 : time;
+	}
+
+	private static long threadAllocatedBytes() {
+		if (!(THREAD_BEAN instanceof com.sun.management.ThreadMXBean))
+			return 0;
+		com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) THREAD_BEAN;
+		if (!bean.isThreadAllocatedMemorySupported() || !bean.isThreadAllocatedMemoryEnabled())
+			return 0;
+		long bytes = bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+		return bytes < 0 ? 0 : bytes;
+	}
+}
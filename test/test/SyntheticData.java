@@ -0,0 +1,55 @@
+package test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+
+/**
+ * Synthetic data shared by the tests: N0 (numeric, quarters between 0 and
+ * 10), S1 (nominal a, b, c), N2 (numeric, gaussian) and the class (last). The
+ * class mostly depends on S1 and N0, thus the FVs have different entropies.
+ */
+public class SyntheticData {
+	private SyntheticData() {
+	}
+
+	/**
+	 * @param numInstances
+	 *            number of rows
+	 * @param numClasses
+	 *            number of class labels (c0, c1, ...)
+	 * @param seed
+	 *            seed of the values
+	 * @param missing
+	 *            every <b>missing</b>-th row has a missing feature (0 for no
+	 *            missing value)
+	 */
+	public static Instances create(int numInstances, int numClasses, int seed, int missing) {
+		List<String> labels = new ArrayList<>();
+		for (int c = 0; c < numClasses; c++)
+			labels.add("c" + c);
+		ArrayList<Attribute> atts = new ArrayList<>();
+		atts.add(new Attribute("N0"));
+		atts.add(new Attribute("S1", Arrays.asList("a", "b", "c")));
+		atts.add(new Attribute("N2"));
+		atts.add(new Attribute("Class", labels));
+		Instances data = new Instances("test", atts, 0);
+		data.setClassIndex(3);
+		Random random = new Random(seed);
+		for (int i = 0; i < numInstances; i++) {
+			double n0 = random.nextInt(40) / 4.0;
+			int s1 = random.nextInt(3);
+			int label = random.nextInt(10) < 8 ? (s1 + (n0 < 5 ? 0 : 1)) % numClasses : random.nextInt(numClasses);
+			DenseInstance ins = new DenseInstance(1.0, new double[] { n0, s1, random.nextGaussian(), label });
+			if (missing > 0 && i % missing == 0)
+				ins.setMissing(i % 3);
+			data.add(ins);
+		}
+		return data;
+	}
+}
@@ -0,0 +1,75 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+
+import org.junit.Test;
+
+import edu.nctu.lalala.util.ArffParser;
+import weka.core.Instances;
+import weka.core.converters.ConverterUtils.DataSource;
+
+public class TestArffParser {
+	private File createFile(String data) throws IOException {
+		File f = File.createTempFile("test", ".arff");
+		String header = "% comment\n@RELATION test\n@attribute N0 NUMERIC\n@attribute 'S 1' {a, 'b c', ?x}\n"
+				+ "@attribute N2 real\n@attribute Class {0, 1, 2}\n\n@DATA\n";
+		Files.write(f.toPath(), (header + data).getBytes(StandardCharsets.UTF_8));
+		return f;
+	}
+
+	private void assertSameData(File f, int chunkSize) throws Exception {
+		Instances expected = new DataSource(f.getPath()).getDataSet();
+		ArffParser parser = new ArffParser(4);
+		parser.setChunkSize(chunkSize);
+		Instances data = parser.load(f.getPath());
+		assertFalse(parser.isFallback());
+		assertTrue(expected.equalHeaders(data));
+		assertEquals(expected.numInstances(), data.numInstances());
+		for (int i = 0; i < expected.numInstances(); i++) {
+			assertEquals(expected.instance(i).weight(), data.instance(i).weight(), 0);
+			for (int a = 0; a < expected.numAttributes(); a++)
+				assertEquals(Double.doubleToLongBits(expected.instance(i).value(a)),
+						Double.doubleToLongBits(data.instance(i).value(a)));
+		}
+	}
+
+	@Test
+	public void testLoad() throws Exception {
+		StringBuilder sb = new StringBuilder();
+		Random random = new Random(11);
+		String[] labels = { "a", "'b c'", "\"?x\"", "?" };
+		for (int i = 0; i < 2000; i++) {
+			if (i % 97 == 0)
+				sb.append("\n  \r\n% comment line\n");
+			double value = random.nextGaussian() * Math.pow(10, random.nextInt(30) - 15);
+			String n0 = i % 13 == 0 ? "?" : String.valueOf(value);
+			String n2 = i % 7 == 0 ? String.format("%.9e", value) : String.valueOf(random.nextInt(1000) / 8.0);
+			if (i % 211 == 0)
+				n2 = "12345678901234567890.5";
+			sb.append(n0).append(i % 5 == 0 ? " , " : ",").append(labels[random.nextInt(labels.length)]).append(',')
+					.append(n2).append(',').append(random.nextInt(3)).append(i % 3 == 0 ? "\r\n" : "\n");
+		}
+		File f = createFile(sb.toString());
+		assertSameData(f, 0);
+		assertSameData(f, 100);
+		f.delete();
+	}
+
+	@Test
+	public void testFallback() throws Exception {
+		File f = createFile("1,a,2,0\n{0 3, 3 1}\n");
+		ArffParser parser = new ArffParser(1);
+		Instances data = parser.load(f.getPath());
+		assertTrue(parser.isFallback());
+		assertEquals(2, data.numInstances());
+		f.delete();
+	}
+}
@@ -0,0 +1,71 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import edu.nctu.lalala.enums.LogFlushPolicy;
+import edu.nctu.lalala.util.AsyncLogWriter;
+
+public class TestAsyncLogWriter {
+	private void assertLogged(LogFlushPolicy policy) throws Exception {
+		File f = File.createTempFile("test", ".txt");
+		int threads = 4;
+		int lines = 5000;
+		/* Small queue, thus the callers wait for the writer */
+		AsyncLogWriter writer = new AsyncLogWriter(f.getPath(), 64);
+		writer.setFlushPolicy(policy);
+		writer.setInterval(5);
+		List<Thread> workers = new ArrayList<>();
+		for (int t = 0; t < threads; t++) {
+			final int id = t;
+			Thread worker = new Thread(() -> {
+				for (int i = 0; i < lines; i++)
+					writer.log(id + " " + i);
+			});
+			worker.start();
+			workers.add(worker);
+		}
+		for (Thread worker : workers)
+			worker.join();
+		writer.close();
+		/* Written directly after close */
+		writer.log("closed");
+
+		List<String> content = Files.readAllLines(f.toPath(), StandardCharsets.UTF_8);
+		assertEquals(threads * lines + 1, content.size());
+		int[] next = new int[threads];
+		for (int i = 0; i < threads * lines; i++) {
+			String line = content.get(i);
+			assertTrue(line.startsWith("["));
+			String[] token = line.substring(line.indexOf("] ") + 2).split(" ");
+			int id = Integer.parseInt(token[0]);
+			/* Lines of a thread keep their order */
+			assertEquals(next[id]++, Integer.parseInt(token[1]));
+		}
+		assertTrue(content.get(threads * lines).endsWith("] closed"));
+		f.delete();
+	}
+
+	@Test
+	public void testBatch() throws Exception {
+		assertLogged(LogFlushPolicy.Batch);
+	}
+
+	@Test
+	public void testTimed() throws Exception {
+		assertLogged(LogFlushPolicy.Timed);
+	}
+
+	@Test
+	public void testShutdown() throws Exception {
+		assertLogged(LogFlushPolicy.Shutdown);
+	}
+}
@@ -0,0 +1,51 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Test;
+
+import edu.nctu.lalala.fvs.FVTable;
+import edu.nctu.lalala.util.ColumnarFile;
+import weka.core.Instances;
+
+public class TestColumnarFile {
+	@Test
+	public void testRoundTrip() throws IOException {
+		Instances data = SyntheticData.create(150, 2, 3, 11);
+		for (int i = 0; i < data.numInstances(); i += 7)
+			data.instance(i).setWeight(2.5);
+		File f = File.createTempFile("test", ColumnarFile.EXTENSION);
+		ColumnarFile.write(data, f.getPath());
+		ColumnarFile file = ColumnarFile.open(f.getPath());
+		assertEquals(data.numInstances(), file.numInstances());
+		assertEquals(data.numAttributes(), file.numAttributes());
+		assertTrue(data.equalHeaders(file.getHeader()));
+
+		Instances loaded = file.toInstances();
+		assertEquals(data.classIndex(), loaded.classIndex());
+		for (int i = 0; i < data.numInstances(); i++) {
+			assertEquals(data.instance(i).weight(), loaded.instance(i).weight(), 0);
+			assertEquals(data.instance(i).toString(), loaded.instance(i).toString());
+			for (int a = 0; a < data.numAttributes(); a++)
+				assertEquals(data.instance(i).isMissing(a), file.isMissing(i, a));
+		}
+
+		/* Same FV table without building the instances */
+		FVTable expected = FVTable.extract(data);
+		FVTable table = FVTable.extract(ColumnarFile.open(f.getPath()));
+		assertEquals(expected.size(), table.size());
+		assertEquals(expected.numInstances(), table.numInstances());
+		for (int id = 0; id < expected.size(); id++) {
+			assertEquals(expected.getFeature(id), table.getFeature(id));
+			assertEquals(expected.getValue(id), table.getValue(id), 0);
+			assertEquals(expected.getCount(id), table.getCount(id));
+			for (int c = 0; c < expected.numClasses(); c++)
+				assertEquals(expected.getLabelCount(id, c), table.getLabelCount(id, c));
+		}
+		f.delete();
+	}
+}
@@ -0,0 +1,100 @@
+package test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import edu.nctu.lalala.fvs.CorrelationMatrix;
+import edu.nctu.lalala.util.FVSHelper;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+
+public class TestCorrelationMatrix {
+	private static final double DELTA = 1e-9;
+
+	private Instances generate(int numFeatures, int numInstances, double missing) {
+		ArrayList<Attribute> atts = new ArrayList<>();
+		for (int x = 0; x < numFeatures; x++)
+			atts.add(new Attribute("A" + x));
+		atts.add(new Attribute("Class", Arrays.asList("c0", "c1")));
+		Instances data = new Instances("test", atts, 0);
+		data.setClassIndex(numFeatures);
+		Random random = new Random(7);
+		for (int i = 0; i < numInstances; i++) {
+			double[] values = new double[numFeatures + 1];
+			double base = random.nextGaussian();
+			for (int x = 0; x < numFeatures; x++) {
+				if (random.nextDouble() < missing)
+					values[x] = Double.NaN;
+				else if (x % 3 == 0)
+					values[x] = base * x + random.nextGaussian();
+				else
+					values[x] = random.nextInt(5);
+			}
+			values[numFeatures] = random.nextInt(2);
+			data.add(new DenseInstance(1.0, values));
+		}
+		return data;
+	}
+
+	private void compare(Instances data) {
+		CorrelationMatrix cm = CorrelationMatrix.compute(data);
+		Double[] average = FVSHelper.getInstance().calculateAverage(data);
+		int numFeatures = data.numAttributes() - 1;
+		assertEquals(numFeatures, cm.size());
+		int nonZero = 0;
+		for (int i = 0; i < numFeatures; i++) {
+			assertEquals(0, cm.get(i, i), 0);
+			for (int j = i + 1; j < numFeatures; j++) {
+				double expected = Math.abs(FVSHelper.getInstance().calculateLinearCorrelation(data, average, i, j));
+				assertEquals(expected, cm.get(i, j), DELTA);
+				assertEquals(cm.get(i, j), cm.get(j, i), 0);
+				if (expected != 0)
+					nonZero++;
+			}
+		}
+		assertEquals(nonZero, cm.getCorrValues().length);
+	}
+
+	@Test
+	public void testComplete() {
+		/* Several tiles in both directions */
+		compare(generate(70, 2500, 0));
+	}
+
+	@Test
+	public void testMissing() {
+		compare(generate(40, 1500, 0.1));
+	}
+
+	@Test
+	public void testConstant() {
+		Instances data = generate(3, 10, 0);
+		for (int i = 0; i < data.numInstances(); i++)
+			data.instance(i).setValue(1, 2.0);
+		CorrelationMatrix cm = CorrelationMatrix.compute(data);
+		assertEquals(0, cm.get(0, 1), 0);
+		assertEquals(0, cm.get(1, 2), 0);
+	}
+
+	@Test
+	public void testGroups() {
+		CorrelationMatrix cm = new CorrelationMatrix(6);
+		cm.set(0, 3, 0.9);
+		cm.set(3, 4, 0.8);
+		cm.set(1, 2, 0.2);
+		cm.set(2, 5, 0.7);
+		int[][] groups = cm.getCorrelatedGroups(0.5);
+		assertEquals(3, groups.length);
+		assertArrayEquals(new int[] { 0, 3, 4 }, groups[0]);
+		assertArrayEquals(new int[] { 1 }, groups[1]);
+		assertArrayEquals(new int[] { 2, 5 }, groups[2]);
+		assertEquals(2, cm.getCorrelatedGroups(0.1).length);
+	}
+}
@@ -0,0 +1,62 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+
+import org.junit.Test;
+
+import edu.nctu.lalala.fvs.FVBuckets;
+import edu.nctu.lalala.fvs.FVTable;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+
+public class TestFVBuckets {
+	@Test
+	public void testSelectLowest() {
+		ArrayList<Attribute> atts = new ArrayList<>();
+		for (int x = 0; x < 4; x++)
+			atts.add(new Attribute("A" + x));
+		atts.add(new Attribute("Class", Arrays.asList("c0", "c1")));
+		Instances data = new Instances("test", atts, 0);
+		data.setClassIndex(4);
+		Random random = new Random(3);
+		for (int i = 0; i < 300; i++) {
+			double[] values = new double[5];
+			for (int x = 0; x < 4; x++)
+				values[x] = random.nextInt(10 + x * 5);
+			values[4] = random.nextInt(2);
+			data.add(new DenseInstance(1.0, values));
+		}
+		FVTable table = FVTable.extract(data);
+		double[] scores = new double[table.size()];
+		for (int id = 0; id < scores.length; id++)
+			scores[id] = random.nextInt(20);
+		FVBuckets buckets = FVBuckets.build(table, scores);
+
+		int[] group = { 1, 3 };
+		int limit = 12;
+		BitSet selected = new BitSet();
+		buckets.selectLowest(group, limit, selected);
+		/* Reference: sort every FV of the group by (score, id) */
+		Integer[] ids = new Integer[buckets.size(group)];
+		int n = 0;
+		for (int id = 0; id < table.size(); id++)
+			if (table.getFeature(id) == 1 || table.getFeature(id) == 3)
+				ids[n++] = id;
+		Arrays.sort(ids, (a, b) -> scores[a] != scores[b] ? Double.compare(scores[a], scores[b]) : a - b);
+		BitSet expected = new BitSet();
+		for (int i = 0; i < limit; i++)
+			expected.set(ids[i]);
+		assertEquals(expected, selected);
+
+		/* Limit larger than the group selects every FV */
+		selected.clear();
+		buckets.selectLowest(new int[] { 0 }, 1000, selected);
+		assertEquals(buckets.size(0), selected.cardinality());
+	}
+}
@@ -0,0 +1,65 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.Test;
+
+import edu.nctu.lalala.fvs.FVSContext;
+import edu.nctu.lalala.fvs.FVStatistics;
+import edu.nctu.lalala.fvs.FVStatisticsCache;
+import edu.nctu.lalala.util.FVSHelper;
+import edu.nctu.lalala.util.ResourceUsage;
+import weka.core.Instances;
+
+public class TestFVSContext {
+	@Test
+	public void testMatchesSize() {
+		Instances data = SyntheticData.create(100, 2, 1, 0);
+		FVSContext context = new FVSContext();
+		assertTrue(context.matches(data));
+		context.getTable(data);
+		assertTrue(context.matches(new Instances(data)));
+		assertFalse(context.matches(SyntheticData.create(99, 2, 1, 0)));
+	}
+
+	@Test
+	public void testBuildCostOfEveryFilter() {
+		FVSHelper.getInstance().setDebugStatus(false);
+		Instances data = SyntheticData.create(500, 2, 3, 0);
+		FVSContext context = new FVSContext();
+		FVSContext.Tracked first = context.track();
+		FVStatistics statistics = first.getStatistics(data);
+		FVSContext.Tracked second = context.track();
+		assertSame(statistics, second.getStatistics(data));
+		/* The second filter doesn't build anything but is charged the same */
+		ResourceUsage built = first.getBuildUsage();
+		assertTrue(built.getWallTime() > 0);
+		assertEquals(built.getWallTime(), second.getBuildUsage().getWallTime());
+		assertTrue(second.getCallUsage().getWallTime() < first.getCallUsage().getWallTime());
+		/* Nothing is charged for the unused correlation matrix */
+		FVSContext.Tracked table = context.track();
+		table.getTable(data);
+		assertTrue(table.getBuildUsage().getWallTime() < built.getWallTime());
+	}
+
+	@Test
+	public void testCacheHit() throws IOException {
+		FVSHelper.getInstance().setDebugStatus(false);
+		Instances data = SyntheticData.create(200, 2, 4, 0);
+		String folder = Files.createTempDirectory("fvcontext").toFile().getPath() + File.separator;
+		String key = FVStatisticsCache.createKey(data);
+		FVSContext.Tracked built = new FVSContext(new FVStatisticsCache(folder, key)).track();
+		built.getStatistics(data);
+		assertFalse(built.isCacheHit());
+		FVSContext.Tracked loaded = new FVSContext(new FVStatisticsCache(folder, key)).track();
+		loaded.getStatistics(data);
+		assertTrue(loaded.isCacheHit());
+	}
+}
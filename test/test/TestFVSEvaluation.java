@@ -0,0 +1,84 @@
+package test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import edu.nctu.lalala.enums.Preprocessing_Algorithm;
+import edu.nctu.lalala.enums.ThresholdType;
+import edu.nctu.lalala.fvs.FVS_Filter;
+import edu.nctu.lalala.fvs.evaluation.FVSEvaluation;
+import edu.nctu.lalala.fvs.evaluation.PreparedFolds;
+import edu.nctu.lalala.util.FVSHelper;
+import weka.core.Instances;
+import weka.filters.SimpleBatchFilter;
+
+public class TestFVSEvaluation {
+	/**
+	 * Filter which fails on every batch
+	 */
+	private static class FailingFilter extends SimpleBatchFilter {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public String globalInfo() {
+			return "Fails on every batch";
+		}
+
+		@Override
+		protected Instances determineOutputFormat(Instances inputFormat) {
+			return new Instances(inputFormat, 0);
+		}
+
+		@Override
+		protected Instances process(Instances instances) throws Exception {
+			throw new Exception("Broken filter");
+		}
+	}
+
+	private String[] prepareFolds(Instances data, Preprocessing_Algorithm algo, int parallelism) throws Exception {
+		FVSHelper.getInstance().setFoldParallelism(parallelism);
+		FVS_Filter filter = new FVS_Filter(algo, ThresholdType.Iteration, data.numInstances(), 0.5);
+		PreparedFolds prepared = new FVSEvaluation(data).prepareFolds(5, algo, filter);
+		String[] folds = new String[prepared.numFolds()];
+		for (int n = 0; n < folds.length; n++)
+			folds[n] = prepared.getTrain(n).toString();
+		return folds;
+	}
+
+	@Test
+	public void testRandomFoldsAreReproducible() throws Exception {
+		FVSHelper.getInstance().setDebugStatus(false);
+		Instances data = SyntheticData.create(300, 2, 9, 0);
+		Preprocessing_Algorithm[] algorithms = { Preprocessing_Algorithm.FVS_Random,
+				Preprocessing_Algorithm.FVS_Random_Entropy, Preprocessing_Algorithm.FVS_Probabilistic };
+		try {
+			for (Preprocessing_Algorithm algo : algorithms) {
+				String[] sequential = prepareFolds(data, algo, 1);
+				/* Every fold has its own seeded random generator */
+				assertArrayEquals(algo.toString(), sequential, prepareFolds(data, algo, 1));
+				assertArrayEquals(algo.toString(), sequential, prepareFolds(data, algo, 4));
+			}
+		} finally {
+			FVSHelper.getInstance().setFoldParallelism(1);
+		}
+	}
+
+	@Test
+	public void testFailedFoldIsThrown() throws Exception {
+		FVSHelper.getInstance().setDebugStatus(false);
+		Instances data = SyntheticData.create(60, 2, 9, 0);
+		for (int parallelism : new int[] { 1, 3 }) {
+			FVSHelper.getInstance().setFoldParallelism(parallelism);
+			try {
+				new FVSEvaluation(data).prepareFolds(3, Preprocessing_Algorithm.FS_CFS, new FailingFilter());
+				fail("A failed fold must fail the cell");
+			} catch (IllegalStateException e) {
+				/* Expected */
+			} finally {
+				FVSHelper.getInstance().setFoldParallelism(1);
+			}
+		}
+	}
+}
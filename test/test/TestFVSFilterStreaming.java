@@ -0,0 +1,68 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+
+import org.junit.Test;
+
+import edu.nctu.lalala.enums.Preprocessing_Algorithm;
+import edu.nctu.lalala.enums.ThresholdType;
+import edu.nctu.lalala.fvs.FVS_Filter;
+import edu.nctu.lalala.fvs.interfaces.IFVS;
+import edu.nctu.lalala.util.FVSHelper;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.filters.Filter;
+
+public class TestFVSFilterStreaming {
+	@Test
+	public void testStreamAfterFit() throws Exception {
+		FVSHelper.getInstance().setDebugStatus(false);
+		Instances train = SyntheticData.create(300, 2, 1, 0);
+		Instances test = SyntheticData.create(50, 2, 2, 0);
+		FVS_Filter filter = new FVS_Filter(Preprocessing_Algorithm.FVS_Entropy, ThresholdType.Mean,
+				train.numInstances(), 0.0);
+		filter.setInputFormat(train);
+		/* Batch mode until the selection is fitted */
+		assertFalse(filter.input(train.instance(0)));
+		for (int i = 1; i < train.numInstances(); i++)
+			filter.input(train.instance(i));
+		filter.batchFinished();
+		while (filter.output() != null)
+			;
+		IFVS fvs = filter.getFvs();
+		assertTrue(fvs.getSelected().cardinality() < fvs.getTable().size());
+
+		/* The same mask as the batch transformation of the fitted selection */
+		Instances expected = FVSHelper.getInstance().transformInstances(test, new Instances(test, 0), fvs.getTable(),
+				fvs.getSelected());
+		for (int i = 0; i < test.numInstances(); i++) {
+			assertTrue(filter.input(test.instance(i)));
+			Instance out = filter.output();
+			for (int x = 0; x < test.numAttributes(); x++) {
+				assertEquals(expected.instance(i).isMissing(x), out.isMissing(x));
+				if (!out.isMissing(x))
+					assertEquals(expected.instance(i).value(x), out.value(x), 0);
+			}
+		}
+		/* No refitting at the end of a streamed batch */
+		filter.batchFinished();
+		assertSame(fvs, filter.getFvs());
+	}
+
+	@Test
+	public void testUseFilterOnTest() throws Exception {
+		FVSHelper.getInstance().setDebugStatus(false);
+		Instances train = SyntheticData.create(300, 2, 3, 0);
+		Instances test = SyntheticData.create(80, 2, 4, 0);
+		FVS_Filter filter = new FVS_Filter(Preprocessing_Algorithm.FVS_Random_Entropy, train.numInstances(), 1.0);
+		filter.setInputFormat(train);
+		Filter.useFilter(train, filter);
+		/* Instances are only removed in the training batch */
+		Instances filtered = Filter.useFilter(test, filter);
+		assertEquals(test.numInstances(), filtered.numInstances());
+	}
+}
@@ -0,0 +1,110 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import edu.nctu.lalala.enums.Preprocessing_Algorithm;
+import edu.nctu.lalala.enums.ThresholdType;
+import edu.nctu.lalala.fvs.FVS_Filter;
+import edu.nctu.lalala.fvs.FVSelection;
+import edu.nctu.lalala.util.FVSHelper;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.filters.Filter;
+import weka.filters.unsupervised.attribute.Discretize;
+
+public class TestFVSelection {
+	private FVS_Filter fit(Preprocessing_Algorithm algo, Instances train, Double... params) throws Exception {
+		FVSHelper.getInstance().setDebugStatus(false);
+		FVS_Filter filter = new FVS_Filter(algo, ThresholdType.Mean, train.numInstances(), params);
+		filter.setInputFormat(train);
+		Filter.useFilter(train, filter);
+		return filter;
+	}
+
+	private FVSelection roundTrip(FVSelection selection) throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		selection.write(new DataOutputStream(baos));
+		return FVSelection.read(new DataInputStream(new ByteArrayInputStream(baos.toByteArray())));
+	}
+
+	@Test
+	public void testSameMaskAsFilter() throws Exception {
+		Instances train = SyntheticData.create(300, 2, 1, 0);
+		Instances test = SyntheticData.create(50, 2, 2, 0);
+		/* An unseen numeric value */
+		test.instance(0).setValue(2, 7.5);
+		FVS_Filter filter = fit(Preprocessing_Algorithm.FVS_Entropy, train, 0.0);
+		FVSelection selection = roundTrip(filter.getSelection());
+		assertFalse(selection.hasKeepProbability());
+		for (int i = 0; i < test.numInstances(); i++) {
+			Instance expected = filter.transform(test.instance(i));
+			double[] values = test.instance(i).toDoubleArray();
+			int removed = selection.apply(values);
+			int missing = 0;
+			for (int x = 0; x < test.numAttributes(); x++) {
+				assertEquals(expected.isMissing(x), Double.isNaN(values[x]));
+				if (!expected.isMissing(x))
+					assertEquals(expected.value(x), values[x], 0);
+				else if (!test.instance(i).isMissing(x))
+					missing++;
+			}
+			assertEquals(missing, removed);
+		}
+		assertTrue(selection.valueIdOf(2, 7.5) < 0);
+	}
+
+	@Test
+	public void testDiscretize() throws Exception {
+		Instances raw = SyntheticData.create(100, 2, 3, 0);
+		Discretize discretize = new Discretize();
+		discretize.setAttributeIndices("first");
+		discretize.setBins(3);
+		discretize.setInputFormat(raw);
+		Instances data = Filter.useFilter(raw, discretize);
+		FVSelection selection = fit(Preprocessing_Algorithm.FVS_Entropy, data, 0.0).getSelection();
+		/* Only the feature with interval labels is discretized */
+		for (int i = 0; i < raw.numInstances(); i++) {
+			double[] values = raw.instance(i).toDoubleArray();
+			selection.discretize(values);
+			assertTrue(Arrays.equals(data.instance(i).toDoubleArray(), values));
+		}
+	}
+
+	@Test
+	public void testKeepProbability() throws Exception {
+		Instances train = SyntheticData.create(300, 2, 4, 0);
+		FVS_Filter filter = fit(Preprocessing_Algorithm.FVS_Probabilistic, train, 1.0);
+		FVSelection selection = filter.getSelection();
+		assertTrue(selection.hasKeepProbability());
+		File file = File.createTempFile("selection", FVSelection.EXTENSION);
+		file.deleteOnExit();
+		selection.write(file.getPath());
+		FVSelection loaded = FVSelection.read(file.getPath());
+		/* The same removal for the same random sequence */
+		Random r1 = new Random(5), r2 = new Random(5);
+		for (int i = 0; i < train.numInstances(); i++) {
+			double[] v1 = train.instance(i).toDoubleArray();
+			double[] v2 = train.instance(i).toDoubleArray();
+			assertEquals(selection.apply(v1, r1), loaded.apply(v2, r2));
+			assertTrue(Arrays.equals(v1, v2));
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testUnknownFormat() throws Exception {
+		FVSelection.read(new DataInputStream(new ByteArrayInputStream(new byte[] { 0, 1, 2, 3, 0, 0, 0, 1 })));
+	}
+}
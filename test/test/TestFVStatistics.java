@@ -0,0 +1,86 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.nctu.lalala.fvs.FVStatistics;
+import edu.nctu.lalala.fvs.FVTable;
+import edu.nctu.lalala.util.MathHelper;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+
+public class TestFVStatistics {
+	private static final double DELTA = 1e-9;
+	Instances data;
+
+	@Before
+	public void setUp() throws Exception {
+		ArrayList<Attribute> atts = new ArrayList<>();
+		atts.add(new Attribute("A", Arrays.asList("a0", "a1", "a2")));
+		atts.add(new Attribute("B"));
+		atts.add(new Attribute("Class", Arrays.asList("c0", "c1", "c2", "c3")));
+		data = new Instances("test", atts, 0);
+		data.setClassIndex(2);
+		Random random = new Random(1);
+		for (int i = 0; i < 500; i++) {
+			double[] values = new double[3];
+			values[0] = random.nextInt(3);
+			values[1] = random.nextInt(7) * 0.5;
+			values[2] = random.nextInt(4);
+			DenseInstance ins = new DenseInstance(1.0, values);
+			if (i % 50 == 0)
+				ins.setMissing(i % 100 == 0 ? 0 : 1);
+			data.add(ins);
+		}
+	}
+
+	@Test
+	public void testTable() {
+		FVTable table = FVTable.extract(data);
+		assertEquals(500, table.numInstances());
+		int total = 0;
+		for (int id = 0; id < table.size(); id++) {
+			int sum = 0;
+			for (int c = 0; c < table.numClasses(); c++)
+				sum += table.getLabelCount(id, c);
+			assertEquals(table.getCount(id), sum);
+			total += table.getCount(id);
+		}
+		// Every cell (missing included) is counted once
+		assertEquals(500 * 2, total);
+		// Nominal value id is the nominal index, missing value is numValues
+		assertEquals(1, table.getValueId(table.indexOf(0, 1)));
+		assertEquals("?", table.getValueObject(table.indexOf(0, 3)));
+		assertEquals(-1, table.indexOf(1, 100));
+	}
+
+	@Test
+	public void testAgainstReference() {
+		FVTable table = FVTable.extract(data);
+		FVStatistics stats = FVStatistics.compute(table);
+		int numClasses = table.numClasses();
+		int[] act_dist = table.getClassDistribution();
+		double act_ent = MathHelper.getInstance().calculateEntropy(act_dist, table.numInstances(), numClasses);
+		double[] ig = MathHelper.getInstance().calculateIG(table, act_dist, act_ent, numClasses);
+		double[] chi = MathHelper.getInstance().calculateChi(table, numClasses);
+		assertEquals(act_ent, stats.getClassEntropy(), DELTA);
+		for (int id = 0; id < table.size(); id++) {
+			int[] counter = new int[numClasses];
+			for (int c = 0; c < numClasses; c++)
+				counter[c] = table.getLabelCount(id, c);
+			double entropy = MathHelper.getInstance().calculateEntropy(counter, table.getCount(id), numClasses);
+			assertEquals(table.getFrequency(id), stats.getFrequency()[id], DELTA);
+			assertEquals(entropy, stats.getEntropy()[id], DELTA);
+			assertEquals(ig[id], stats.getIg()[id], DELTA);
+			assertEquals(2 * ig[id] / (entropy + act_ent), stats.getSymmetricUncertainty()[id], DELTA);
+			assertEquals(chi[id], stats.getChi()[id], 1e-6);
+		}
+	}
+}
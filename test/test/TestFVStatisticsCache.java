@@ -0,0 +1,67 @@
+package test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.Test;
+
+import edu.nctu.lalala.fvs.CorrelationMatrix;
+import edu.nctu.lalala.fvs.FVStatistics;
+import edu.nctu.lalala.fvs.FVStatisticsCache;
+import edu.nctu.lalala.fvs.FVTable;
+import weka.core.Instances;
+
+public class TestFVStatisticsCache {
+	@Test
+	public void testRoundTrip() throws IOException {
+		Instances data = SyntheticData.create(200, 2, 7, 13);
+		File folder = Files.createTempDirectory("fvcache").toFile();
+		String key = FVStatisticsCache.createKey(data, 10, 0, 1);
+		assertEquals(key, FVStatisticsCache.createKey(data, 10, 0, 1));
+		assertNotEquals(key, FVStatisticsCache.createKey(data, 10, 1, 1));
+		FVStatisticsCache cache = new FVStatisticsCache(folder.getPath() + "/", key);
+
+		FVTable table = FVTable.extract(data);
+		FVStatistics stats = FVStatistics.compute(table);
+		CorrelationMatrix matrix = CorrelationMatrix.compute(data);
+		assertNull(cache.loadTable(data));
+		cache.saveTable(table);
+		cache.saveStatistics(stats);
+		cache.saveCorrelationMatrix(matrix);
+
+		FVTable loaded = cache.loadTable(data);
+		assertEquals(table.size(), loaded.size());
+		assertEquals(table.numInstances(), loaded.numInstances());
+		assertArrayEquals(table.getClassDistribution(), loaded.getClassDistribution());
+		for (int id = 0; id < table.size(); id++) {
+			assertEquals(table.getValue(id), loaded.getValue(id), 0);
+			assertEquals(table.getCount(id), loaded.getCount(id));
+			for (int c = 0; c < table.numClasses(); c++)
+				assertEquals(table.getLabelCount(id, c), loaded.getLabelCount(id, c));
+		}
+		for (int x = 0; x < table.numFeatures(); x++)
+			assertEquals(table.indexOf(x, data.instance(5)), loaded.indexOf(x, data.instance(5)));
+
+		FVStatistics loadedStats = cache.loadStatistics();
+		assertArrayEquals(stats.getEntropy(), loadedStats.getEntropy(), 0);
+		assertArrayEquals(stats.getIg(), loadedStats.getIg(), 0);
+		assertEquals(stats.normalizedPhi(3), loadedStats.normalizedPhi(3), 0);
+
+		CorrelationMatrix loadedMatrix = cache.loadCorrelationMatrix();
+		assertArrayEquals(matrix.getCorrValues(), loadedMatrix.getCorrValues(), 0);
+
+		/* A broken entry is ignored */
+		File[] files = folder.listFiles((dir, name) -> name.endsWith(".fvt"));
+		Files.write(files[0].toPath(), new byte[] { 1, 2, 3 });
+		assertNull(cache.loadTable(data));
+		for (File f : folder.listFiles())
+			f.delete();
+		folder.delete();
+	}
+}
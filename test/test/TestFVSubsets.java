@@ -0,0 +1,65 @@
+package test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import edu.nctu.lalala.fvs.FVSubsets;
+import edu.nctu.lalala.fvs.FVTable;
+import weka.core.Instances;
+
+public class TestFVSubsets {
+	@Test
+	public void testSplit() {
+		Instances data = SyntheticData.create(257, 3, 5, 17);
+		int folds = 10;
+		Random expectedRandom = new Random(1);
+		Random random = new Random(1);
+		for (int n = 0; n < folds; n++) {
+			Instances train = data.trainCV(folds, n, expectedRandom);
+			int[] rows = FVSubsets.trainRows(data.numInstances(), folds, n, random);
+			assertEquals(train.numInstances(), rows.length);
+			for (int i = 0; i < rows.length; i++)
+				assertEquals(train.instance(i).toString(), data.instance(rows[i]).toString());
+			Instances test = data.testCV(folds, n);
+			int[] testRows = FVSubsets.testRows(data.numInstances(), folds, n);
+			assertEquals(test.numInstances(), testRows.length);
+			for (int i = 0; i < testRows.length; i++)
+				assertEquals(test.instance(i).toString(), data.instance(testRows[i]).toString());
+		}
+	}
+
+	@Test
+	public void testDerive() {
+		Instances data = SyntheticData.create(257, 3, 5, 17);
+		int folds = 10;
+		FVSubsets subsets = FVSubsets.extract(data);
+		Random random = new Random(1);
+		for (int n = 0; n < folds; n++) {
+			int[] rows = FVSubsets.trainRows(data.numInstances(), folds, n, random);
+			Instances train = new Instances(data, rows.length);
+			for (int row : rows)
+				train.add(data.instance(row));
+			FVTable expected = FVTable.extract(train);
+			FVTable derived = subsets.derive(rows, FVSubsets.testRows(data.numInstances(), folds, n));
+			assertEquals(expected.size(), derived.size());
+			assertEquals(expected.numInstances(), derived.numInstances());
+			assertArrayEquals(expected.getClassDistribution(), derived.getClassDistribution());
+			for (int id = 0; id < expected.size(); id++) {
+				assertEquals(expected.getFeature(id), derived.getFeature(id));
+				if (expected.isNominal(expected.getFeature(id)))
+					assertEquals(expected.getValueId(id), derived.getValueId(id));
+				assertEquals(expected.getValue(id), derived.getValue(id), 0);
+				assertEquals(expected.getCount(id), derived.getCount(id));
+				for (int c = 0; c < expected.numClasses(); c++)
+					assertEquals(expected.getLabelCount(id, c), derived.getLabelCount(id, c));
+			}
+			/* Lookup of a cell */
+			for (int x = 0; x < expected.numFeatures(); x++)
+				assertEquals(expected.indexOf(x, train.instance(0)), derived.indexOf(x, train.instance(0)));
+		}
+	}
+}
@@ -0,0 +1,62 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import edu.nctu.lalala.util.Instrumentation;
+
+public class TestInstrumentation {
+	@Test
+	public void testTimers() {
+		Instrumentation instrumentation = new Instrumentation(true);
+		for (int i = 1; i <= 100; i++)
+			instrumentation.record(Instrumentation.TRAIN, i * 1000000L);
+		instrumentation.record(Instrumentation.LOAD, 5000000L);
+		instrumentation.record("custom", 1L);
+		instrumentation.count("rows", 10);
+		instrumentation.count("rows", 5);
+
+		assertEquals(100, instrumentation.getCount(Instrumentation.TRAIN));
+		assertEquals(5050 * 1000000L, instrumentation.getTotal(Instrumentation.TRAIN));
+		assertEquals(51e6, instrumentation.getQuantile(Instrumentation.TRAIN, 0.5), 1e6);
+		assertEquals(100e6, instrumentation.getQuantile(Instrumentation.TRAIN, 0.99), 1e6);
+		assertEquals(15, instrumentation.getCounter("rows"));
+		/* Pipeline order, then the other timers */
+		assertEquals(Arrays.asList(Instrumentation.LOAD, Instrumentation.TRAIN, "custom"),
+				instrumentation.getTimerNames());
+
+		JSONObject json = instrumentation.toJSON();
+		assertEquals(100, json.getJSONObject("timers").getJSONObject(Instrumentation.TRAIN).getLong("count"));
+		assertEquals(5050.0, json.getJSONObject("timers").getJSONObject(Instrumentation.TRAIN).getDouble("total_ms"),
+				1e-9);
+		assertEquals(15, json.getJSONObject("counters").getLong("rows"));
+		assertTrue(instrumentation.summary("test").contains(Instrumentation.TRAIN));
+	}
+
+	@Test
+	public void testStartStop() {
+		Instrumentation instrumentation = new Instrumentation(true);
+		long time = instrumentation.start();
+		instrumentation.stop(Instrumentation.SELECT, time);
+		assertEquals(1, instrumentation.getCount(Instrumentation.SELECT));
+		assertTrue(instrumentation.getTotal(Instrumentation.SELECT) >= 0);
+	}
+
+	@Test
+	public void testDisabled() {
+		Instrumentation instrumentation = Instrumentation.DISABLED;
+		assertEquals(0, instrumentation.start());
+		instrumentation.stop(Instrumentation.TRAIN, 0);
+		instrumentation.record(Instrumentation.TRAIN, 1000);
+		instrumentation.count("rows", 1);
+		assertEquals(0, instrumentation.getCount(Instrumentation.TRAIN));
+		assertEquals(0, instrumentation.getCounter("rows"));
+		assertTrue(Double.isNaN(instrumentation.getQuantile(Instrumentation.TRAIN, 0.5)));
+		assertTrue(instrumentation.getTimerNames().isEmpty());
+	}
+}
@@ -0,0 +1,67 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.nctu.lalala.fvs.IntervalIndex;
+import edu.nctu.lalala.fvs.Value;
+
+public class TestIntervalIndex {
+	IntervalIndex index;
+
+	@Before
+	public void setUp() throws Exception {
+		index = IntervalIndex.interval();
+		// Inserted out of order on purpose
+		index.put(new Value("(6.31-inf)"), 2);
+		index.put(new Value("(2.48-6.31]"), 1);
+		index.put(new Value("(-inf-2.48]"), 0);
+		index.sort();
+	}
+
+	@Test
+	public void testContainment() {
+		// Same containment as TestValue
+		assertEquals(0, index.lookup(-2.0));
+		assertEquals(1, index.lookup(5.0));
+		assertEquals(2, index.lookup(500.0));
+		assertEquals(IntervalIndex.NOT_FOUND, index.lookup(Double.NaN));
+	}
+
+	@Test
+	public void testBoundary() {
+		// Upper bound is inclusive
+		assertEquals(0, index.lookup(2.48));
+		assertEquals(1, index.lookup(6.31));
+	}
+
+	@Test
+	public void testGap() {
+		IntervalIndex gap = IntervalIndex.interval();
+		gap.put(new Value(1.0), 10);
+		gap.put(new Value(3.0), 30);
+		gap.sort();
+		assertEquals(10, gap.lookup(1.0));
+		assertEquals(30, gap.lookup(3.0));
+		assertFalse(gap.contains(2.0));
+		assertFalse(gap.contains(0.0));
+		assertFalse(gap.contains(4.0));
+	}
+
+	@Test
+	public void testNominal() {
+		IntervalIndex nominal = IntervalIndex.nominal(4);
+		nominal.put(1, 7);
+		nominal.put(3, 9);
+		assertEquals(7, nominal.lookup(1));
+		assertEquals(9, nominal.lookup(3));
+		assertFalse(nominal.contains(0));
+		assertFalse(nominal.contains(Double.NaN));
+		assertTrue(nominal.isNominal());
+		assertEquals(2, nominal.size());
+	}
+}
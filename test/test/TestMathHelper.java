@@ -0,0 +1,84 @@
+package test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import edu.nctu.lalala.enums.ThresholdType;
+import edu.nctu.lalala.util.MathHelper;
+
+public class TestMathHelper {
+	private static final double DELTA = 1e-12;
+
+	@Test
+	public void testQuartile() {
+		Random random = new Random(5);
+		for (int n : new int[] { 5, 6, 17, 1000, 4099 }) {
+			double[] data = new double[n];
+			Double[] boxed = new Double[n];
+			for (int i = 0; i < n; i++) {
+				/* Plenty of duplicates */
+				data[i] = random.nextInt(n / 3 + 1) * 0.5;
+				boxed[i] = data[i];
+			}
+			double[] copy = data.clone();
+			Double[] expected = MathHelper.getInstance().calculateQuartile(boxed);
+			double[] q = MathHelper.getInstance().calculateQuartile(data);
+			for (int i = 0; i < 3; i++) {
+				assertEquals(expected[i], q[i], 0);
+				assertEquals(expected[i], MathHelper.getInstance().calculateQuartile(data, i + 1), 0);
+			}
+			/* Input is not modified */
+			assertArrayEquals(copy, data, 0);
+		}
+		/* Small arrays are bounded instead of out of range */
+		assertEquals(3.0, MathHelper.getInstance().calculateQuartile(new double[] { 3.0 }, 3), 0);
+		assertEquals(Double.NaN, MathHelper.getInstance().calculateQuartile(new double[0], 2), 0);
+	}
+
+	@Test
+	public void testSelectLowest() {
+		Random random = new Random(11);
+		int n = 2000;
+		double[] scores = new double[n];
+		for (int i = 0; i < n; i++)
+			scores[i] = random.nextInt(50);
+		int[] ids = new int[n];
+		for (int i = 0; i < n; i++)
+			ids[i] = n - 1 - i;
+		Integer[] sorted = new Integer[n];
+		for (int i = 0; i < n; i++)
+			sorted[i] = i;
+		Arrays.sort(sorted, (a, b) -> scores[a] != scores[b] ? Double.compare(scores[a], scores[b]) : a - b);
+		for (int k : new int[] { 1, 7, 500, 1999 }) {
+			int[] temp = ids.clone();
+			MathHelper.getInstance().selectLowest(temp, n, scores, k);
+			int[] prefix = Arrays.copyOf(temp, k);
+			Arrays.sort(prefix);
+			int[] expected = new int[k];
+			for (int i = 0; i < k; i++)
+				expected[i] = sorted[i];
+			Arrays.sort(expected);
+			assertArrayEquals(expected, prefix);
+		}
+	}
+
+	@Test
+	public void testThreshold() {
+		double[] data = { 1, 2, 3, 4, 5, 6, 7, 8 };
+		Double[] boxed = { 1.0, 2.0, 3.0, 4.0, 5.0, 6.0, 7.0, 8.0 };
+		double mean = MathHelper.getInstance().calculateAverage(boxed);
+		double stdev = MathHelper.getInstance().calculateStdev(mean, boxed);
+		assertEquals(mean, MathHelper.getInstance().calculateThreshold(0, data, ThresholdType.Mean), DELTA);
+		assertEquals(mean + stdev, MathHelper.getInstance().calculateThreshold(0, data, ThresholdType.MeanPlus),
+				DELTA);
+		assertEquals(mean - stdev, MathHelper.getInstance().calculateThreshold(0, data, ThresholdType.MeanMin),
+				DELTA);
+		assertEquals(6.0, MathHelper.getInstance().calculateThreshold(0, data, ThresholdType.Q2), 0);
+		assertEquals(0.3, MathHelper.getInstance().calculateThreshold(0.3, data, ThresholdType.Iteration), 0);
+	}
+}
@@ -0,0 +1,64 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectOutputStream;
+
+import org.junit.Test;
+
+import edu.nctu.lalala.fvs.evaluation.ModelSizeEstimator;
+import edu.nctu.lalala.util.CountingOutputStream;
+import weka.classifiers.Classifier;
+import weka.classifiers.bayes.NaiveBayes;
+import weka.classifiers.functions.Logistic;
+import weka.classifiers.rules.JRip;
+import weka.classifiers.trees.J48;
+import weka.core.Instances;
+
+public class TestModelSizeEstimator {
+	@Test
+	public void testSerializedSize() throws Exception {
+		J48 tree = new J48();
+		tree.buildClassifier(SyntheticData.create(300, 3, 7, 0));
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		ObjectOutputStream oos = new ObjectOutputStream(baos);
+		oos.writeObject(tree);
+		oos.flush();
+		assertEquals(baos.size(), ModelSizeEstimator.serializedSize(tree));
+	}
+
+	@Test
+	public void testCountingOutputStream() {
+		CountingOutputStream out = new CountingOutputStream();
+		out.write(1);
+		out.write(new byte[10], 2, 5);
+		assertEquals(6, out.getCount());
+		out.reset();
+		assertEquals(0, out.getCount());
+	}
+
+	@Test
+	public void testStructuralSize() throws Exception {
+		Instances data = SyntheticData.create(500, 3, 7, 0);
+		Instances header = new Instances(data, 0);
+		Classifier[] classifiers = { new J48(), new JRip(), new NaiveBayes() };
+		for (Classifier cl : classifiers) {
+			cl.buildClassifier(data);
+			assertTrue(cl.getClass().getSimpleName(), ModelSizeEstimator.estimate(cl, header) > 0);
+		}
+		/* The tree of the header only is a single leaf */
+		J48 base = new J48();
+		base.buildClassifier(header);
+		assertTrue(ModelSizeEstimator.estimate(base, header) < ModelSizeEstimator.estimate(classifiers[0], header));
+	}
+
+	@Test
+	public void testUnsupported() throws Exception {
+		Instances data = SyntheticData.create(100, 3, 7, 0);
+		Logistic logistic = new Logistic();
+		logistic.buildClassifier(data);
+		assertEquals(-1, ModelSizeEstimator.estimate(logistic, new Instances(data, 0)));
+	}
+}
@@ -0,0 +1,47 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import edu.nctu.lalala.enums.ThresholdType;
+import edu.nctu.lalala.util.MathHelper;
+import edu.nctu.lalala.util.QuantileSketch;
+
+public class TestQuantileSketch {
+	@Test
+	public void testExactWhenSmall() {
+		double[] data = { 5, 3, 9, 1, 7, 2, 8, 4, 6 };
+		QuantileSketch sketch = new QuantileSketch(50);
+		sketch.update(data);
+		assertEquals(0, sketch.getNormalizedRankError(), 0);
+		for (ThresholdType type : new ThresholdType[] { ThresholdType.Q1, ThresholdType.Q2, ThresholdType.Q3,
+				ThresholdType.Mean, ThresholdType.MeanPlus }) {
+			assertEquals(MathHelper.getInstance().calculateThreshold(0, data, type),
+					MathHelper.getInstance().calculateThreshold(0, sketch, type), 1e-12);
+		}
+	}
+
+	@Test
+	public void testRankError() {
+		Random random = new Random(9);
+		int n = 200000;
+		QuantileSketch sketch = new QuantileSketch(200);
+		for (int i = 0; i < n; i++)
+			sketch.update(random.nextDouble());
+		assertEquals(n, sketch.getN());
+		/* Memory is bounded */
+		assertTrue(sketch.getRetained() < 3 * 200);
+		double bound = sketch.getNormalizedRankError();
+		for (double q = 0.05; q < 1; q += 0.05) {
+			/* Uniform data: the value is its own normalized rank */
+			assertEquals(q, sketch.getQuantile(q), bound);
+			assertEquals(q, (double) sketch.getRank(q) / n, bound);
+		}
+		assertEquals(0.5, sketch.getMean(), 0.01);
+		assertEquals(1.0 / 12, sketch.getVariance(), 0.01);
+	}
+}
@@ -0,0 +1,56 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import edu.nctu.lalala.util.FVSHelper;
+import edu.nctu.lalala.util.ReportSink;
+
+public class TestReportSink {
+	private static final String HEADER = "User\tAccuracy\tCPU Time(ms)\n";
+
+	private void write(File folder, String header, String row) {
+		ReportSink sink = new ReportSink(folder.getPath(), header);
+		sink.submit("data", row, null);
+		sink.close();
+	}
+
+	private String read(File f) throws IOException {
+		return new String(Files.readAllBytes(f.toPath()), StandardCharsets.UTF_8);
+	}
+
+	@Test
+	public void testAppendSameHeader() throws IOException {
+		File folder = Files.createTempDirectory("report").toFile();
+		write(folder, HEADER, "u1\t0.5\t1.0\n");
+		write(folder, HEADER, "u2\t0.6\t2.0\n");
+		assertEquals(HEADER + "u1\t0.5\t1.0\n" + "u2\t0.6\t2.0\n", read(new File(folder, "data.txt")));
+		assertFalse(new File(folder, "data.txt.1").exists());
+	}
+
+	@Test
+	public void testRotateOtherHeader() throws IOException {
+		FVSHelper.getInstance().setDebugStatus(false);
+		File folder = Files.createTempDirectory("report").toFile();
+		String old = "User\tAccuracy\n";
+		write(folder, old, "u1\t0.5\n");
+		write(folder, old, "u2\t0.6\n");
+		write(folder, HEADER, "u3\t0.7\t3.0\n");
+		assertEquals(HEADER + "u3\t0.7\t3.0\n", read(new File(folder, "data.txt")));
+		assertEquals(old + "u1\t0.5\n" + "u2\t0.6\n", read(new File(folder, "data.txt.1")));
+		/* The next rotation doesn't overwrite the previous one */
+		write(folder, old, "u4\t0.8\n");
+		assertEquals(HEADER + "u3\t0.7\t3.0\n", read(new File(folder, "data.txt.2")));
+		String[] files = folder.list();
+		Arrays.sort(files);
+		assertEquals(Arrays.asList("data.txt", "data.txt.1", "data.txt.2"), Arrays.asList(files));
+	}
+}
@@ -0,0 +1,69 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+
+import org.junit.Test;
+
+import edu.nctu.lalala.enums.FVSPhase;
+import edu.nctu.lalala.enums.Preprocessing_Algorithm;
+import edu.nctu.lalala.enums.ThresholdType;
+import edu.nctu.lalala.fvs.FVS_Filter;
+import edu.nctu.lalala.util.ResourceUsage;
+import weka.core.Instances;
+import weka.filters.Filter;
+
+public class TestResourceUsage {
+	@Test
+	public void testAllocatedBytes() {
+		ResourceUsage usage = ResourceUsage.start();
+		long[][] arrays = new long[64][];
+		for (int i = 0; i < arrays.length; i++)
+			arrays[i] = new long[1024];
+		usage.stop();
+		assertTrue(arrays[63].length > 0);
+		assertTrue(usage.getWallTime() > 0);
+		assertTrue(usage.getCpuTime() >= 0);
+		/* 0 if the JVM doesn't support it */
+		assertTrue(usage.getAllocatedBytes() == 0 || usage.getAllocatedBytes() >= 64 * 1024 * 8);
+	}
+
+	@Test
+	public void testAdd() {
+		ResourceUsage total = new ResourceUsage();
+		ResourceUsage usage = ResourceUsage.start().stop();
+		total.add(usage);
+		total.add(usage);
+		total.add(null);
+		assertEquals(2 * usage.getWallTime(), total.getWallTime());
+		assertEquals(2 * usage.getCpuTime(), total.getCpuTime());
+		assertEquals(2 * usage.getAllocatedBytes(), total.getAllocatedBytes());
+	}
+
+	@Test
+	public void testRetainedSize() {
+		Instances data = SyntheticData.create(200, 2, 5, 0);
+		/* List of references, instance objects and their values */
+		long expected = (16 + 4 * 200 + 7) / 8 * 8 + 200 * (32 + 16 + 4 * 8);
+		assertEquals(expected, ResourceUsage.retainedSize(data));
+		assertEquals(8 * ((16 + 7) / 8), ResourceUsage.retainedSize(new Instances(data, 0)));
+		assertEquals(0, ResourceUsage.retainedSize(null));
+	}
+
+	@Test
+	public void testPhaseUsage() throws Exception {
+		Instances data = SyntheticData.create(200, 2, 5, 0);
+		FVS_Filter filter = new FVS_Filter(Preprocessing_Algorithm.FVS_Entropy, ThresholdType.Mean,
+				data.numInstances(), 0.0);
+		for (FVSPhase phase : FVSPhase.values())
+			assertEquals(null, filter.getPhaseUsage(phase));
+		filter.setInputFormat(data);
+		Filter.useFilter(data, filter);
+		for (FVSPhase phase : FVSPhase.values()) {
+			assertNotNull(filter.getPhaseUsage(phase));
+			assertTrue(filter.getPhaseUsage(phase).getWallTime() > 0);
+		}
+	}
+}
@@ -10,7 +10,10 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import edu.nctu.lalala.fvs.CutPointTable;
 import edu.nctu.lalala.fvs.Value;
+import weka.core.Attribute;
+import weka.core.Instances;
 
 public class TestValue {
 
@@ -20,7 +23,6 @@ public class TestValue {
 
 	@Test
 	public void testEquality() {
-		// Negative value hasn't been tested
 		Value v1 = new Value("(2.48-6.31]");
 		Value v2 = new Value("(6.31-inf)");
 		Value v3 = new Value("(-inf-2.48]");
@@ -66,4 +68,58 @@ public class TestValue {
 		Assert.assertTrue(list.contains(v5));
 		Assert.assertTrue(list.contains(v6));
 	}
+
+	@Test
+	public void testNegative() {
+		Value v1 = new Value("'(-inf--4.377087]'");
+		Value v2 = new Value("'(-4.377087--2.984624]'");
+		Value v3 = new Value("'(-0.199697-1.192766]'");
+		Value v4 = new Value("(1.0E-4-2.5e+1]");
+
+		assertEquals(v1, new Value(-100.0));
+		assertEquals(v2, new Value(-3.0));
+		assertEquals(v3, new Value(-0.1));
+		assertEquals(v3, new Value(1.0));
+		assertEquals(v4, new Value(20.0));
+		assertNotEquals(v1, new Value(-3.0));
+		assertNotEquals(v2, new Value(-0.1));
+		assertNotEquals(v3, new Value(-3.0));
+		assertNotEquals(v4, new Value(0.0));
+	}
+
+	@Test
+	public void testParse() {
+		double[] interval = new double[2];
+		Assert.assertTrue(CutPointTable.parseInterval("(-inf-inf)", interval));
+		assertEquals(Double.NEGATIVE_INFINITY, interval[0], 0);
+		assertEquals(Double.POSITIVE_INFINITY, interval[1], 0);
+		Assert.assertTrue(CutPointTable.parseInterval("-5.326e-07", interval));
+		assertEquals(-5.326e-07, interval[0], 0);
+		assertEquals(-5.326e-07, interval[1], 0);
+		Assert.assertFalse(CutPointTable.parseInterval("'All'", interval));
+		Assert.assertFalse(CutPointTable.parseInterval("?", interval));
+		Assert.assertTrue(Double.isNaN(interval[0]));
+	}
+
+	@Test
+	public void testCutPoints() {
+		List<String> labels = new ArrayList<>();
+		labels.add("'(-inf--2.5]'");
+		labels.add("'(-2.5-2.48]'");
+		labels.add("'(2.48-inf)'");
+		ArrayList<Attribute> atts = new ArrayList<>();
+		atts.add(new Attribute("A", labels));
+		atts.add(new Attribute("B"));
+		Instances header = new Instances("test", atts, 0);
+		CutPointTable table = CutPointTable.forHeader(header);
+
+		Assert.assertTrue(table.hasCutPoints(0));
+		Assert.assertFalse(table.hasCutPoints(1));
+		assertEquals(-2.5, table.getUpper(0, 0), 0);
+		assertEquals(0, table.intervalOf(0, -10.0));
+		assertEquals(0, table.intervalOf(0, -2.5));
+		assertEquals(1, table.intervalOf(0, 0.0));
+		assertEquals(2, table.intervalOf(0, 1e9));
+		assertEquals(-1, table.intervalOf(0, Double.NaN));
+	}
 }